@@ -0,0 +1,82 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.CellType;
+import game.Difficulty;
+import game.GameEngine;
+import game.GameListener;
+import game.Level;
+import game.WorldGrid;
+
+/**
+ * Cost of one game tick with enemies chasing the mole: the chase field is
+ * repaired and every enemy takes a step. {@code movesPerTick} is how often
+ * the mole digs, from never to every tick.
+ *
+ * Enemies that reach the mole end the level, so the level restarts when
+ * that happens; restarts are rare next to the ticks measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnemyBenchmark {
+	@Param({ "200" })
+	public int gridSize;
+
+	@Param({ "500" })
+	public int enemies;
+
+	@Param({ "0", "0.1", "1" })
+	public double movesPerTick;
+
+	private static final char[] PATH = { 's', 'd', 's', 'a', 'a', 's', 'd', 'd' };
+
+	private GameEngine engine;
+	private double moveCredit;
+	private int step;
+
+	@Setup
+	public void setup() {
+		engine = new GameEngine(Difficulty.STANDARD.withoutTimeLimit().withEnemiesPerLevel(enemies),
+				GameListener.NONE);
+		restart();
+	}
+
+	private void restart() {
+		WorldGrid world = new WorldGrid(gridSize, gridSize);
+		world.fill(0, 0, gridSize, Level.SKY_HEIGHT, CellType.SKY);
+		world.fill(0, Level.SKY_HEIGHT, gridSize, gridSize - Level.SKY_HEIGHT, CellType.SOIL);
+		world.set(gridSize / 2, Level.SKY_HEIGHT, CellType.MOLE);
+		engine.startLevel(new Level(1, step, world, gridSize / 2, Level.SKY_HEIGHT, -1, -1, 0));
+	}
+
+	@Benchmark
+	public int tick() {
+		moveCredit += movesPerTick;
+		while (moveCredit >= 1) {
+			moveCredit--;
+			engine.move(PATH[step++ % PATH.length]);
+		}
+		int status = engine.tick();
+		if (status != GameEngine.RUNNING) {
+			restart();
+		}
+		return status;
+	}
+}
@@ -0,0 +1,68 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.InputEventQueue;
+import utils.InputHandler;
+
+/**
+ * Cost of handing key events from the event thread to the game thread
+ * through {@link InputHandler}, on one thread and across two.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InputBenchmark {
+
+	@State(Scope.Thread)
+	public static class Local {
+		final InputHandler input = new InputHandler();
+		long sum;
+		final InputEventQueue.Consumer consumer = (key, pressed, timestampNanos) -> sum += key;
+	}
+
+	@State(Scope.Group)
+	public static class Shared {
+		final InputHandler input = new InputHandler();
+		// Only touched by the consumer thread
+		long sum;
+		final InputEventQueue.Consumer consumer = (key, pressed, timestampNanos) -> sum += key;
+	}
+
+	/**
+	 * Publish and drain one press and release on the same thread.
+	 */
+	@Benchmark
+	public long publishAndDrain(Local local) {
+		local.input.publish('d', true);
+		local.input.publish('d', false);
+		local.input.drain(local.consumer);
+		return local.sum;
+	}
+
+	@Benchmark
+	@Group("handoff")
+	public void producer(Shared shared) {
+		shared.input.publish('d', true);
+	}
+
+	@Benchmark
+	@Group("handoff")
+	public long consumer(Shared shared) {
+		shared.input.drain(shared.consumer);
+		return shared.sum;
+	}
+}
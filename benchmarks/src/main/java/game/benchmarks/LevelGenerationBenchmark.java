@@ -0,0 +1,68 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Difficulty;
+import game.Level;
+import game.LevelGenerator;
+import game.Mole;
+
+/**
+ * Cost of building a level, which is what {@code Mole.drawWorld} waits on
+ * when the preloader has not finished yet: filling the grid, placing items
+ * and the reachability check with its repair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelGenerationBenchmark {
+	@Param({ "1", "5", "10", "20" })
+	public int level;
+
+	@Param({ "50", "100", "200" })
+	public int gridSize;
+
+	private final LevelGenerator generator = new LevelGenerator(Level.SKY_HEIGHT);
+	private long seed;
+
+	@Setup
+	public void setup() {
+		seed = 0;
+	}
+
+	/**
+	 * A level of the standard progression; grid size grows with the level.
+	 */
+	@Benchmark
+	public Level standardLevel() {
+		return Difficulty.STANDARD.generate(generator, seed++, level);
+	}
+
+	/**
+	 * A square grid of {@code gridSize} with the item density of the given level.
+	 */
+	@Benchmark
+	public Level squareGrid() {
+		int cells = gridSize * gridSize;
+		Difficulty d = Difficulty.STANDARD;
+		int standardCells = d.gridWidth(level) * d.gridHeight(level);
+		int obstacles = (int) ((long) d.obstacleCount(level) * cells / standardCells);
+		int powerUps = (int) ((long) d.powerUpCount(level) * cells / standardCells);
+		return generator.generate(level, seed++, gridSize, gridSize, obstacles, powerUps);
+	}
+}
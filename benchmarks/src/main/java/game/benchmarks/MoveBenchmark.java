@@ -0,0 +1,80 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.CellType;
+import game.Difficulty;
+import game.GameEngine;
+import game.GameListener;
+import game.Level;
+import game.WorldGrid;
+
+/**
+ * Cost of one key press through the engine's path and obstacle checks, on
+ * open soil with and without a speed boost, and against an obstacle.
+ *
+ * The mole walks back and forth along a row so the benchmark can run
+ * forever; the game clock never advances, so a boost never expires.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+	@Param({ "50", "100", "200" })
+	public int gridSize;
+
+	@Param({ "false", "true" })
+	public boolean boosted;
+
+	private GameEngine engine;
+	private int direction = 1;
+
+	@Setup
+	public void setup() {
+		WorldGrid world = new WorldGrid(gridSize, gridSize);
+		world.fill(0, 0, gridSize, Level.SKY_HEIGHT, CellType.SKY);
+		world.fill(0, Level.SKY_HEIGHT, gridSize, gridSize - Level.SKY_HEIGHT, CellType.SOIL);
+		int row = gridSize / 2;
+		world.set(0, row, CellType.MOLE);
+		world.set(1, row, CellType.POWER_UP);
+		// A wall right below the row for the blocked move
+		world.fill(0, row + 1, gridSize, 2, CellType.OBSTACLE);
+		world.set(gridSize - 1, gridSize - 1, CellType.GOAL);
+		engine = new GameEngine(Difficulty.STANDARD, GameListener.NONE);
+		engine.startLevel(new Level(1, 0L, world, 0, row, gridSize - 1, gridSize - 1, 0));
+		if (boosted) {
+			engine.move('d');
+		}
+	}
+
+	@Benchmark
+	public int openMove() {
+		int x = engine.getMoleX();
+		if (x + 2 >= gridSize) {
+			direction = -1;
+		} else if (x - 2 < 0) {
+			direction = 1;
+		}
+		return engine.move(direction > 0 ? 'd' : 'a');
+	}
+
+	@Benchmark
+	public int blockedMove() {
+		return engine.move('s');
+	}
+}
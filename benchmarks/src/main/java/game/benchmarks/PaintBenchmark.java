@@ -0,0 +1,84 @@
+package game.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Difficulty;
+import game.GridRenderer;
+import game.LevelGenerator;
+import game.WorldGrid;
+
+/**
+ * Cost of painting the world into an offscreen image the way
+ * {@code GameGraphics.paintComponent} does, for a full repaint and for the
+ * one-cell clip a single move produces. Runs headless, so the frame and its
+ * status text are left out; the grid is where the time goes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+	private static final int BLOCK_SIZE = 20;
+
+	@Param({ "50", "100", "200" })
+	public int gridSize;
+
+	private WorldGrid world;
+	private GridRenderer renderer;
+	private BufferedImage image;
+	private Graphics2D g;
+	private Rectangle fullClip;
+	private Rectangle cellClip;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		int obstacles = Difficulty.STANDARD.obstacleCount(1) * gridSize * gridSize / 1500;
+		world = new LevelGenerator(game.Level.SKY_HEIGHT).generate(1, 42L, gridSize, gridSize, obstacles, gridSize / 6)
+				.getWorld();
+		renderer = new GridRenderer(BLOCK_SIZE, game.Level.SKY_HEIGHT);
+		image = new BufferedImage(gridSize * BLOCK_SIZE + 1, gridSize * BLOCK_SIZE + 1, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+		renderer.prepare(world, g.getDeviceConfiguration());
+		fullClip = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+		int cell = gridSize / 2 * BLOCK_SIZE;
+		cellClip = new Rectangle(cell, cell, BLOCK_SIZE + 1, BLOCK_SIZE + 1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage fullRepaint() {
+		g.setClip(fullClip);
+		renderer.paint(g, world, fullClip);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage cellRepaint() {
+		g.setClip(cellClip);
+		renderer.paint(g, world, cellClip);
+		return image;
+	}
+}
@@ -0,0 +1,67 @@
+package game.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.CellType;
+import game.DirtyRegion;
+import game.WorldGrid;
+
+/**
+ * Cost of cell writes on the world grid, including the dirty tracking each
+ * write feeds. The dirty region is drained after every operation, as the
+ * renderer would, so it never saturates into "everything dirty".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldGridBenchmark {
+	@Param({ "50", "100", "200" })
+	public int gridSize;
+
+	private WorldGrid world;
+	private final int[] dirty = new int[DirtyRegion.CAPACITY];
+	private byte type = CellType.SOIL;
+
+	@Setup
+	public void setup() {
+		world = new WorldGrid(gridSize, gridSize);
+	}
+
+	private byte nextType() {
+		type = type == CellType.SOIL ? CellType.TUNNEL : CellType.SOIL;
+		return type;
+	}
+
+	@Benchmark
+	public int setCell() {
+		world.set(gridSize / 2, gridSize / 2, nextType());
+		return world.getDirtyRegion().drain(dirty);
+	}
+
+	@Benchmark
+	public int fillRectangle() {
+		world.fill(gridSize / 4, gridSize / 4, gridSize / 2, gridSize / 2, nextType());
+		return world.getDirtyRegion().drain(dirty);
+	}
+
+	@Benchmark
+	public int fillAll() {
+		world.fillAll(nextType());
+		return world.getDirtyRegion().drain(dirty);
+	}
+}
@@ -0,0 +1,119 @@
+package game;
+
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Active rendering for the game frame.
+ *
+ * A dedicated thread draws complete frames into a {@link BufferStrategy} on
+ * a heavyweight {@link Canvas} and flips them at a capped frame rate, instead
+ * of waiting for Swing to coalesce {@code repaint()} requests. Frame pacing
+ * uses absolute deadlines on the monotonic clock, so a late frame shortens
+ * the next sleep rather than shifting every following frame; if rendering
+ * falls more than a frame behind the schedule is reset instead of bursting
+ * to catch up.
+ */
+public class ActiveRenderer implements Runnable {
+	/**
+	 * Draws one frame onto the back buffer.
+	 */
+	public interface FrameSource {
+		void renderFrame(Graphics2D g, int surfaceWidth, int surfaceHeight);
+	}
+
+	private final Canvas canvas;
+	private final FrameSource source;
+	private final long frameNanos;
+	private final int bufferCount;
+	private volatile boolean running;
+	private Thread thread;
+	// Written by the render thread only
+	private volatile long framesRendered;
+
+	/**
+	 * @param fps         maximum frames per second, must be positive
+	 * @param bufferCount 2 for double buffering, 3 for triple buffering
+	 */
+	public ActiveRenderer(FrameSource source, int fps, int bufferCount) {
+		if (fps <= 0) {
+			throw new IllegalArgumentException("FPS cap must be positive: " + fps);
+		}
+		this.source = source;
+		this.frameNanos = 1_000_000_000L / fps;
+		this.bufferCount = bufferCount;
+		this.canvas = new Canvas();
+		this.canvas.setIgnoreRepaint(true);
+	}
+
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this, "mole-render");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	public long getFramesRendered() {
+		return framesRendered;
+	}
+
+	@Override
+	public void run() {
+		long nextFrame = System.nanoTime();
+		while (running) {
+			renderOnce();
+			nextFrame += frameNanos;
+			long sleep = nextFrame - System.nanoTime();
+			if (sleep > 0) {
+				LockSupport.parkNanos(sleep);
+			} else if (sleep < -frameNanos) {
+				nextFrame = System.nanoTime();
+			}
+			if (Thread.interrupted() && !running) {
+				break;
+			}
+		}
+	}
+
+	private void renderOnce() {
+		if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+			return;
+		}
+		BufferStrategy strategy = canvas.getBufferStrategy();
+		if (strategy == null) {
+			canvas.createBufferStrategy(bufferCount);
+			return;
+		}
+		do {
+			do {
+				Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					source.renderFrame(g, canvas.getWidth(), canvas.getHeight());
+				} finally {
+					g.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+		framesRendered++;
+	}
+}
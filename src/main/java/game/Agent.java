@@ -0,0 +1,17 @@
+package game;
+
+/**
+ * Plays the game in place of a keyboard, for simulations.
+ */
+public interface Agent {
+	/**
+	 * Called when a level starts.
+	 */
+	default void startLevel(GameEngine engine) {
+	}
+
+	/**
+	 * Returns the key to press on this tick, or 0 to press nothing.
+	 */
+	char nextKey(GameEngine engine);
+}
@@ -0,0 +1,204 @@
+package game;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Plays many seeded games headlessly and in parallel to tune difficulty.
+ *
+ * Every game runs a {@link GameEngine} with a {@link PathAgent} on its own
+ * thread-confined state, as fast as the CPU allows, and the per-level
+ * results are merged into a {@link Report}. Games are spread over a
+ * fork-join pool with one worker per core by default.
+ *
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=game.BatchRunner -Dexec.args="--games 100000 --obstacle-increase 15"
+ * </pre>
+ */
+public class BatchRunner {
+	private final Difficulty difficulty;
+	private final int maxLevel;
+	private final int ticksPerMove;
+	private final double mistakeRate;
+
+	/**
+	 * @param maxLevel     games stop after this level even if it is won
+	 * @param ticksPerMove how many ticks the simulated player waits between key presses
+	 * @param mistakeRate  chance of the simulated player pressing a random key
+	 */
+	public BatchRunner(Difficulty difficulty, int maxLevel, int ticksPerMove, double mistakeRate) {
+		this.difficulty = difficulty;
+		this.maxLevel = maxLevel;
+		this.ticksPerMove = ticksPerMove;
+		this.mistakeRate = mistakeRate;
+	}
+
+	/**
+	 * Plays {@code games} games with seeds {@code baseSeed}, {@code baseSeed + 1}, ...
+	 */
+	public Report run(long baseSeed, int games, int parallelism) throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.submit(() -> IntStream.range(0, games).parallel()
+					.collect(() -> new Report(maxLevel), (report, i) -> play(baseSeed + i, report), Report::merge))
+					.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Simulation failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Plays one game until a level is lost or {@code maxLevel} is won, adding each level to {@code report}.
+	 */
+	public void play(long gameSeed, Report report) {
+		LevelGenerator generator = new LevelGenerator(Level.SKY_HEIGHT);
+		GameEngine engine = new GameEngine(difficulty, GameListener.NONE);
+		Agent agent = new PathAgent(ticksPerMove, mistakeRate, gameSeed);
+		report.games++;
+		for (int number = 1; number <= maxLevel; number++) {
+			Level level = difficulty.generate(generator, gameSeed, number);
+			engine.startLevel(level);
+			agent.startLevel(engine);
+			int status = GameEngine.RUNNING;
+			while (status == GameEngine.RUNNING) {
+				char key = agent.nextKey(engine);
+				if (key != 0) {
+					status = engine.move(key);
+				}
+				if (status == GameEngine.RUNNING) {
+					status = engine.tick();
+				}
+			}
+			boolean won = status == GameEngine.WON;
+			report.add(number, won, engine.getMoves(), engine.getTick(), level.getOptimalMoves());
+			if (!won) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Per-level totals over a batch of games.
+	 */
+	public static class Report {
+		private long games;
+		private final long[] reached;
+		private final long[] won;
+		private final long[] moves;
+		private final long[] ticks;
+		private final long[] optimalMoves;
+
+		public Report(int maxLevel) {
+			reached = new long[maxLevel + 1];
+			won = new long[maxLevel + 1];
+			moves = new long[maxLevel + 1];
+			ticks = new long[maxLevel + 1];
+			optimalMoves = new long[maxLevel + 1];
+		}
+
+		void add(int level, boolean levelWon, int levelMoves, long levelTicks, int levelOptimalMoves) {
+			reached[level]++;
+			optimalMoves[level] += levelOptimalMoves;
+			if (levelWon) {
+				won[level]++;
+				moves[level] += levelMoves;
+				ticks[level] += levelTicks;
+			}
+		}
+
+		void merge(Report other) {
+			games += other.games;
+			for (int level = 0; level < reached.length; level++) {
+				reached[level] += other.reached[level];
+				won[level] += other.won[level];
+				moves[level] += other.moves[level];
+				ticks[level] += other.ticks[level];
+				optimalMoves[level] += other.optimalMoves[level];
+			}
+		}
+
+		public long getGames() {
+			return games;
+		}
+
+		public long getReached(int level) {
+			return reached[level];
+		}
+
+		public long getWon(int level) {
+			return won[level];
+		}
+
+		/**
+		 * Returns the share of games that reached {@code level} and won it.
+		 */
+		public double winRate(int level) {
+			return reached[level] == 0 ? 0 : (double) won[level] / reached[level];
+		}
+
+		public double averageMoves(int level) {
+			return won[level] == 0 ? 0 : (double) moves[level] / won[level];
+		}
+
+		public double averageSeconds(int level) {
+			return won[level] == 0 ? 0 : (double) ticks[level] / won[level] / GameEngine.TICKS_PER_SECOND;
+		}
+
+		public double averageOptimalMoves(int level) {
+			return reached[level] == 0 ? 0 : (double) optimalMoves[level] / reached[level];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder out = new StringBuilder();
+			out.append(String.format("%d games%n", games));
+			out.append(String.format("%5s %10s %8s %9s %9s %9s%n", "level", "reached", "win %", "moves", "optimal",
+					"seconds"));
+			for (int level = 1; level < reached.length && reached[level] > 0; level++) {
+				out.append(String.format("%5d %10d %7.1f%% %9.1f %9.1f %9.1f%n", level, reached[level],
+						100 * winRate(level), averageMoves(level), averageOptimalMoves(level),
+						averageSeconds(level)));
+			}
+			return out.toString();
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int games = 10_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxLevel = 20;
+		long seed = 1;
+		int ticksPerMove = 12;
+		double mistakeRate = 0.05;
+		Difficulty difficulty = Difficulty.STANDARD;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--games" -> games = Integer.parseInt(value);
+				case "--threads" -> threads = Integer.parseInt(value);
+				case "--max-level" -> maxLevel = Integer.parseInt(value);
+				case "--seed" -> seed = Long.parseLong(value);
+				case "--ticks-per-move" -> ticksPerMove = Integer.parseInt(value);
+				case "--mistakes" -> mistakeRate = Double.parseDouble(value);
+				case "--obstacle-increase" -> difficulty = difficulty.withObstacleIncreasePerLevel(Integer.parseInt(value));
+				case "--time-decrease" -> difficulty = difficulty.withTimeDecreasePerLevel(Integer.parseInt(value));
+				case "--grid-growth" -> difficulty = difficulty.withGridGrowthPerLevel(Integer.parseInt(value));
+				case "--enemies" -> difficulty = difficulty.withEnemiesPerLevel(Integer.parseInt(value));
+				case "--debris" -> difficulty = difficulty.withFallingDebris(Boolean.parseBoolean(value));
+				default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		System.out.println("Difficulty: " + difficulty);
+		System.out.println("Player: one key every " + ticksPerMove + " ticks, " + (100 * mistakeRate)
+				+ "% random keys");
+		long start = System.nanoTime();
+		Report report = new BatchRunner(difficulty, maxLevel, ticksPerMove, mistakeRate).run(seed, games, threads);
+		long elapsed = System.nanoTime() - start;
+		System.out.print(report);
+		System.out.printf("%d games in %.1f s on %d threads%n", games, elapsed / 1e9, threads);
+	}
+}
@@ -0,0 +1,74 @@
+package game;
+
+/**
+ * Blinks one cell by swapping it with {@link CellType#GLOW_EFFECT} and back
+ * on an {@link EffectScheduler}.
+ *
+ * The blink stops early, leaving the cell alone, as soon as something else
+ * changes it, so a mole digging through a glowing cell is never overwritten
+ * by a stale restore.
+ */
+public class BlinkEffect implements Runnable {
+	private final WorldGrid world;
+	private int index;
+	private final byte original;
+	private final int periodTicks;
+	private final EffectScheduler scheduler;
+	private final EffectScheduler.Timer timer = new EffectScheduler.Timer(this);
+	private int remainingToggles;
+
+	/**
+	 * @param blinks      how many times the cell lights up
+	 * @param periodTicks how long it stays lit, and then unlit, each time
+	 */
+	public BlinkEffect(EffectScheduler scheduler, WorldGrid world, int x, int y, int blinks, int periodTicks) {
+		this.scheduler = scheduler;
+		this.world = world;
+		this.index = world.index(x, y);
+		this.original = world.get(index);
+		this.periodTicks = periodTicks;
+		this.remainingToggles = blinks * 2;
+	}
+
+	public void start() {
+		run();
+	}
+
+	public void cancel() {
+		if (timer.cancel() && world.get(index) == CellType.GLOW_EFFECT) {
+			world.set(index, original);
+		}
+	}
+
+	/**
+	 * Returns whether the cell has blinks left.
+	 */
+	public boolean isActive() {
+		return timer.isPending();
+	}
+
+	/**
+	 * Follows the cell after the world's rows moved up by {@code rows} (down
+	 * if negative), as an {@link EndlessWorld} does when it scrolls. Stops,
+	 * leaving the world alone, if the cell is no longer in it.
+	 */
+	public void scroll(int rows) {
+		index -= rows * world.getWidth();
+		if (index < 0 || index >= world.size()) {
+			timer.cancel();
+		}
+	}
+
+	@Override
+	public void run() {
+		byte current = world.get(index);
+		boolean lit = current == CellType.GLOW_EFFECT;
+		if (!lit && current != original) {
+			return;
+		}
+		world.set(index, lit ? original : CellType.GLOW_EFFECT);
+		if (--remainingToggles > 0) {
+			scheduler.schedule(timer, periodTicks);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package game;
+
+/**
+ * The part of the world shown on screen: follows the mole, scrolls towards
+ * it smoothly and supports a few fixed zoom levels.
+ *
+ * The camera is moved on the game thread once per tick. The painting thread
+ * reads the result through {@link #getView()}, a single volatile long that
+ * packs the scroll offset and zoom level, so it always gets a matching
+ * offset and zoom without locking.
+ */
+public class Camera {
+	private static final double[] ZOOM_LEVELS = { 0.25, 0.5, 0.75, 1, 1.5, 2, 3 };
+	private static final int DEFAULT_ZOOM = 3;
+	// Fraction of the remaining distance covered per tick, but at least MIN_STEP pixels
+	private static final double SMOOTHING = 0.15;
+	private static final double MIN_STEP = 1;
+	private static final int OFFSET_BITS = 28;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+	private final int blockSize;
+	private int viewWidth;
+	private int viewHeight;
+	private int worldWidth;
+	private int worldHeight;
+	private int zoomLevel = DEFAULT_ZOOM;
+	// Top-left corner of the view and where it is heading, in unzoomed world pixels
+	private double x;
+	private double y;
+	private double targetX;
+	private double targetY;
+	private volatile long view = pack(0, 0, DEFAULT_ZOOM);
+
+	public Camera(int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Sets the size in screen pixels of the area the world is drawn in.
+	 */
+	public void setViewport(int width, int height) {
+		viewWidth = Math.max(0, width);
+		viewHeight = Math.max(0, height);
+	}
+
+	/**
+	 * Sets the size of the world in cells.
+	 */
+	public void setWorldSize(int cellsWide, int cellsHigh) {
+		worldWidth = cellsWide * blockSize;
+		worldHeight = cellsHigh * blockSize;
+	}
+
+	/**
+	 * Aims the camera at the center of the given cell.
+	 */
+	public void follow(int cellX, int cellY) {
+		double zoom = ZOOM_LEVELS[zoomLevel];
+		targetX = (cellX + 0.5) * blockSize - viewWidth / zoom / 2;
+		targetY = (cellY + 0.5) * blockSize - viewHeight / zoom / 2;
+	}
+
+	/**
+	 * Jumps straight to the target, as when a new level starts.
+	 */
+	public void snap() {
+		x = clampX(targetX);
+		y = clampY(targetY);
+		publish();
+	}
+
+	/**
+	 * Keeps the view on the same cells after the world content moved up by
+	 * {@code rows} rows.
+	 */
+	public void scroll(int rows) {
+		y = clampY(y - rows * blockSize);
+		targetY -= rows * blockSize;
+		publish();
+	}
+
+	/**
+	 * Moves one tick closer to the target.
+	 *
+	 * @return true if the view changed
+	 */
+	public boolean update() {
+		x = approach(x, clampX(targetX));
+		y = approach(y, clampY(targetY));
+		return publish();
+	}
+
+	private static double approach(double from, double to) {
+		double distance = to - from;
+		double step = Math.max(Math.abs(distance) * SMOOTHING, MIN_STEP);
+		return step >= Math.abs(distance) ? to : from + Math.copySign(step, distance);
+	}
+
+	public boolean zoomIn() {
+		return setZoomLevel(zoomLevel + 1);
+	}
+
+	public boolean zoomOut() {
+		return setZoomLevel(zoomLevel - 1);
+	}
+
+	private boolean setZoomLevel(int level) {
+		if (level < 0 || level >= ZOOM_LEVELS.length) {
+			return false;
+		}
+		// Keep the center of the view where it was
+		double centerX = x + viewWidth / ZOOM_LEVELS[zoomLevel] / 2;
+		double centerY = y + viewHeight / ZOOM_LEVELS[zoomLevel] / 2;
+		zoomLevel = level;
+		x = clampX(centerX - viewWidth / ZOOM_LEVELS[level] / 2);
+		y = clampY(centerY - viewHeight / ZOOM_LEVELS[level] / 2);
+		return publish();
+	}
+
+	private double clampX(double value) {
+		double max = worldWidth - viewWidth / ZOOM_LEVELS[zoomLevel];
+		return Math.max(0, Math.min(value, max));
+	}
+
+	private double clampY(double value) {
+		double max = worldHeight - viewHeight / ZOOM_LEVELS[zoomLevel];
+		return Math.max(0, Math.min(value, max));
+	}
+
+	private boolean publish() {
+		double zoom = ZOOM_LEVELS[zoomLevel];
+		long next = pack((int) Math.round(x * zoom), (int) Math.round(y * zoom), zoomLevel);
+		if (next == view) {
+			return false;
+		}
+		view = next;
+		return true;
+	}
+
+	private static long pack(int offsetX, int offsetY, int zoomLevel) {
+		return ((long) zoomLevel << (2 * OFFSET_BITS)) | ((long) offsetY << OFFSET_BITS) | offsetX;
+	}
+
+	/**
+	 * Returns the current view; decode it with {@link #offsetX(long)},
+	 * {@link #offsetY(long)} and {@link #zoom(long)}.
+	 */
+	public long getView() {
+		return view;
+	}
+
+	/**
+	 * Returns the horizontal scroll in screen pixels: world pixel {@code px}
+	 * is drawn at {@code px * zoom - offsetX}.
+	 */
+	public static int offsetX(long view) {
+		return (int) (view & OFFSET_MASK);
+	}
+
+	public static int offsetY(long view) {
+		return (int) ((view >>> OFFSET_BITS) & OFFSET_MASK);
+	}
+
+	public static double zoom(long view) {
+		return ZOOM_LEVELS[(int) (view >>> (2 * OFFSET_BITS))];
+	}
+}
@@ -0,0 +1,23 @@
+package game;
+
+/**
+ * Defines the cell type codes stored in a {@link WorldGrid}.
+ */
+public final class CellType {
+	public static final byte EMPTY = 0; // Nothing drawn yet
+	public static final byte SKY = 1; // Open sky above ground
+	public static final byte SOIL = 2; // Undug soil
+	public static final byte TUNNEL = 3; // Soil the mole has dug through
+	public static final byte POWER_UP = 4; // Speed boost pickup
+	public static final byte GOAL = 5; // Level exit
+	public static final byte OBSTACLE = 6; // Impassable rock
+	public static final byte MOLE = 7; // The player
+	public static final byte GLOW_EFFECT = 8; // Highlighted cell
+	public static final byte ENEMY = 9; // A creature chasing the mole
+
+	/** Number of defined cell types; codes are always in {@code [0, COUNT)}. */
+	public static final int COUNT = 10;
+
+	private CellType() {
+	}
+}
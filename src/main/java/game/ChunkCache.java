@@ -0,0 +1,132 @@
+package game;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a bounded number of endless-world chunks in memory.
+ *
+ * Chunks are kept in least-recently-used order. When the cache is full the
+ * oldest chunk is evicted: written to the {@link ChunkSpill} if the player
+ * changed it and a spill is configured, otherwise dropped. A missing chunk
+ * is read back from the spill if it is there and regenerated from the seed
+ * otherwise, so without a spill the changes in a far-away chunk are
+ * forgotten. The array of an evicted chunk is reused for the next load, so
+ * memory stays bounded by the capacity.
+ *
+ * Instances are not thread-safe; the game thread owns the cache.
+ */
+public class ChunkCache implements AutoCloseable {
+	private static final class Chunk {
+		final byte[] cells;
+		boolean modified;
+
+		Chunk(byte[] cells) {
+			this.cells = cells;
+		}
+	}
+
+	private final ChunkGenerator generator;
+	private final ChunkSpill spill;
+	private final int capacity;
+	private final Map<Long, Chunk> chunks;
+	private byte[] spare;
+	private long generated;
+	private long restored;
+	private long evicted;
+
+	/**
+	 * @param spill where changed chunks go when evicted, or null to forget the changes
+	 */
+	public ChunkCache(ChunkGenerator generator, int capacity, ChunkSpill spill) {
+		this.generator = generator;
+		this.capacity = capacity;
+		this.spill = spill;
+		this.chunks = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if (size() <= ChunkCache.this.capacity) {
+					return false;
+				}
+				evict(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	private void evict(long index, Chunk chunk) {
+		if (chunk.modified && spill != null) {
+			spill.write(index, chunk.cells);
+		}
+		spare = chunk.cells;
+		evicted++;
+	}
+
+	private Chunk chunk(long index) {
+		Chunk chunk = chunks.get(index);
+		if (chunk == null) {
+			byte[] cells = spare != null ? spare : new byte[generator.chunkSize()];
+			spare = null;
+			chunk = new Chunk(cells);
+			if (spill != null && spill.read(index, cells)) {
+				// Still differs from what the seed would give, so it must be spilled again
+				chunk.modified = true;
+				restored++;
+			} else {
+				generator.generate(index, cells);
+				generated++;
+			}
+			chunks.put(index, chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Copies chunk {@code index} into rows {@code y} onward of {@code world}.
+	 */
+	public void load(long index, WorldGrid world, int y) {
+		world.setRows(y, ChunkGenerator.CHUNK_ROWS, chunk(index).cells, 0);
+	}
+
+	/**
+	 * Saves rows {@code y} onward of {@code world} as chunk {@code index},
+	 * noting whether anything changed.
+	 */
+	public void store(long index, WorldGrid world, int y, byte[] scratch) {
+		Chunk chunk = chunk(index);
+		world.copyRows(y, ChunkGenerator.CHUNK_ROWS, scratch, 0);
+		int size = generator.chunkSize();
+		if (!Arrays.equals(scratch, 0, size, chunk.cells, 0, size)) {
+			System.arraycopy(scratch, 0, chunk.cells, 0, size);
+			chunk.modified = true;
+		}
+	}
+
+	public int size() {
+		return chunks.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getGenerated() {
+		return generated;
+	}
+
+	public long getRestored() {
+		return restored;
+	}
+
+	public long getEvicted() {
+		return evicted;
+	}
+
+	@Override
+	public void close() {
+		if (spill != null) {
+			spill.close();
+		}
+	}
+}
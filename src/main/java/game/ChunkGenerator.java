@@ -0,0 +1,88 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the soil of an endless world one chunk at a time.
+ *
+ * A chunk is a band of {@link #CHUNK_ROWS} full-width rows; chunk 0 starts
+ * at the top of the sky. Each chunk is derived only from the game seed and
+ * its index, so any chunk can be rebuilt on demand in any order. Obstacles
+ * get denser with depth, up to a cap that keeps the soil passable overall.
+ */
+public class ChunkGenerator {
+	public static final int CHUNK_ROWS = 16;
+
+	private final int width;
+	private final int skyHeight;
+	private final long seed;
+	private final double baseObstacleDensity;
+	private final double obstacleDensityPerRow;
+	private final double maxObstacleDensity;
+	private final double powerUpDensity;
+
+	public ChunkGenerator(int width, int skyHeight, long seed) {
+		this(width, skyHeight, seed, 0.03, 0.0005, 0.25, 0.004);
+	}
+
+	/**
+	 * @param baseObstacleDensity   share of obstacle cells just below the sky
+	 * @param obstacleDensityPerRow how much that share grows per row of depth
+	 * @param maxObstacleDensity    the share it never exceeds
+	 * @param powerUpDensity        share of power-up cells at any depth
+	 */
+	public ChunkGenerator(int width, int skyHeight, long seed, double baseObstacleDensity,
+			double obstacleDensityPerRow, double maxObstacleDensity, double powerUpDensity) {
+		this.width = width;
+		this.skyHeight = skyHeight;
+		this.seed = seed;
+		this.baseObstacleDensity = baseObstacleDensity;
+		this.obstacleDensityPerRow = obstacleDensityPerRow;
+		this.maxObstacleDensity = maxObstacleDensity;
+		this.powerUpDensity = powerUpDensity;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of cells in one chunk.
+	 */
+	public int chunkSize() {
+		return width * CHUNK_ROWS;
+	}
+
+	/**
+	 * Fills {@code cells} with chunk {@code chunk}.
+	 */
+	public void generate(long chunk, byte[] cells) {
+		SplittableRandom random = new SplittableRandom(
+				new SplittableRandom(seed ^ (chunk * 0x9E3779B97F4A7C15L)).nextLong());
+		for (int row = 0; row < CHUNK_ROWS; row++) {
+			long y = chunk * CHUNK_ROWS + row;
+			int offset = row * width;
+			if (y < skyHeight) {
+				Arrays.fill(cells, offset, offset + width, CellType.SKY);
+				continue;
+			}
+			double obstacles = Math.min(maxObstacleDensity,
+					baseObstacleDensity + (y - skyHeight) * obstacleDensityPerRow);
+			for (int x = 0; x < width; x++) {
+				double roll = random.nextDouble();
+				byte type = CellType.SOIL;
+				if (roll < obstacles) {
+					type = CellType.OBSTACLE;
+				} else if (roll < obstacles + powerUpDensity) {
+					type = CellType.POWER_UP;
+				}
+				cells[offset + x] = type;
+			}
+			if (y == skyHeight) {
+				// Keep the starting cell clear
+				cells[offset + width / 2] = CellType.SOIL;
+			}
+		}
+	}
+}
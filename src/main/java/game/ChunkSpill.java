@@ -0,0 +1,108 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A local file that holds chunks evicted from a {@link ChunkCache} after
+ * the player changed them, so dug tunnels survive leaving memory.
+ *
+ * Chunk {@code i} lives at a fixed slot {@code i * (chunkSize + 1)}: a
+ * marker byte followed by the cells. Slots never written read back as
+ * zeros, which the marker tells apart, so the file needs no in-memory index
+ * and the heap stays the same size however many chunks are spilled. Files
+ * are sparse where the file system supports it.
+ */
+public class ChunkSpill implements AutoCloseable {
+	private static final byte PRESENT = 1;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final int chunkSize;
+	private final ByteBuffer buffer;
+	private long written;
+
+	public ChunkSpill(Path path, int chunkSize) throws IOException {
+		this.path = path;
+		this.chunkSize = chunkSize;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
+		this.buffer = ByteBuffer.allocate(chunkSize + 1);
+	}
+
+	/**
+	 * Creates a spill in a temporary file that is deleted on {@link #close()}.
+	 */
+	public static ChunkSpill createTemp(int chunkSize) throws IOException {
+		Path path = Files.createTempFile("mole-chunks", ".bin");
+		path.toFile().deleteOnExit();
+		return new ChunkSpill(path, chunkSize);
+	}
+
+	public void write(long chunk, byte[] cells) {
+		buffer.clear();
+		buffer.put(PRESENT).put(cells, 0, chunkSize).flip();
+		try {
+			long position = slot(chunk);
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to spill chunk " + chunk, e);
+		}
+		written++;
+	}
+
+	/**
+	 * Reads a spilled chunk into {@code cells}.
+	 *
+	 * @return false if the chunk was never spilled
+	 */
+	public boolean read(long chunk, byte[] cells) {
+		buffer.clear();
+		try {
+			long position = slot(chunk);
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					return false;
+				}
+				position += read;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read chunk " + chunk, e);
+		}
+		buffer.flip();
+		if (buffer.get() != PRESENT) {
+			return false;
+		}
+		buffer.get(cells, 0, chunkSize);
+		return true;
+	}
+
+	/**
+	 * Returns how many chunk writes went to the file.
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	private long slot(long chunk) {
+		return chunk * (chunkSize + 1);
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to remove " + path, e);
+		}
+	}
+}
@@ -15,4 +15,36 @@ public class ColorConstants {
 	public static final Color SOIL = new Color(153, 102, 51); // Brown for soil
 	public static final Color TIMER_TEXT = new Color(255, 255, 0); // Yellow for timer text
 	public static final Color GLOW_EFFECT = new Color(255, 255, 102); // Light yellow for glow effect
+	public static final Color ENEMY = new Color(128, 0, 128); // Purple for enemies
+	public static final Color CLOUD = new Color(255, 255, 255, 230); // Translucent white for clouds
+	public static final Color TREE_TRUNK = new Color(101, 67, 33); // Dark brown for tree trunks
+	public static final Color TREE_FOLIAGE = new Color(34, 139, 34); // Green for tree foliage
+	public static final Color ROCK = new Color(120, 120, 120); // Grey for surface rocks
+	public static final Color GRIDLINE = Color.LIGHT_GRAY; // Light grey for soil gridlines
+	public static final Color PAUSE_OVERLAY = new Color(0, 0, 0, 128); // Translucent black for the pause screen
+	public static final Color TOAST_BACKGROUND = new Color(40, 40, 40, 220); // Dark grey behind notifications
+	public static final Color TOAST_TEXT = Color.WHITE; // White notification text
+	public static final Color METRICS_BACKGROUND = new Color(0, 0, 0, 160); // Translucent black behind the metrics overlay
+
+	private static final Color[] CELL_COLORS = new Color[CellType.COUNT];
+
+	static {
+		CELL_COLORS[CellType.EMPTY] = Color.WHITE;
+		CELL_COLORS[CellType.SKY] = SKY;
+		CELL_COLORS[CellType.SOIL] = SOIL;
+		CELL_COLORS[CellType.TUNNEL] = TUNNEL;
+		CELL_COLORS[CellType.POWER_UP] = POWER_UP;
+		CELL_COLORS[CellType.GOAL] = GOAL;
+		CELL_COLORS[CellType.OBSTACLE] = OBSTACLE;
+		CELL_COLORS[CellType.MOLE] = MOLE;
+		CELL_COLORS[CellType.GLOW_EFFECT] = GLOW_EFFECT;
+		CELL_COLORS[CellType.ENEMY] = ENEMY;
+	}
+
+	/**
+	 * Returns the paint color for a {@link CellType} code.
+	 */
+	public static Color forCell(byte type) {
+		return CELL_COLORS[type];
+	}
 }
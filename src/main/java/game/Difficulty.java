@@ -0,0 +1,159 @@
+package game;
+
+/**
+ * Tuning parameters for how the game gets harder from level to level.
+ *
+ * Instances are immutable; the {@code with} methods return modified copies,
+ * which is how the batch runner sweeps parameters.
+ */
+public class Difficulty {
+	public static final Difficulty STANDARD = new Difficulty(30, 50, 5, 60000, 5000, 5000, 50, 10, 5, 1, 10, 0, false);
+
+	private final int initialGridWidth;
+	private final int initialGridHeight;
+	private final int gridGrowthPerLevel;
+	private final int initialTimeLimit;
+	private final int timeDecreasePerLevel;
+	private final int minTimeLimit;
+	private final int initialObstacleCount;
+	private final int obstacleIncreasePerLevel;
+	private final int initialPowerUpCount;
+	private final int powerUpIncreasePerLevel;
+	private final int powerUpDuration;
+	private final int enemiesPerLevel;
+	private final boolean fallingDebris;
+
+	private Difficulty(int initialGridWidth, int initialGridHeight, int gridGrowthPerLevel, int initialTimeLimit,
+			int timeDecreasePerLevel, int minTimeLimit, int initialObstacleCount, int obstacleIncreasePerLevel,
+			int initialPowerUpCount, int powerUpIncreasePerLevel, int powerUpDuration, int enemiesPerLevel,
+			boolean fallingDebris) {
+		this.initialGridWidth = initialGridWidth;
+		this.initialGridHeight = initialGridHeight;
+		this.gridGrowthPerLevel = gridGrowthPerLevel;
+		this.initialTimeLimit = initialTimeLimit;
+		this.timeDecreasePerLevel = timeDecreasePerLevel;
+		this.minTimeLimit = minTimeLimit;
+		this.initialObstacleCount = initialObstacleCount;
+		this.obstacleIncreasePerLevel = obstacleIncreasePerLevel;
+		this.initialPowerUpCount = initialPowerUpCount;
+		this.powerUpIncreasePerLevel = powerUpIncreasePerLevel;
+		this.powerUpDuration = powerUpDuration;
+		this.enemiesPerLevel = enemiesPerLevel;
+		this.fallingDebris = fallingDebris;
+	}
+
+	public Difficulty withGridGrowthPerLevel(int cells) {
+		return new Difficulty(initialGridWidth, initialGridHeight, cells, initialTimeLimit, timeDecreasePerLevel,
+				minTimeLimit, initialObstacleCount, obstacleIncreasePerLevel, initialPowerUpCount,
+				powerUpIncreasePerLevel, powerUpDuration, enemiesPerLevel, fallingDebris);
+	}
+
+	public Difficulty withTimeDecreasePerLevel(int millis) {
+		return new Difficulty(initialGridWidth, initialGridHeight, gridGrowthPerLevel, initialTimeLimit, millis,
+				minTimeLimit, initialObstacleCount, obstacleIncreasePerLevel, initialPowerUpCount,
+				powerUpIncreasePerLevel, powerUpDuration, enemiesPerLevel, fallingDebris);
+	}
+
+	public Difficulty withObstacleIncreasePerLevel(int obstacles) {
+		return new Difficulty(initialGridWidth, initialGridHeight, gridGrowthPerLevel, initialTimeLimit,
+				timeDecreasePerLevel, minTimeLimit, initialObstacleCount, obstacles, initialPowerUpCount,
+				powerUpIncreasePerLevel, powerUpDuration, enemiesPerLevel, fallingDebris);
+	}
+
+	/**
+	 * Returns a copy in which levels never run out of time, for endless play.
+	 */
+	public Difficulty withoutTimeLimit() {
+		return new Difficulty(initialGridWidth, initialGridHeight, gridGrowthPerLevel, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, initialObstacleCount, obstacleIncreasePerLevel, initialPowerUpCount,
+				powerUpIncreasePerLevel, powerUpDuration, enemiesPerLevel, fallingDebris);
+	}
+
+	/**
+	 * Returns a copy in which level {@code n} has {@code n * enemies} enemies
+	 * chasing the mole.
+	 */
+	public Difficulty withEnemiesPerLevel(int enemies) {
+		return new Difficulty(initialGridWidth, initialGridHeight, gridGrowthPerLevel, initialTimeLimit,
+				timeDecreasePerLevel, minTimeLimit, initialObstacleCount, obstacleIncreasePerLevel,
+				initialPowerUpCount, powerUpIncreasePerLevel, powerUpDuration, enemies, fallingDebris);
+	}
+
+	/**
+	 * Returns a copy in which rocks and loose soil fall into the tunnels
+	 * dug below them.
+	 */
+	public Difficulty withFallingDebris(boolean fallingDebris) {
+		return new Difficulty(initialGridWidth, initialGridHeight, gridGrowthPerLevel, initialTimeLimit,
+				timeDecreasePerLevel, minTimeLimit, initialObstacleCount, obstacleIncreasePerLevel,
+				initialPowerUpCount, powerUpIncreasePerLevel, powerUpDuration, enemiesPerLevel, fallingDebris);
+	}
+
+	public int gridWidth(int level) {
+		return initialGridWidth + level * gridGrowthPerLevel;
+	}
+
+	public int gridHeight(int level) {
+		return initialGridHeight + level * gridGrowthPerLevel;
+	}
+
+	public int obstacleCount(int level) {
+		return initialObstacleCount + level * obstacleIncreasePerLevel;
+	}
+
+	public int powerUpCount(int level) {
+		return initialPowerUpCount + level * powerUpIncreasePerLevel;
+	}
+
+	public int enemyCount(int level) {
+		return level * enemiesPerLevel;
+	}
+
+	public int getEnemiesPerLevel() {
+		return enemiesPerLevel;
+	}
+
+	public boolean hasFallingDebris() {
+		return fallingDebris;
+	}
+
+	/**
+	 * Returns the time limit of a level in milliseconds.
+	 */
+	public int timeLimit(int level) {
+		return Math.max(minTimeLimit, initialTimeLimit - level * timeDecreasePerLevel);
+	}
+
+	/**
+	 * Returns how long a speed boost lasts, in seconds.
+	 */
+	public int getPowerUpDuration() {
+		return powerUpDuration;
+	}
+
+	public int getInitialGridWidth() {
+		return initialGridWidth;
+	}
+
+	public int getInitialGridHeight() {
+		return initialGridHeight;
+	}
+
+	/**
+	 * Builds the given level of the game identified by {@code gameSeed}.
+	 */
+	public Level generate(LevelGenerator generator, long gameSeed, int level) {
+		return generator.generate(level, LevelGenerator.levelSeed(gameSeed, level), gridWidth(level),
+				gridHeight(level), obstacleCount(level), powerUpCount(level));
+	}
+
+	@Override
+	public String toString() {
+		return "grid " + initialGridWidth + "x" + initialGridHeight + " +" + gridGrowthPerLevel + "/level, time "
+				+ initialTimeLimit + "ms -" + timeDecreasePerLevel + "/level (min " + minTimeLimit + "), obstacles "
+				+ initialObstacleCount + " +" + obstacleIncreasePerLevel + "/level, power-ups " + initialPowerUpCount
+				+ " +" + powerUpIncreasePerLevel + "/level" + (enemiesPerLevel > 0 ? ", enemies +" + enemiesPerLevel
+						+ "/level" : "")
+				+ (fallingDebris ? ", falling debris" : "");
+	}
+}
@@ -0,0 +1,120 @@
+package game;
+
+/**
+ * Records which cells of a {@link WorldGrid} changed since the last drain.
+ *
+ * Changed cells are kept as a deduplicated list of indices so draining costs
+ * O(changed cells). Once more than its capacity of distinct cells are marked
+ * the region collapses to "everything dirty", which is what bulk operations
+ * such as world generation want anyway.
+ */
+public class DirtyRegion {
+	/** Default number of individual cells tracked before the whole grid is considered dirty. */
+	public static final int CAPACITY = 256;
+	/** Returned by {@link #drain(int[])} when the whole grid is dirty. */
+	public static final int ALL = -1;
+
+	private final int width;
+	private final int height;
+	private final long[] marked;
+	private final int[] cells;
+	private int count;
+	private boolean all;
+
+	public DirtyRegion(int width, int height) {
+		this(width, height, CAPACITY);
+	}
+
+	public DirtyRegion(int width, int height, int capacity) {
+		this.width = width;
+		this.height = height;
+		this.marked = new long[(width * height + 63) >>> 6];
+		this.cells = new int[capacity];
+	}
+
+	/**
+	 * Marks a single cell as changed.
+	 */
+	public synchronized void mark(int index) {
+		if (all) {
+			return;
+		}
+		long bit = 1L << index;
+		int word = index >>> 6;
+		if ((marked[word] & bit) != 0) {
+			return;
+		}
+		if (count == cells.length) {
+			markAllLocked();
+			return;
+		}
+		marked[word] |= bit;
+		cells[count++] = index;
+	}
+
+	/**
+	 * Marks a rectangle of cells, already clipped to the grid, as changed.
+	 */
+	public synchronized void markRect(int x, int y, int w, int h) {
+		if (all) {
+			return;
+		}
+		if (count + (long) w * h > cells.length) {
+			markAllLocked();
+			return;
+		}
+		for (int yy = y; yy < y + h; yy++) {
+			for (int xx = x; xx < x + w; xx++) {
+				mark(yy * width + xx);
+			}
+		}
+	}
+
+	public synchronized void markAll() {
+		markAllLocked();
+	}
+
+	public synchronized boolean isEmpty() {
+		return !all && count == 0;
+	}
+
+	/**
+	 * Copies the changed cell indices into {@code dest}, which must hold at
+	 * least {@link #getCapacity()} entries, and resets the region.
+	 *
+	 * @return the number of indices copied, or {@link #ALL} if the whole grid changed.
+	 */
+	public synchronized int drain(int[] dest) {
+		int drained = all ? ALL : count;
+		if (!all) {
+			System.arraycopy(cells, 0, dest, 0, count);
+		}
+		clearMarks();
+		all = false;
+		return drained;
+	}
+
+	public int getCapacity() {
+		return cells.length;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	private void markAllLocked() {
+		clearMarks();
+		all = true;
+	}
+
+	private void clearMarks() {
+		for (int i = 0; i < count; i++) {
+			marked[cells[i] >>> 6] = 0;
+		}
+		count = 0;
+	}
+}
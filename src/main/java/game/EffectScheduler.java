@@ -0,0 +1,189 @@
+package game;
+
+/**
+ * Runs timed effects (power-up durations, blinking cells and the like) on
+ * game ticks.
+ *
+ * A hashed timing wheel: timers hang off the slot their deadline falls in,
+ * modulo the wheel size, and each {@link #advance()} visits only the slot of
+ * the new tick. Scheduling and cancelling are O(1) and any number of effects
+ * share the game thread, with no thread or executor per effect. Time is game
+ * ticks, so effects stop while the game is paused and never run early after
+ * a stall.
+ *
+ * Instances are not thread-safe; effects run on the thread that calls
+ * {@link #advance()}.
+ */
+public class EffectScheduler {
+	/**
+	 * A reusable handle for one effect. A timer is pending in at most one
+	 * slot at a time; scheduling it again moves it.
+	 */
+	public static final class Timer {
+		private static final int IDLE = -1;
+		private static final int FIRING = -2;
+
+		private final Runnable action;
+		private long deadline;
+		// Wheel slot while pending, otherwise IDLE or FIRING
+		private int slot = IDLE;
+		private Timer prev;
+		private Timer next;
+		private Timer nextDue;
+		private EffectScheduler owner;
+
+		public Timer(Runnable action) {
+			this.action = action;
+		}
+
+		public boolean isPending() {
+			return slot >= 0;
+		}
+
+		/**
+		 * Returns the tick this timer fires at, if it is pending.
+		 */
+		public long getDeadline() {
+			return deadline;
+		}
+
+		/**
+		 * Stops the timer from firing. Returns false if it was not pending.
+		 */
+		public boolean cancel() {
+			if (slot == FIRING) {
+				// Due this tick but not run yet
+				slot = IDLE;
+				return true;
+			}
+			if (slot < 0) {
+				return false;
+			}
+			owner.unlink(this);
+			return true;
+		}
+	}
+
+	private final Timer[] slots;
+	private final int mask;
+	private long tick;
+	private int pending;
+
+	/**
+	 * @param wheelSize number of slots, rounded up to a power of two; delays
+	 *                  longer than this cost one skipped visit per lap
+	 */
+	public EffectScheduler(int wheelSize) {
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.slots = new Timer[size];
+		this.mask = size - 1;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the number of timers waiting to fire.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * Makes {@code timer} fire {@code delayTicks} ticks from now (at least one),
+	 * replacing any earlier schedule of it.
+	 */
+	public void schedule(Timer timer, long delayTicks) {
+		if (timer.slot >= 0) {
+			timer.owner.unlink(timer);
+		}
+		timer.deadline = tick + Math.max(1, delayTicks);
+		timer.slot = (int) (timer.deadline & mask);
+		timer.owner = this;
+		timer.prev = null;
+		timer.next = slots[timer.slot];
+		if (timer.next != null) {
+			timer.next.prev = timer;
+		}
+		slots[timer.slot] = timer;
+		pending++;
+		if (Metrics.ENABLED) {
+			Metrics.EFFECTS_SCHEDULED.increment();
+		}
+	}
+
+	/**
+	 * Schedules a one-off action and returns its timer.
+	 */
+	public Timer schedule(long delayTicks, Runnable action) {
+		Timer timer = new Timer(action);
+		schedule(timer, delayTicks);
+		return timer;
+	}
+
+	/**
+	 * Moves to the next tick and runs every timer due on it. Actions may
+	 * schedule or cancel timers, including their own.
+	 */
+	public void advance() {
+		tick++;
+		// Take the due timers out of the slot first, so actions can change the wheel freely
+		Timer due = null;
+		Timer timer = slots[(int) (tick & mask)];
+		while (timer != null) {
+			Timer next = timer.next;
+			if (timer.deadline == tick) {
+				unlink(timer);
+				timer.slot = Timer.FIRING;
+				timer.nextDue = due;
+				due = timer;
+			}
+			timer = next;
+		}
+		while (due != null) {
+			timer = due;
+			due = timer.nextDue;
+			timer.nextDue = null;
+			// Skip timers cancelled or rescheduled by an earlier action
+			if (timer.slot == Timer.FIRING) {
+				timer.slot = Timer.IDLE;
+				timer.action.run();
+			}
+		}
+	}
+
+	/**
+	 * Drops every pending timer without running it and restarts at tick zero.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length; i++) {
+			Timer timer = slots[i];
+			while (timer != null) {
+				Timer next = timer.next;
+				timer.slot = Timer.IDLE;
+				timer.prev = null;
+				timer.next = null;
+				timer = next;
+			}
+			slots[i] = null;
+		}
+		pending = 0;
+		tick = 0;
+	}
+
+	private void unlink(Timer timer) {
+		if (timer.prev != null) {
+			timer.prev.next = timer.next;
+		} else {
+			slots[timer.slot] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.prev = timer.prev;
+		}
+		timer.slot = Timer.IDLE;
+		timer.prev = null;
+		timer.next = null;
+		pending--;
+	}
+}
@@ -0,0 +1,87 @@
+package game;
+
+/**
+ * A world that goes down forever, seen through a fixed-size window.
+ *
+ * The window is an ordinary {@link WorldGrid} of a few chunks that the
+ * engine and renderer work on as usual. When the mole gets within
+ * {@link #MARGIN_CHUNKS} chunks of the bottom of the window, the window
+ * moves down one chunk: its chunks are saved back to the {@link ChunkCache}
+ * and it is refilled from the next range. Moving back up works the same
+ * way. Window rows are relative to {@link #getTopRow()}, so whoever keeps
+ * positions in window coordinates must shift them by what
+ * {@link #follow(int)} returns, including where the sky ends, which
+ * {@link GameEngine#scroll(int)} and {@link GridRenderer#scroll(int)} track.
+ */
+public class EndlessWorld {
+	public static final int MARGIN_CHUNKS = 2;
+
+	private final ChunkCache chunks;
+	private final WorldGrid window;
+	private final int windowChunks;
+	private final byte[] scratch;
+	private long topChunk;
+
+	/**
+	 * @param windowChunks how many chunks the window holds; at least
+	 *                     {@code 2 * MARGIN_CHUNKS + 2}, and fewer than the cache capacity
+	 */
+	public EndlessWorld(ChunkCache chunks, int width, int windowChunks) {
+		if (windowChunks < 2 * MARGIN_CHUNKS + 2 || windowChunks >= chunks.getCapacity()) {
+			throw new IllegalArgumentException("Window of " + windowChunks + " chunks does not fit a cache of "
+					+ chunks.getCapacity());
+		}
+		this.chunks = chunks;
+		this.windowChunks = windowChunks;
+		this.window = new WorldGrid(width, windowChunks * ChunkGenerator.CHUNK_ROWS);
+		this.scratch = new byte[width * ChunkGenerator.CHUNK_ROWS];
+		load();
+	}
+
+	public WorldGrid getWindow() {
+		return window;
+	}
+
+	/**
+	 * Returns the absolute row shown at the top of the window.
+	 */
+	public long getTopRow() {
+		return topChunk * ChunkGenerator.CHUNK_ROWS;
+	}
+
+	/**
+	 * Moves the window if the mole at window row {@code moleY} is too close
+	 * to its top or bottom.
+	 *
+	 * @return how many rows the window moved down (negative for up); window
+	 *         coordinates must be reduced by this much
+	 */
+	public int follow(int moleY) {
+		int moleChunk = moleY / ChunkGenerator.CHUNK_ROWS;
+		int step = 0;
+		if (moleChunk >= windowChunks - MARGIN_CHUNKS) {
+			step = 1;
+		} else if (moleChunk < MARGIN_CHUNKS && topChunk > 0) {
+			step = -1;
+		}
+		if (step == 0) {
+			return 0;
+		}
+		store();
+		topChunk += step;
+		load();
+		return step * ChunkGenerator.CHUNK_ROWS;
+	}
+
+	private void store() {
+		for (int i = 0; i < windowChunks; i++) {
+			chunks.store(topChunk + i, window, i * ChunkGenerator.CHUNK_ROWS, scratch);
+		}
+	}
+
+	private void load() {
+		for (int i = 0; i < windowChunks; i++) {
+			chunks.load(topChunk + i, window, i * ChunkGenerator.CHUNK_ROWS);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Enemies that chase the mole through the soil by following a shared
+ * {@link FlowField}.
+ *
+ * Enemies live in the world as {@link CellType#ENEMY} cells, so they are
+ * drawn and snapshotted like everything else; each one remembers the cell
+ * it is standing on and puts it back when it moves on. They burrow through
+ * soil without digging it, at a speed set by the field's cost of the cell
+ * they enter, and never share a cell. Each tick costs a few array reads per
+ * enemy whatever the size of the world.
+ *
+ * Instances are not thread-safe; the engine owns one.
+ */
+public class EnemySwarm {
+	private final int ticksPerStep;
+	private int count;
+	private int[] cells = new int[0];
+	private byte[] under = new byte[0];
+	private int[] wait = new int[0];
+	// The cells enemies moved off in the last advance
+	private int[] vacated = new int[0];
+	private int vacatedCount;
+
+	/**
+	 * @param ticksPerStep ticks an enemy takes to cross a tunnel cell;
+	 *                     entering soil takes a multiple of this
+	 */
+	public EnemySwarm(int ticksPerStep) {
+		this.ticksPerStep = Math.max(1, ticksPerStep);
+	}
+
+	/**
+	 * Removes every enemy from {@code world}, restoring the cells they stood on.
+	 */
+	public void clear(WorldGrid world) {
+		for (int i = count - 1; i >= 0; i--) {
+			if (world.get(cells[i]) == CellType.ENEMY) {
+				world.set(cells[i], under[i]);
+			}
+		}
+		count = 0;
+	}
+
+	/**
+	 * Places up to {@code enemies} enemies on soil cells the mole can be
+	 * reached from, at least {@code minDistance} travel time away from it.
+	 * Placement is derived from {@code seed} alone, so replays spawn the
+	 * same enemies.
+	 *
+	 * @return the number of enemies placed
+	 */
+	public int spawn(WorldGrid world, FlowField field, int enemies, long seed, int minDistance) {
+		if (cells.length < enemies) {
+			cells = new int[enemies];
+			under = new byte[enemies];
+			wait = new int[enemies];
+		}
+		count = 0;
+		SplittableRandom random = new SplittableRandom(seed);
+		// Give up after a fixed number of tries rather than loop on a crowded world
+		for (int tries = enemies * 20; tries > 0 && count < enemies; tries--) {
+			int cell = random.nextInt(world.size());
+			int distance = field.distance(cell);
+			if (world.get(cell) == CellType.SOIL && distance != FlowField.UNREACHABLE && distance >= minDistance) {
+				cells[count] = cell;
+				under[count] = CellType.SOIL;
+				wait[count] = ticksPerStep * field.cost(cell);
+				world.set(cell, CellType.ENEMY);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds an enemy at {@code cell} standing on {@code under}, as when
+	 * resuming a saved game. It moves again in {@code wait} ticks.
+	 */
+	public void add(WorldGrid world, int cell, byte under, int wait) {
+		if (count == cells.length) {
+			int size = Math.max(4, count * 2);
+			cells = Arrays.copyOf(cells, size);
+			this.under = Arrays.copyOf(this.under, size);
+			this.wait = Arrays.copyOf(this.wait, size);
+		}
+		cells[count] = cell;
+		this.under[count] = under;
+		this.wait[count] = Math.max(1, wait);
+		world.set(cell, CellType.ENEMY);
+		count++;
+	}
+
+	/**
+	 * Moves every enemy that is ready one cell closer to the mole at cell
+	 * {@code moleCell}.
+	 *
+	 * @return true if an enemy reached the mole
+	 */
+	public boolean advance(WorldGrid world, FlowField field, int moleCell) {
+		int width = world.getWidth();
+		int size = world.size();
+		boolean caught = false;
+		if (vacated.length < count) {
+			vacated = new int[cells.length];
+		}
+		vacatedCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (--wait[i] > 0) {
+				continue;
+			}
+			int cell = cells[i];
+			int x = cell % width;
+			// The free neighbor closest to the mole, if it is closer than here
+			int best = -1;
+			int bestDistance = field.distance(cell);
+			if (x > 0) {
+				int d = field.distance(cell - 1);
+				if (d < bestDistance && world.get(cell - 1) != CellType.ENEMY) {
+					best = cell - 1;
+					bestDistance = d;
+				}
+			}
+			if (x < width - 1) {
+				int d = field.distance(cell + 1);
+				if (d < bestDistance && world.get(cell + 1) != CellType.ENEMY) {
+					best = cell + 1;
+					bestDistance = d;
+				}
+			}
+			if (cell >= width) {
+				int d = field.distance(cell - width);
+				if (d < bestDistance && world.get(cell - width) != CellType.ENEMY) {
+					best = cell - width;
+					bestDistance = d;
+				}
+			}
+			if (cell < size - width) {
+				int d = field.distance(cell + width);
+				if (d < bestDistance && world.get(cell + width) != CellType.ENEMY) {
+					best = cell + width;
+				}
+			}
+			if (best < 0) {
+				// Cornered or queued behind another enemy; look again next tick
+				wait[i] = 1;
+				continue;
+			}
+			if (best == moleCell) {
+				caught = true;
+				wait[i] = 1;
+				continue;
+			}
+			world.set(cell, under[i]);
+			vacated[vacatedCount++] = cell;
+			under[i] = world.get(best);
+			world.set(best, CellType.ENEMY);
+			cells[i] = best;
+			wait[i] = ticksPerStep * field.cost(best);
+		}
+		return caught;
+	}
+
+	/**
+	 * Returns whether the mole dug through an enemy: an enemy whose cell no
+	 * longer shows it was overwritten by the mole's tunnel. Removes such
+	 * enemies.
+	 */
+	public boolean isOverrun(WorldGrid world) {
+		boolean overrun = false;
+		for (int i = count - 1; i >= 0; i--) {
+			if (world.get(cells[i]) != CellType.ENEMY) {
+				overrun = true;
+				count--;
+				cells[i] = cells[count];
+				under[i] = under[count];
+				wait[i] = wait[count];
+			}
+		}
+		return overrun;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns how many cells enemies moved off in the last {@link #advance}.
+	 */
+	public int getVacatedCount() {
+		return vacatedCount;
+	}
+
+	/**
+	 * Returns the index of the {@code i}th cell an enemy moved off in the last {@link #advance}.
+	 */
+	public int getVacated(int i) {
+		return vacated[i];
+	}
+
+	/**
+	 * Returns the cell index of enemy {@code i}.
+	 */
+	public int getCell(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * Returns the cell type enemy {@code i} is standing on.
+	 */
+	public byte getUnder(int i) {
+		return under[i];
+	}
+
+	/**
+	 * Returns how many ticks until enemy {@code i} moves again.
+	 */
+	public int getWait(int i) {
+		return wait[i];
+	}
+}
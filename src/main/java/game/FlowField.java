@@ -0,0 +1,373 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Travel times from every cell of a {@link WorldGrid} to the mole, shared
+ * by all enemies: an enemy chases the mole by stepping to whichever
+ * neighbor is closest, so any number of enemies cost one lookup each.
+ *
+ * Entering a tunnel costs one unit and entering soil costs more, since
+ * enemies have to burrow through it; obstacles and the sky are impassable.
+ * The field is a shortest-path tree rooted at the mole, kept as distances
+ * and parent links. When the mole moves or cells change, {@link #update()}
+ * repairs the tree instead of rebuilding it: cells whose route got cheaper
+ * are relaxed outward from the change, and cells whose route got dearer,
+ * found by following parent links down from the change, are cleared and
+ * refilled from the untouched cells around them. The work is proportional
+ * to the cells whose distance actually changes.
+ *
+ * Instances are not thread-safe; the engine owns one.
+ */
+public class FlowField {
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	// Cost of entering a cell; 0 marks cells that cannot be entered at all
+	private static final byte IMPASSABLE = 0;
+	private static final byte TUNNEL_COST = 1;
+
+	private final byte soilCost;
+	private int width;
+	private int size;
+	private byte[] cost = new byte[0];
+	private int[] dist = new int[0];
+	private int[] parent = new int[0];
+	private long[] heap = new long[0];
+	private int heapSize;
+	private int root = -1;
+	private int pendingRoot = -1;
+	// Cells whose cost changed since the last update, with the cost they had at the last update
+	private int[] changed = new int[0];
+	private int changedCount;
+	private byte[] previousCost = new byte[0];
+	private boolean[] isChanged = new boolean[0];
+	private int[] cleared = new int[0];
+	private int clearedCount;
+	private boolean[] isCleared = new boolean[0];
+	private int settled;
+
+	/**
+	 * @param soilCost how many times longer burrowing through a soil cell
+	 *                 takes than crossing a tunnel cell
+	 */
+	public FlowField(int soilCost) {
+		if (soilCost < 1 || soilCost > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Soil cost out of range: " + soilCost);
+		}
+		this.soilCost = (byte) soilCost;
+	}
+
+	/**
+	 * Returns the cost of entering a cell of the given type, or 0 if it
+	 * cannot be entered.
+	 */
+	public int costOf(byte type) {
+		switch (type) {
+			case CellType.TUNNEL:
+			case CellType.MOLE:
+			case CellType.GLOW_EFFECT:
+				return TUNNEL_COST;
+			case CellType.SOIL:
+			case CellType.POWER_UP:
+			case CellType.GOAL:
+				return soilCost;
+			default:
+				return IMPASSABLE;
+		}
+	}
+
+	/**
+	 * Rebuilds the whole field for {@code world} with the mole at cell
+	 * {@code rootIndex}, as when a level starts.
+	 */
+	public void reset(WorldGrid world, int rootIndex) {
+		width = world.getWidth();
+		size = world.size();
+		if (dist.length < size) {
+			cost = new byte[size];
+			dist = new int[size];
+			parent = new int[size];
+			heap = new long[size * 4 + 4];
+			changed = new int[size];
+			previousCost = new byte[size];
+			isChanged = new boolean[size];
+			cleared = new int[size];
+			isCleared = new boolean[size];
+		}
+		for (int i = 0; i < size; i++) {
+			cost[i] = (byte) costOf(world.get(i));
+		}
+		Arrays.fill(dist, 0, size, UNREACHABLE);
+		Arrays.fill(parent, 0, size, -1);
+		Arrays.fill(isChanged, 0, size, false);
+		changedCount = 0;
+		heapSize = 0;
+		settled = 0;
+		root = rootIndex;
+		pendingRoot = rootIndex;
+		dist[root] = 0;
+		push(root, 0);
+		propagate();
+	}
+
+	/**
+	 * Moves the root of the field to cell {@code index}, where the mole is
+	 * now. Takes effect on the next {@link #update()}.
+	 */
+	public void setRoot(int index) {
+		pendingRoot = index;
+	}
+
+	/**
+	 * Records that cell {@code index} now holds {@code type}. Takes effect
+	 * on the next {@link #update()}.
+	 */
+	public void cellChanged(int index, byte type) {
+		byte next = (byte) costOf(type);
+		if (next == cost[index]) {
+			return;
+		}
+		if (!isChanged[index]) {
+			isChanged[index] = true;
+			previousCost[index] = cost[index];
+			changed[changedCount++] = index;
+		}
+		cost[index] = next;
+	}
+
+	/**
+	 * Brings the field up to date with the root and cells changed since the
+	 * last update.
+	 *
+	 * @return the number of cells whose distance was recomputed
+	 */
+	public int update() {
+		settled = 0;
+		int oldRoot = root;
+		root = pendingRoot;
+
+		// Routes that got cheaper: spread the improvement outward
+		if (root != oldRoot) {
+			dist[root] = 0;
+			parent[root] = -1;
+			push(root, 0);
+		}
+		for (int i = 0; i < changedCount; i++) {
+			int cell = changed[i];
+			if (isCheaper(previousCost[cell], cost[cell])) {
+				if (dist[cell] == UNREACHABLE) {
+					// Newly passable: take the best route through a neighbor
+					seed(cell);
+				} else {
+					// Cheaper to enter, so its neighbors may now route through it
+					push(cell, dist[cell]);
+				}
+			}
+		}
+		propagate();
+
+		// Routes that got dearer: clear every cell whose route ran through a change
+		clearedCount = 0;
+		if (root != oldRoot && oldRoot >= 0 && parent[oldRoot] == -1 && !isCleared[oldRoot]) {
+			clear(oldRoot);
+		}
+		for (int i = 0; i < changedCount; i++) {
+			int cell = changed[i];
+			isChanged[cell] = false;
+			byte before = previousCost[cell];
+			if (before == cost[cell] || isCheaper(before, cost[cell])) {
+				continue;
+			}
+			if (cost[cell] == IMPASSABLE) {
+				if (!isCleared[cell]) {
+					clear(cell);
+				}
+			} else {
+				// Entering it costs more, which only matters to the cells routed through it
+				clearChildrenOf(cell);
+			}
+		}
+		changedCount = 0;
+		// The cleared list doubles as the queue of the walk down the tree
+		for (int i = 0; i < clearedCount; i++) {
+			clearChildrenOf(cleared[i]);
+		}
+		// Refill the cleared cells from the intact cells around them
+		for (int i = 0; i < clearedCount; i++) {
+			isCleared[cleared[i]] = false;
+		}
+		for (int i = 0; i < clearedCount; i++) {
+			seed(cleared[i]);
+		}
+		propagate();
+		return settled;
+	}
+
+	private static boolean isCheaper(byte before, byte after) {
+		return after != IMPASSABLE && (before == IMPASSABLE || after < before);
+	}
+
+	private void clearChildrenOf(int cell) {
+		int x = cell % width;
+		if (x > 0) {
+			clearIfChild(cell - 1, cell);
+		}
+		if (x < width - 1) {
+			clearIfChild(cell + 1, cell);
+		}
+		if (cell >= width) {
+			clearIfChild(cell - width, cell);
+		}
+		if (cell < size - width) {
+			clearIfChild(cell + width, cell);
+		}
+	}
+
+	private void clearIfChild(int cell, int of) {
+		if (parent[cell] == of && !isCleared[cell]) {
+			clear(cell);
+		}
+	}
+
+	private void clear(int cell) {
+		isCleared[cell] = true;
+		dist[cell] = UNREACHABLE;
+		parent[cell] = -1;
+		cleared[clearedCount++] = cell;
+	}
+
+	/**
+	 * Gives a passable cell the best distance offered by its neighbors.
+	 */
+	private void seed(int cell) {
+		if (cost[cell] == IMPASSABLE || cell == root) {
+			return;
+		}
+		int x = cell % width;
+		if (x > 0) {
+			offer(cell, cell - 1);
+		}
+		if (x < width - 1) {
+			offer(cell, cell + 1);
+		}
+		if (cell >= width) {
+			offer(cell, cell - width);
+		}
+		if (cell < size - width) {
+			offer(cell, cell + width);
+		}
+	}
+
+	private void offer(int cell, int via) {
+		if (dist[via] != UNREACHABLE && cost[via] != IMPASSABLE) {
+			int d = dist[via] + cost[via];
+			if (d < dist[cell]) {
+				dist[cell] = d;
+				parent[cell] = via;
+				push(cell, d);
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra from the queued cells, only ever lowering distances.
+	 */
+	private void propagate() {
+		while (heapSize > 0) {
+			long top = heap[0];
+			pop();
+			int cell = (int) top;
+			int d = (int) (top >>> 32);
+			if (d != dist[cell]) {
+				continue; // Stale entry
+			}
+			settled++;
+			int next = d + cost[cell];
+			int x = cell % width;
+			if (x > 0) {
+				relax(cell - 1, cell, next);
+			}
+			if (x < width - 1) {
+				relax(cell + 1, cell, next);
+			}
+			if (cell >= width) {
+				relax(cell - width, cell, next);
+			}
+			if (cell < size - width) {
+				relax(cell + width, cell, next);
+			}
+		}
+	}
+
+	private void relax(int cell, int via, int d) {
+		if (d < dist[cell] && cost[cell] != IMPASSABLE) {
+			dist[cell] = d;
+			parent[cell] = via;
+			push(cell, d);
+		}
+	}
+
+	/**
+	 * Returns the travel time from cell {@code index} to the mole, or
+	 * {@link #UNREACHABLE}.
+	 */
+	public int distance(int index) {
+		return dist[index];
+	}
+
+	/**
+	 * Returns the cost of entering cell {@code index}, or 0 if it cannot be
+	 * entered.
+	 */
+	public int cost(int index) {
+		return cost[index];
+	}
+
+	public int getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns how many cells the last {@link #update()} or {@link #reset}
+	 * recomputed.
+	 */
+	public int getSettled() {
+		return settled;
+	}
+
+	private void push(int cell, int priority) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		long entry = ((long) priority << 32) | cell;
+		int i = heapSize++;
+		while (i > 0) {
+			int up = (i - 1) >>> 1;
+			if (heap[up] <= entry) {
+				break;
+			}
+			heap[i] = heap[up];
+			i = up;
+		}
+		heap[i] = entry;
+	}
+
+	private void pop() {
+		long last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[child] >= last) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+	}
+}
@@ -0,0 +1,98 @@
+package game;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-timestep clock for the game loop.
+ *
+ * Elapsed monotonic time is accumulated and handed out as whole logical
+ * ticks, so the simulation always advances in steps of exactly
+ * {@link #getTickNanos()} no matter how irregularly the loop wakes up.
+ * Time spent paused is never turned into ticks.
+ */
+public class GameClock {
+	private final long tickNanos;
+	private final LongSupplier nanoTime;
+	private long lastNanos;
+	private long accumulator;
+	private boolean paused;
+
+	public GameClock(int ticksPerSecond) {
+		this(ticksPerSecond, System::nanoTime);
+	}
+
+	/**
+	 * @param nanoTime monotonic time source in nanoseconds
+	 */
+	public GameClock(int ticksPerSecond, LongSupplier nanoTime) {
+		if (ticksPerSecond <= 0) {
+			throw new IllegalArgumentException("Tick rate must be positive: " + ticksPerSecond);
+		}
+		this.tickNanos = 1_000_000_000L / ticksPerSecond;
+		this.nanoTime = nanoTime;
+		start();
+	}
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * Restarts the clock with no ticks due.
+	 */
+	public void start() {
+		lastNanos = nanoTime.getAsLong();
+		accumulator = 0;
+		paused = false;
+	}
+
+	/**
+	 * Returns the number of whole ticks that elapsed since the previous call
+	 * and consumes them.
+	 */
+	public int advance() {
+		if (paused) {
+			return 0;
+		}
+		long now = nanoTime.getAsLong();
+		accumulator += now - lastNanos;
+		lastNanos = now;
+		long due = accumulator / tickNanos;
+		accumulator -= due * tickNanos;
+		return (int) Math.min(due, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns how long the loop can sleep before the next tick is due.
+	 */
+	public long nanosUntilNextTick() {
+		if (paused) {
+			return tickNanos;
+		}
+		long pending = accumulator + (nanoTime.getAsLong() - lastNanos);
+		return Math.max(0, tickNanos - pending);
+	}
+
+	/**
+	 * Stops turning time into ticks. Time elapsed before the pause is kept.
+	 */
+	public void pause() {
+		if (!paused) {
+			long now = nanoTime.getAsLong();
+			accumulator += now - lastNanos;
+			lastNanos = now;
+			paused = true;
+		}
+	}
+
+	public void resume() {
+		if (paused) {
+			lastNanos = nanoTime.getAsLong();
+			paused = false;
+		}
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+}
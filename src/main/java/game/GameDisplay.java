@@ -0,0 +1,93 @@
+package game;
+
+/**
+ * Where the game is shown: a Swing window ({@link GameGraphics}) or a
+ * terminal ({@link TerminalDisplay}).
+ *
+ * The game thread publishes world changes through {@link #repaintDirty()}
+ * once per tick; everything else is status and dialogs. Key presses reach
+ * the game through the {@link utils.InputHandler} the display was created
+ * with, whatever the backend.
+ */
+public interface GameDisplay {
+	/**
+	 * Switches to a new world, as when a level starts. The whole world is
+	 * drawn on the next {@link #repaintDirty()}.
+	 */
+	void setWorld(WorldGrid world);
+
+	/**
+	 * Keeps the mole at cell ({@code x}, {@code y}) in view. Call on the game
+	 * thread before {@link #repaintDirty()}.
+	 */
+	void followMole(int x, int y);
+
+	/**
+	 * Keeps the view steady after the world's rows moved up by {@code rows}
+	 * (down if negative), as when an endless world scrolls its window.
+	 */
+	void scrollWorld(int rows);
+
+	/**
+	 * Draws the cells that changed in the world since the last call. Only
+	 * the game thread may call this.
+	 */
+	void repaintDirty();
+
+	void zoomIn();
+
+	void zoomOut();
+
+	/**
+	 * Shows or hides the metrics overlay. Does nothing unless metrics are
+	 * enabled.
+	 */
+	void toggleMetricsOverlay();
+
+	void updateScore(int newScore);
+
+	void updateTimer(long secondsRemaining);
+
+	void updateTitle(String title);
+
+	/**
+	 * Shows a short notification. Returns immediately; the message goes
+	 * away on its own.
+	 */
+	void showMessage(String message);
+
+	default void showPowerUpEffect() {
+		showMessage("Power-Up Activated!");
+	}
+
+	/**
+	 * Shows the pause screen with a hint line. Does not block; the caller
+	 * decides when to call {@link #hidePauseScreen()}.
+	 */
+	void showPauseScreen(String message);
+
+	void hidePauseScreen();
+
+	default void showGameOverScreen(int finalScore) {
+		showGameOverScreen(finalScore, null);
+	}
+
+	/**
+	 * Shows the final score, with the high score table below it if
+	 * {@code highScores} is not null.
+	 */
+	void showGameOverScreen(int finalScore, String highScores);
+
+	/**
+	 * Asks the player a question and returns the answer, or null if there
+	 * was none.
+	 */
+	String showInputDialog(String message);
+
+	void showError(String message);
+
+	/**
+	 * Releases the screen: closes the window or gives the terminal back.
+	 */
+	void dispose();
+}
@@ -0,0 +1,398 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rules of the mole game, independent of any display.
+ *
+ * The engine owns the state of the level being played and advances it one
+ * move or one fixed tick at a time. It knows nothing about Swing, wall-clock
+ * time or where moves come from: the interactive game feeds it keys drained
+ * from the keyboard on a real-time clock, while simulations feed it keys
+ * from an {@link Agent} as fast as they can.
+ */
+public class GameEngine {
+	public static final int TICKS_PER_SECOND = 60;
+	public static final int RUNNING = 0;
+	public static final int WON = 1;
+	public static final int LOST = 2;
+	// Cells covered by one key press while a speed boost is active
+	public static final int BOOST_DISTANCE = 2;
+	// Covers a few seconds of ticks per lap; longer effects just wait extra laps
+	private static final int EFFECT_WHEEL_SLOTS = 256;
+	private static final int HIGHLIGHT_BLINKS = 3;
+	private static final int HIGHLIGHT_TICKS = TICKS_PER_SECOND / 5;
+	// Enemies cross ten tunnel cells a second and burrow through soil at a quarter of that
+	private static final int ENEMY_TICKS_PER_STEP = TICKS_PER_SECOND / 10;
+	private static final int ENEMY_SOIL_COST = 4;
+	// Enemies start at least this far from the mole, in tunnel cells of travel
+	private static final int ENEMY_MIN_DISTANCE = 15 * ENEMY_SOIL_COST;
+	private static final long ENEMY_SEED_SALT = 0x656e656d79L;
+
+	private final Difficulty difficulty;
+	private final GameListener listener;
+	private final MoveResolver mover = new MoveResolver(Level.SKY_HEIGHT);
+
+	private Level level;
+	private WorldGrid world;
+	private int moleX;
+	private int moleY;
+	private int moves;
+	private long tick;
+	private boolean boosted;
+	private final EffectScheduler effects = new EffectScheduler(EFFECT_WHEEL_SLOTS);
+	private final EffectScheduler.Timer boostTimer = new EffectScheduler.Timer(() -> boosted = false);
+	// Blinking cells, which move with the world when it scrolls
+	private final List<BlinkEffect> blinks = new ArrayList<>();
+	// Window row the soil starts on; negative once the sky scrolled out of view
+	private int skyBottom;
+	// Distances to the mole shared by all enemies, kept only while there are enemies
+	private final FlowField chaseField = new FlowField(ENEMY_SOIL_COST);
+	private final EnemySwarm enemies = new EnemySwarm(ENEMY_TICKS_PER_STEP);
+	private boolean chased;
+	// Rocks and loose soil falling into tunnels, simulated only when the difficulty asks for it
+	private final SoilPhysics physics = new SoilPhysics();
+	private boolean collapsing;
+	private long timeLimitTicks;
+	private int score;
+	private int status = LOST;
+
+	public GameEngine(Difficulty difficulty, GameListener listener) {
+		this.difficulty = difficulty;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts playing {@code level}. The score carries over from earlier levels.
+	 */
+	public void startLevel(Level level) {
+		begin(level);
+		if (chased) {
+			chaseField.reset(world, world.index(moleX, moleY));
+			enemies.spawn(world, chaseField, difficulty.enemyCount(level.getNumber()),
+					level.getSeed() ^ ENEMY_SEED_SALT, ENEMY_MIN_DISTANCE);
+		}
+		if (collapsing) {
+			physics.reset(world);
+		}
+	}
+
+	/**
+	 * Carries on playing {@code level}, whose world holds the cells saved
+	 * with {@code state}, from where {@link #saveState()} left it.
+	 */
+	public void resumeLevel(Level level, SaveGame.State state) {
+		begin(level);
+		this.moleX = state.moleX;
+		this.moleY = state.moleY;
+		this.moves = state.moves;
+		this.tick = state.tick;
+		this.score = state.score;
+		// A save taken mid-blink holds the glow instead of the mole
+		world.set(moleX, moleY, CellType.MOLE);
+		if (state.boostTicks > 0) {
+			boosted = true;
+			effects.schedule(boostTimer, state.boostTicks);
+		}
+		// The field is built under the enemies, as when the level started, so they are lifted off first
+		for (int i = 0; i < state.enemyCells.length; i++) {
+			world.set(state.enemyCells[i], state.enemyUnder[i]);
+		}
+		if (chased) {
+			chaseField.reset(world, world.index(moleX, moleY));
+			for (int i = 0; i < state.enemyCells.length; i++) {
+				enemies.add(world, state.enemyCells[i], state.enemyUnder[i], state.enemyWait[i]);
+			}
+		}
+		if (collapsing) {
+			physics.reset(world);
+			// Debris that was still falling carries on
+			physics.activate(state.activeCells);
+		}
+	}
+
+	private void begin(Level level) {
+		if (world != null) {
+			enemies.clear(world);
+		}
+		this.level = level;
+		this.world = level.getWorld();
+		this.moleX = level.getStartX();
+		this.moleY = level.getStartY(); // Start just below sky
+		this.moves = 0;
+		this.tick = 0;
+		this.boosted = false;
+		// Effects of the previous level die with its world
+		effects.clear();
+		blinks.clear();
+		this.skyBottom = Level.SKY_HEIGHT;
+		mover.setSkyHeight(skyBottom);
+		this.timeLimitTicks = (long) difficulty.timeLimit(level.getNumber()) * TICKS_PER_SECOND / 1000;
+		this.status = RUNNING;
+		this.chased = difficulty.enemyCount(level.getNumber()) > 0;
+		this.collapsing = difficulty.hasFallingDebris();
+	}
+
+	/**
+	 * Returns everything besides the cells of the world needed to resume
+	 * the level later. Costs a few small array copies.
+	 */
+	public SaveGame.State saveState() {
+		long boostTicks = boostTimer.isPending() ? boostTimer.getDeadline() - effects.getTick() : 0;
+		int[] enemyCells = new int[enemies.size()];
+		byte[] enemyUnder = new byte[enemyCells.length];
+		int[] enemyWait = new int[enemyCells.length];
+		for (int i = 0; i < enemyCells.length; i++) {
+			enemyCells[i] = enemies.getCell(i);
+			enemyUnder[i] = enemies.getUnder(i);
+			enemyWait[i] = enemies.getWait(i);
+		}
+		int[] activeCells = collapsing ? physics.getActiveCells() : new int[0];
+		return new SaveGame.State(level, difficulty, moleX, moleY, moves, tick, score, boostTicks, enemyCells,
+				enemyUnder, enemyWait, activeCells);
+	}
+
+	/**
+	 * Advances game time by one tick, runs the timed effects due on it and
+	 * checks the time limit.
+	 *
+	 * @return the level status after the tick
+	 */
+	public int tick() {
+		if (status != RUNNING) {
+			return status;
+		}
+		tick++;
+		effects.advance();
+		if (collapsing) {
+			collapse();
+		}
+		if (chased && chaseEnemies()) {
+			status = LOST;
+			listener.onCaught(level);
+			return status;
+		}
+		// Check if time is up
+		if (tick > timeLimitTicks) {
+			status = LOST;
+			listener.onTimeUp(level);
+		}
+		return status;
+	}
+
+	/**
+	 * Applies one key press. Keys other than w, a, s and d are ignored.
+	 *
+	 * @return the level status after the move
+	 */
+	public int move(char key) {
+		if (status != RUNNING) {
+			return status;
+		}
+		int steps = isBoosted() ? BOOST_DISTANCE : 1;
+		switch (mover.resolve(world, moleX, moleY, key, steps)) {
+			case MoveResolver.MOVED:
+				break;
+			case MoveResolver.INTO_SKY:
+				listener.onMessage("You can't dig in the sky!");
+				return status;
+			case MoveResolver.BLOCKED:
+				listener.onMessage(steps > 1
+						? "You can't dig through obstacles, even with a power-up!"
+						: "You hit an obstacle!");
+				return status;
+			default:
+				return status;
+		}
+
+		// Update position and increment moves
+		int fromX = moleX;
+		int fromY = moleY;
+		moleX = mover.getX();
+		moleY = mover.getY();
+		moves++;
+		byte blockType = mover.getTarget();
+
+		if (chased && enemies.isOverrun(world)) {
+			status = LOST;
+			listener.onCaught(level);
+			return status;
+		}
+		if (chased || collapsing) {
+			reportDug(fromX, fromY);
+		}
+
+		// Handle power-up
+		if (blockType == CellType.POWER_UP) {
+			// Another power-up while boosted restarts the duration
+			boosted = true;
+			effects.schedule(boostTimer, (long) difficulty.getPowerUpDuration() * TICKS_PER_SECOND);
+			listener.onPowerUp(moleX, moleY);
+		}
+
+		// Handle goal
+		if (blockType == CellType.GOAL) {
+			score += 100 * level.getNumber();
+			status = WON;
+			listener.onLevelWon(level, moves, tick);
+		}
+		return status;
+	}
+
+	/**
+	 * Tells the chase field and the soil physics about the tunnel just dug
+	 * from ({@code fromX}, {@code fromY}) to the mole. Both catch up once per
+	 * tick, however many moves there were.
+	 */
+	private void reportDug(int fromX, int fromY) {
+		int stride = Integer.signum(moleX - fromX) + Integer.signum(moleY - fromY) * world.getWidth();
+		int to = world.index(moleX, moleY);
+		for (int cell = world.index(fromX, fromY); cell != to; cell += stride) {
+			if (chased) {
+				chaseField.cellChanged(cell, world.get(cell));
+			}
+			if (collapsing) {
+				physics.disturb(cell);
+			}
+		}
+		if (chased) {
+			chaseField.cellChanged(to, world.get(to));
+			chaseField.setRoot(to);
+		}
+	}
+
+	/**
+	 * Lets unsupported debris fall one cell and tells the chase field which
+	 * cells it filled and uncovered.
+	 */
+	private void collapse() {
+		if (physics.step() > 0 && chased) {
+			for (int i = physics.getChangedCount() - 1; i >= 0; i--) {
+				int cell = physics.getChanged(i);
+				chaseField.cellChanged(cell, world.get(cell));
+			}
+		}
+	}
+
+	/**
+	 * Brings the chase field up to date and moves the enemies along it.
+	 * Debris resting on an enemy is woken once the enemy moves on.
+	 *
+	 * @return true if an enemy caught the mole
+	 */
+	private boolean chaseEnemies() {
+		chaseField.update();
+		boolean caught = enemies.advance(world, chaseField, world.index(moleX, moleY));
+		if (collapsing) {
+			for (int i = enemies.getVacatedCount() - 1; i >= 0; i--) {
+				physics.disturb(enemies.getVacated(i));
+			}
+		}
+		return caught;
+	}
+
+	/**
+	 * Adjusts the mole's position after the world scrolled down by
+	 * {@code rows} rows (up if negative), as an {@link EndlessWorld} does.
+	 */
+	public void scroll(int rows) {
+		moleY -= rows;
+		skyBottom -= rows;
+		mover.setSkyHeight(Math.max(0, skyBottom));
+		for (int i = blinks.size() - 1; i >= 0; i--) {
+			BlinkEffect blink = blinks.get(i);
+			blink.scroll(rows);
+			if (!blink.isActive()) {
+				blinks.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Makes the cell at ({@code x}, {@code y}) blink for a moment.
+	 */
+	public void highlight(int x, int y) {
+		if (world.inBounds(x, y)) {
+			blinks.removeIf(blink -> !blink.isActive());
+			BlinkEffect blink = new BlinkEffect(effects, world, x, y, HIGHLIGHT_BLINKS, HIGHLIGHT_TICKS);
+			blink.start();
+			blinks.add(blink);
+		}
+	}
+
+	/**
+	 * Returns the enemies of the current level.
+	 */
+	public EnemySwarm getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * Returns the distances to the mole the enemies follow. Only kept up to
+	 * date on levels with enemies.
+	 */
+	public FlowField getChaseField() {
+		return chaseField;
+	}
+
+	/**
+	 * Returns the falling debris simulation. Only kept up to date on levels
+	 * with falling debris.
+	 */
+	public SoilPhysics getPhysics() {
+		return physics;
+	}
+
+	public boolean isBoosted() {
+		return boosted;
+	}
+
+	/**
+	 * Returns the scheduler for timed effects of the current level. It runs
+	 * on game ticks, so effects freeze while the game is paused.
+	 */
+	public EffectScheduler getEffects() {
+		return effects;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Level getLevel() {
+		return level;
+	}
+
+	public WorldGrid getWorld() {
+		return world;
+	}
+
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	public int getMoleX() {
+		return moleX;
+	}
+
+	public int getMoleY() {
+		return moleY;
+	}
+
+	public int getMoves() {
+		return moves;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public long getRemainingTicks() {
+		return timeLimitTicks - tick;
+	}
+
+	public int getScore() {
+		return score;
+	}
+}
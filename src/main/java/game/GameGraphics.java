@@ -2,6 +2,7 @@ package game;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import utils.InputHandler;
 import java.awt.Dimension;
 import java.awt.GraphicsEnvironment;
@@ -10,26 +11,65 @@ import java.awt.Rectangle;
 /**
  * Handles rendering for the mole game using Swing and AWT.
  */
-public class GameGraphics extends JPanel {
+public class GameGraphics extends JPanel implements GameDisplay {
 	private JFrame frame;
 	private int width;
 	private int blockSize;
 	private int height;
-	private Color[][] grid;
-	private int score;
-	private long timer;
-	private boolean isPaused = false;
+	private volatile WorldGrid world;
+	// Copies of the world published by the game thread for the painting thread
+	private final WorldSnapshots frames = new WorldSnapshots();
+	private volatile int score;
+	private volatile long timer;
+	private volatile boolean isPaused = false;
+	private volatile String pauseMessage = "";
+	private final Notifications notifications = new Notifications();
+	private final javax.swing.Timer notificationFader;
+	private final int notificationBandHeight;
 	private JLabel timerLabel;
 	private InputHandler inputHandler;
+	// Game thread only, like the camera bookkeeping below
+	private final int[] dirtyCells = new int[DirtyRegion.CAPACITY];
+	private final GridRenderer renderer;
+	private final ActiveRenderer activeRenderer;
+	private final Rectangle activeClip = new Rectangle();
+	// Scroll and zoom, moved on the game thread and read when painting through its volatile view
+	private final Camera camera;
+	private boolean snapCamera = true;
+	private boolean cameraMoved;
+	private final Rectangle worldClip = new Rectangle();
+	private volatile boolean metricsOverlay;
+	private final javax.swing.Timer metricsRefresher;
+
+	private static final Font STATUS_FONT = new Font("Arial", Font.BOLD, 14);
+	private static final Font PAUSE_FONT = STATUS_FONT.deriveFont(Font.BOLD, 36f);
+	private static final int NOTIFICATION_TOP = 30;
+	private static final int STATUS_BAR_HEIGHT = 40;
+	private static final int FADE_FRAME_MILLIS = 33;
+	private static final int METRICS_REFRESH_MILLIS = 250;
+	private static final int METRICS_LINE_HEIGHT = 16;
+
+	public GameGraphics(WorldGrid world, int blockSize, InputHandler inputHandler) {
+		this(world, blockSize, inputHandler, 0);
+	}
 
-	public GameGraphics(int width, int height, int blockSize, InputHandler inputHandler) {
-		this.width = width;
-		this.height = height;
+	/**
+	 * Creates the game window.
+	 *
+	 * @param activeFps when positive, frames are drawn by a dedicated render
+	 *                  thread into a triple-buffered {@link ActiveRenderer}
+	 *                  capped at this rate; when zero, Swing paints passively
+	 */
+	public GameGraphics(WorldGrid world, int blockSize, InputHandler inputHandler, int activeFps) {
+		this.world = world;
+		this.width = world.getWidth();
+		this.height = world.getHeight();
 		this.blockSize = blockSize;
+		frames.publish(world);
 		this.inputHandler = inputHandler;
-
-		// Initialize grid
-		this.grid = new Color[width][height];
+		this.renderer = new GridRenderer(blockSize, Level.SKY_HEIGHT);
+		this.camera = new Camera(blockSize);
+		camera.setWorldSize(width, height);
 
 		// Set layout
 		setLayout(new BorderLayout());
@@ -40,10 +80,32 @@ public class GameGraphics extends JPanel {
 
 		// Set panel properties
 		setBackground(Color.WHITE);
-		setPreferredSize(new Dimension(width * blockSize, height * blockSize + 40));
+		setPreferredSize(preferredSize(width, height));
 		setFocusable(true);
 		addKeyListener(inputHandler);
 
+		if (activeFps > 0) {
+			this.activeRenderer = new ActiveRenderer(this::renderActiveFrame, activeFps, 3);
+			Canvas canvas = activeRenderer.getCanvas();
+			canvas.setFocusable(true);
+			canvas.addKeyListener(inputHandler);
+			add(canvas, BorderLayout.CENTER);
+		} else {
+			this.activeRenderer = null;
+		}
+
+		// Passive painting needs a timer to animate notifications as they fade out
+		this.notificationBandHeight = Notifications.bandHeight(getFontMetrics(Notifications.getFont()));
+		this.notificationFader = new javax.swing.Timer(FADE_FRAME_MILLIS, e -> {
+			repaint(0, NOTIFICATION_TOP, getWidth(), notificationBandHeight);
+			if (notifications.activeCount(System.nanoTime()) == 0) {
+				((javax.swing.Timer) e.getSource()).stop();
+			}
+		});
+
+		// The overlay shows live numbers, so passive painting refreshes it on a timer
+		this.metricsRefresher = new javax.swing.Timer(METRICS_REFRESH_MILLIS, e -> repaint());
+
 		// Initialize frame
 		this.frame = new JFrame("Mole Game");
 		this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -55,7 +117,7 @@ public class GameGraphics extends JPanel {
 
 		// Set the frame size to fit within usable bounds
 		int frameWidth = Math.min(width * blockSize, usableBounds.width);
-		int frameHeight = Math.min(height * blockSize + 40, usableBounds.height);
+		int frameHeight = Math.min(height * blockSize + STATUS_BAR_HEIGHT, usableBounds.height);
 		this.frame.setSize(frameWidth, frameHeight);
 
 		// Maximize the frame (will respect usable bounds)
@@ -63,23 +125,176 @@ public class GameGraphics extends JPanel {
 
 		this.frame.setLocationRelativeTo(null);
 		this.frame.setVisible(true);
+		renderer.setGraphicsConfiguration(getGraphicsConfiguration());
 
 		// Request focus
-		requestFocusInWindow();
+		if (activeRenderer != null) {
+			activeRenderer.getCanvas().requestFocusInWindow();
+			activeRenderer.start();
+		} else {
+			requestFocusInWindow();
+		}
 
 		// Initial repaint
 		repaint();
 	}
 
-	public void resizeGrid(int newWidth, int newHeight) {
-		this.width = newWidth;
-		this.height = newHeight;
-		this.grid = new Color[width][height];
-		this.setPreferredSize(new Dimension(width * blockSize, height * blockSize + 40));
+	/**
+	 * Returns the panel size for a world: the whole grid if it fits on
+	 * screen, otherwise the screen, with the camera scrolling over the rest.
+	 */
+	private Dimension preferredSize(int cellsWide, int cellsHigh) {
+		Rectangle usable = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+		return new Dimension(Math.min(cellsWide * blockSize, usable.width),
+				Math.min(cellsHigh * blockSize + STATUS_BAR_HEIGHT, usable.height));
+	}
+
+	/**
+	 * Switches rendering to a new world, resizing the panel to fit it. The
+	 * camera jumps to the next position passed to {@link #followMole(int, int)}.
+	 */
+	@Override
+	public void setWorld(WorldGrid world) {
+		this.world = world;
+		this.width = world.getWidth();
+		this.height = world.getHeight();
+		this.setPreferredSize(preferredSize(width, height));
 		frame.pack();
+		camera.setWorldSize(width, height);
+		snapCamera = true;
+		renderer.setGraphicsConfiguration(getGraphicsConfiguration());
+		renderer.resetScroll();
+		world.getDirtyRegion().drain(dirtyCells);
+		frames.publish(world);
 		repaint();
 	}
 
+	/**
+	 * Schedules a repaint of only the cells that changed in the world since
+	 * the last call. Swing coalesces the per-cell requests into the union of
+	 * the changed tiles, so a single move repaints a handful of cells instead
+	 * of the whole grid. Changes are first published as a new snapshot, which
+	 * is what gets painted, so only the game thread may call this.
+	 */
+	@Override
+	public void repaintDirty() {
+		int count = world.getDirtyRegion().drain(dirtyCells);
+		boolean moved = cameraMoved;
+		cameraMoved = false;
+		if (count == 0 && !moved) {
+			return;
+		}
+		if (count != 0) {
+			frames.publish(world, dirtyCells, count);
+			if (Metrics.ENABLED) {
+				Metrics.CELLS_REPAINTED.add(count == DirtyRegion.ALL ? (long) width * height : count);
+				Metrics.framePublished();
+			}
+		}
+		if (activeRenderer != null) {
+			// The render thread redraws every frame anyway
+			return;
+		}
+		if (count == DirtyRegion.ALL || moved) {
+			// Everything on screen shifted; that is still only one screenful
+			repaint(0, 0, getWidth(), viewportHeight());
+			return;
+		}
+		long view = camera.getView();
+		double zoom = Camera.zoom(view);
+		int offsetX = Camera.offsetX(view);
+		int offsetY = Camera.offsetY(view);
+		// One extra pixel so the cell's gridline on its right and bottom edges is covered too
+		int size = (int) Math.ceil((blockSize + 1) * zoom) + 1;
+		for (int i = 0; i < count; i++) {
+			int index = dirtyCells[i];
+			int x = (int) Math.floor(world.xOf(index) * blockSize * zoom) - offsetX;
+			int y = (int) Math.floor(world.yOf(index) * blockSize * zoom) - offsetY;
+			repaint(x, y, size, size);
+		}
+	}
+
+	/**
+	 * Moves the camera one tick towards the mole at cell ({@code x}, {@code y}).
+	 * Call on the game thread before {@link #repaintDirty()}.
+	 */
+	@Override
+	public void followMole(int x, int y) {
+		camera.setViewport(getWidth(), viewportHeight());
+		camera.follow(x, y);
+		if (snapCamera) {
+			snapCamera = false;
+			camera.snap();
+			cameraMoved = true;
+		} else if (camera.update()) {
+			cameraMoved = true;
+		}
+	}
+
+	/**
+	 * Keeps the view steady after the world's rows moved up by {@code rows}
+	 * (down if negative), as when an endless world scrolls its window.
+	 */
+	@Override
+	public void scrollWorld(int rows) {
+		camera.scroll(rows);
+		renderer.scroll(rows);
+		cameraMoved = true;
+	}
+
+	@Override
+	public void zoomIn() {
+		cameraMoved |= camera.zoomIn();
+	}
+
+	@Override
+	public void zoomOut() {
+		cameraMoved |= camera.zoomOut();
+	}
+
+	/**
+	 * Shows or hides the metrics overlay. Does nothing unless metrics are
+	 * enabled.
+	 */
+	@Override
+	public void toggleMetricsOverlay() {
+		if (!Metrics.ENABLED) {
+			return;
+		}
+		metricsOverlay = !metricsOverlay;
+		SwingUtilities.invokeLater(() -> {
+			if (metricsOverlay && activeRenderer == null) {
+				metricsRefresher.start();
+			} else {
+				metricsRefresher.stop();
+			}
+			repaint();
+		});
+	}
+
+	private int viewportHeight() {
+		return Math.max(0, getHeight() - STATUS_BAR_HEIGHT);
+	}
+
+	private void repaintStatusBar() {
+		if (activeRenderer == null) {
+			int top = viewportHeight();
+			repaint(0, top, getWidth(), getHeight() - top);
+		}
+	}
+
+	/**
+	 * Stops the render thread, if any, and closes the window.
+	 */
+	@Override
+	public void dispose() {
+		if (activeRenderer != null) {
+			activeRenderer.stop();
+		}
+		frame.dispose();
+	}
+
+	@Override
 	public void hidePauseScreen() {
 		isPaused = false;
 		repaint();
@@ -93,81 +308,52 @@ public class GameGraphics extends JPanel {
 		return height;
 	}
 
-	public void rectangle(int x, int y, int width, int height, Color c) {
-		System.out.println("Drawing rectangle at (" + x + "," + y + ") with dimensions " + width + "x" + height);
-		for (int yy = y; yy < y + height; yy++) {
-			for (int xx = x; xx < x + width; xx++) {
-				block(xx, yy, c);
-			}
-		}
-	}
-
 	public char waitForKey() {
 		return inputHandler.waitForKeyPress();
 	}
 
-	public void block(int x, int y, Color color) {
-		if (x >= 0 && x < width && y >= 0 && y < height) {
-			grid[x][y] = color;
-			// Do NOT call repaint() or paintImmediately() here for world generation
-		} else {
-			System.out.println("Attempted to draw block outside bounds at (" + x + "," + y + ")");
-		}
-	}
-
-	public Color getBlockColor(int x, int y) {
-		if (x >= 0 && x < width && y >= 0 && y < height) {
-			return grid[x][y];
-		}
-		return null;
+	public WorldGrid getWorld() {
+		return world;
 	}
 
+	@Override
 	public void updateScore(int newScore) {
 		this.score = newScore;
-		repaint();
+		repaintStatusBar();
 	}
 
+	@Override
 	public void updateTimer(long secondsRemaining) {
 		this.timer = secondsRemaining;
 		timerLabel.setText("Time: " + secondsRemaining + "s");
-		repaint();
+		repaintStatusBar();
 	}
 
+	@Override
 	public void updateTitle(String title) {
 		frame.setTitle(title);
 	}
 
-	public void highlightBlock(int x, int y) {
-		if (x >= 0 && x < width && y >= 0 && y < height) {
-			Color originalColor = grid[x][y];
-			new Thread(() -> {
-				try {
-					for (int i = 0; i < 3; i++) {
-						block(x, y, ColorConstants.GLOW_EFFECT);
-						Thread.sleep(200);
-						block(x, y, originalColor);
-						Thread.sleep(200);
-					}
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-			}).start();
-		}
-	}
-
+	/**
+	 * Shows the pause overlay with a hint line. Does not block; the caller
+	 * decides when to call {@link #hidePauseScreen()}.
+	 */
+	@Override
 	public void showPauseScreen(String message) {
+		pauseMessage = message;
 		isPaused = true;
 		repaint();
-		JOptionPane.showMessageDialog(frame, message, "Paused", JOptionPane.INFORMATION_MESSAGE);
-	}
-
-	public void showPowerUpEffect() {
-		JOptionPane.showMessageDialog(frame, "Power-Up Activated!", "Power-Up", JOptionPane.INFORMATION_MESSAGE);
 	}
 
-	public void showGameOverScreen(int finalScore) {
+	/**
+	 * Shows the game over dialog, with the high score table below the score
+	 * if {@code highScores} is not null.
+	 */
+	@Override
+	public void showGameOverScreen(int finalScore, String highScores) {
+		String scores = highScores != null ? "\n\n" + highScores + "\n" : "\n";
 		int option = JOptionPane.showConfirmDialog(frame,
-				"Game Over! Final Score: " + finalScore + "\nRestart?",
+				"Game Over! Final Score: " + finalScore + scores + "Restart?",
 				"Game Over",
 				JOptionPane.YES_NO_OPTION);
 		if (option == JOptionPane.YES_OPTION) {
@@ -175,114 +361,137 @@ public class GameGraphics extends JPanel {
 				notify();
 			}
 		} else {
-			frame.dispose();
+			dispose();
 		}
 	}
 
 	@Override
 	protected void paintComponent(Graphics g) {
 		super.paintComponent(g);
-
-		// Fill background
-		g.setColor(Color.WHITE);
-		g.fillRect(0, 0, getWidth(), getHeight());
-
-		// Draw grid and blocks
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				if (grid[x][y] == ColorConstants.MOLE) {
-					g.setColor(ColorConstants.MOLE);
-					g.fillRect(x * blockSize, y * blockSize, blockSize, blockSize);
-				} else if (grid[x][y] != null) {
-					g.setColor(grid[x][y]);
-					g.fillRect(x * blockSize, y * blockSize, blockSize, blockSize);
-				}
-				// Draw gridlines only if not in the sky
-				if (y >= Mole.SKY_HEIGHT) {
-					g.setColor(Color.LIGHT_GRAY);
-					g.drawRect(x * blockSize, y * blockSize, blockSize, blockSize);
-				}
-			}
+		if (activeRenderer != null) {
+			return;
+		}
+		Graphics2D g2 = (Graphics2D) g;
+		Rectangle clip = g2.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
 		}
+		renderFrame(g2, clip, getWidth(), getHeight());
+	}
+
+	private void renderActiveFrame(Graphics2D g, int surfaceWidth, int surfaceHeight) {
+		activeClip.setBounds(0, 0, surfaceWidth, surfaceHeight);
+		g.setClip(activeClip);
+		renderFrame(g, activeClip, surfaceWidth, surfaceHeight);
+	}
 
-		// Draw clouds in the sky
-		drawClouds(g);
+	private void renderFrame(Graphics2D g2, Rectangle clip, int surfaceWidth, int surfaceHeight) {
+		long paintStart = 0;
+		long input = 0;
+		if (Metrics.ENABLED) {
+			paintStart = System.nanoTime();
+			// Before acquiring, so the snapshot painted already has this input in it
+			input = Metrics.takePublishedInput();
+		}
+		// A consistent copy of the world that the game thread will not touch while we paint
+		WorldGrid world = frames.acquire();
+		long view = camera.getView();
+		double zoom = Camera.zoom(view);
+		int offsetX = Camera.offsetX(view);
+		int offsetY = Camera.offsetY(view);
+		int viewHeight = Math.max(0, surfaceHeight - STATUS_BAR_HEIGHT);
+		int gridBottom = Math.min((int) Math.ceil(world.getHeight() * blockSize * zoom) - offsetY, viewHeight);
+		int statusY = gridBottom + 20;
 
-		// Draw trees and rocks above ground
-		drawTreesAndRocks(g);
+		// Fill background
+		g2.setColor(Color.WHITE);
+		g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		// Draw the world layers through the camera; only cells inside the visible part of the clip are painted
+		int visibleBottom = Math.min(clip.y + clip.height, viewHeight);
+		if (clip.y < visibleBottom) {
+			int left = (int) Math.floor((clip.x + offsetX) / zoom);
+			int top = (int) Math.floor((clip.y + offsetY) / zoom);
+			int right = (int) Math.ceil((clip.x + clip.width + offsetX) / zoom);
+			int bottom = (int) Math.ceil((visibleBottom + offsetY) / zoom);
+			worldClip.setBounds(left, top, right - left, bottom - top);
+			Shape savedClip = g2.getClip();
+			AffineTransform savedTransform = g2.getTransform();
+			g2.clipRect(clip.x, clip.y, clip.width, visibleBottom - clip.y);
+			g2.translate(-offsetX, -offsetY);
+			g2.scale(zoom, zoom);
+			renderer.paint(g2, world, worldClip);
+			g2.setTransform(savedTransform);
+			g2.setClip(savedClip);
+		}
 
 		// Draw score and timer
-		g.setColor(Color.BLACK);
-		g.setFont(new Font("Arial", Font.BOLD, 14));
-		g.drawString("Score: " + score, 10, height * blockSize + 20);
-		g.drawString("Time: " + timer + "s", 120, height * blockSize + 20);
+		g2.setColor(Color.BLACK);
+		g2.setFont(STATUS_FONT);
+		g2.drawString("Score: " + score, 10, statusY);
+		g2.drawString("Time: " + timer + "s", 120, statusY);
+
+		// Draw notifications over the world
+		notifications.paint(g2, surfaceWidth, NOTIFICATION_TOP, System.nanoTime());
 
 		if (isPaused) {
-			g.setColor(new Color(0, 0, 0, 128));
-			g.fillRect(0, 0, getWidth(), getHeight());
-			g.setColor(Color.WHITE);
-			g.setFont(g.getFont().deriveFont(Font.BOLD, 36f));
-			g.drawString("PAUSED", getWidth() / 2 - 80, getHeight() / 2);
+			g2.setColor(ColorConstants.PAUSE_OVERLAY);
+			g2.fillRect(0, 0, surfaceWidth, surfaceHeight);
+			g2.setColor(Color.WHITE);
+			g2.setFont(PAUSE_FONT);
+			g2.drawString("PAUSED", surfaceWidth / 2 - 80, surfaceHeight / 2);
+			g2.setFont(STATUS_FONT);
+			g2.drawString(pauseMessage, surfaceWidth / 2 - 80, surfaceHeight / 2 + 30);
 		}
-	}
 
-	// Add this method to GameGraphics.java
-	private void drawClouds(Graphics g) {
-		g.setColor(new Color(255, 255, 255, 230));
-		// Cloud bank 1
-		g.fillOval(30, 10, 60, 30);
-		g.fillOval(60, 5, 50, 25);
-		g.fillOval(90, 15, 70, 35);
-		g.fillOval(120, 8, 40, 20);
-		g.fillOval(100, 25, 60, 25);
-		// Cloud bank 2
-		g.fillOval(220, 18, 80, 35);
-		g.fillOval(250, 5, 60, 25);
-		g.fillOval(270, 25, 70, 30);
-		g.fillOval(300, 10, 50, 20);
-		g.fillOval(320, 22, 60, 25);
-		// Cloud bank 3
-		g.fillOval(420, 12, 90, 40);
-		g.fillOval(460, 5, 60, 25);
-		g.fillOval(480, 25, 70, 30);
-		g.fillOval(510, 15, 50, 20);
-		g.fillOval(530, 28, 60, 25);
-		// Small scattered clouds
-		g.fillOval(180, 40, 40, 18);
-		g.fillOval(380, 35, 35, 15);
-		g.fillOval(600, 20, 50, 20);
-		g.fillOval(700, 30, 60, 25);
+		if (Metrics.ENABLED) {
+			if (metricsOverlay) {
+				paintMetrics(g2, surfaceWidth);
+			}
+			long now = System.nanoTime();
+			Metrics.PAINT_NANOS.record(now - paintStart);
+			if (input != 0) {
+				Metrics.INPUT_TO_FRAME_NANOS.record(now - input);
+			}
+		}
 	}
 
-	private void drawTreesAndRocks(Graphics g) {
-		int groundY = Mole.SKY_HEIGHT * blockSize;
-		// Draw trees
-		for (int i = 2; i < width; i += 7) {
-			int x = i * blockSize + blockSize / 4;
-			// Tree trunk
-			g.setColor(new Color(101, 67, 33));
-			g.fillRect(x + blockSize / 4, groundY - 18, blockSize / 4, 18);
-			// Tree foliage
-			g.setColor(new Color(34, 139, 34));
-			g.fillOval(x, groundY - 32, blockSize, 20);
-		}
-		// Draw rocks (bottom of oval at groundY)
-		g.setColor(new Color(120, 120, 120));
-		for (int i = 5; i < width; i += 11) {
-			int x = i * blockSize + blockSize / 4;
-			int rockHeight = blockSize / 3;
-			g.fillOval(x, groundY - rockHeight, blockSize / 2, rockHeight);
+	private void paintMetrics(Graphics2D g2, int surfaceWidth) {
+		String[] lines = Metrics.get().overlayLines();
+		int left = surfaceWidth - 320;
+		g2.setColor(ColorConstants.METRICS_BACKGROUND);
+		g2.fillRect(left - 8, 4, 324, lines.length * METRICS_LINE_HEIGHT + 8);
+		g2.setColor(Color.WHITE);
+		g2.setFont(STATUS_FONT.deriveFont(Font.PLAIN, 12f));
+		for (int i = 0; i < lines.length; i++) {
+			g2.drawString(lines[i], left, 4 + (i + 1) * METRICS_LINE_HEIGHT);
 		}
 	}
 
+	/**
+	 * Shows a short notification over the game. Returns immediately; the
+	 * message fades out on its own. Once the window is closed the message
+	 * is shown in a dialog instead.
+	 */
+	@Override
 	public void showMessage(String message) {
-		JOptionPane.showMessageDialog(frame, message);
+		if (!frame.isDisplayable()) {
+			// The window is gone, so a toast would never be seen
+			JOptionPane.showMessageDialog(null, message);
+			return;
+		}
+		notifications.post(message, System.nanoTime());
+		if (activeRenderer == null) {
+			SwingUtilities.invokeLater(notificationFader::start);
+		}
 	}
 
+	@Override
 	public String showInputDialog(String message) {
 		return JOptionPane.showInputDialog(frame, message);
 	}
 
+	@Override
 	public void showError(String message) {
 		JOptionPane.showMessageDialog(frame, message, "Error", JOptionPane.ERROR_MESSAGE);
 	}
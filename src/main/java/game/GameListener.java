@@ -0,0 +1,31 @@
+package game;
+
+/**
+ * Receives notable events from a {@link GameEngine}. All methods default to
+ * doing nothing, so headless runs can ignore what they do not need.
+ */
+public interface GameListener {
+	GameListener NONE = new GameListener() {
+	};
+
+	/**
+	 * Called when a move is refused, with a message for the player.
+	 */
+	default void onMessage(String message) {
+	}
+
+	default void onPowerUp(int x, int y) {
+	}
+
+	default void onLevelWon(Level level, int moves, long ticks) {
+	}
+
+	default void onTimeUp(Level level) {
+	}
+
+	/**
+	 * Called when an enemy reaches the mole, or the mole digs into one.
+	 */
+	default void onCaught(Level level) {
+	}
+}
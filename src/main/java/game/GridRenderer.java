@@ -0,0 +1,212 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.TexturePaint;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Paints a {@link WorldGrid} as layers: the sky backdrop, the dynamic cell
+ * layer and the soil gridline overlay.
+ *
+ * The backdrop (sky, clouds, trees and rocks) and a single gridline tile are
+ * rasterized once per world size into images compatible with the screen, so
+ * painting a frame is image blits plus one fill per run of equal cells, and
+ * allocates nothing. The layers are built and read only by the thread that
+ * paints; other threads just hand over the graphics configuration to build
+ * them for with {@link #setGraphicsConfiguration(GraphicsConfiguration)}.
+ */
+public class GridRenderer {
+	private final int blockSize;
+	private final int skyHeight;
+	// Row the soil starts on; negative once the sky scrolled out of view. Written by the game thread
+	private volatile int skyBottom;
+
+	private BufferedImage skyLayer;
+	private TexturePaint gridlinePaint;
+	private int layerWidth = -1;
+	private GraphicsConfiguration layerConfig;
+	private volatile GraphicsConfiguration targetConfig;
+
+	public GridRenderer(int blockSize, int skyHeight) {
+		this.blockSize = blockSize;
+		this.skyHeight = skyHeight;
+		this.skyBottom = skyHeight;
+	}
+
+	/**
+	 * Moves the sky up by {@code rows} rows (down if negative) after the
+	 * world scrolled, as an {@link EndlessWorld} does.
+	 */
+	public void scroll(int rows) {
+		skyBottom -= rows;
+	}
+
+	/**
+	 * Puts the sky back at the top, for a new world.
+	 */
+	public void resetScroll() {
+		skyBottom = skyHeight;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Sets the configuration of the destination surface, or null to use
+	 * plain images. The layers are rebuilt for it on the next paint, so any
+	 * thread may call this.
+	 */
+	public void setGraphicsConfiguration(GraphicsConfiguration config) {
+		targetConfig = config;
+	}
+
+	/**
+	 * Rebuilds the static layers if the world width or the target graphics
+	 * configuration changed. Cheap to call when nothing changed. Call only
+	 * on the painting thread.
+	 *
+	 * @param config the configuration of the destination surface, or null to use plain images
+	 */
+	public void prepare(WorldGrid world, GraphicsConfiguration config) {
+		targetConfig = config;
+		if (world.getWidth() == layerWidth && config == layerConfig && skyLayer != null) {
+			return;
+		}
+		layerWidth = world.getWidth();
+		layerConfig = config;
+		skyLayer = createImage(config, layerWidth * blockSize, skyHeight * blockSize, Transparency.OPAQUE);
+		Graphics2D g = skyLayer.createGraphics();
+		try {
+			g.setColor(ColorConstants.SKY);
+			g.fillRect(0, 0, skyLayer.getWidth(), skyLayer.getHeight());
+			drawClouds(g);
+			drawTreesAndRocks(g, layerWidth);
+		} finally {
+			g.dispose();
+		}
+
+		BufferedImage tile = createImage(config, blockSize, blockSize, Transparency.BITMASK);
+		Graphics2D tg = tile.createGraphics();
+		try {
+			// Top and left edge of one cell; tiling it reproduces every cell outline
+			tg.setColor(ColorConstants.GRIDLINE);
+			tg.drawLine(0, 0, blockSize - 1, 0);
+			tg.drawLine(0, 0, 0, blockSize - 1);
+		} finally {
+			tg.dispose();
+		}
+		gridlinePaint = new TexturePaint(tile, new Rectangle(0, 0, blockSize, blockSize));
+	}
+
+	/**
+	 * Paints the part of the world that intersects {@code clip}. Cells in the
+	 * sky rows come from the cached backdrop; soil cells are painted from the
+	 * grid with horizontal runs of the same type merged into one fill.
+	 */
+	public void paint(Graphics2D g, WorldGrid world, Rectangle clip) {
+		prepare(world, targetConfig);
+		int skyRows = Math.max(0, skyBottom);
+		int width = world.getWidth();
+		int height = world.getHeight();
+		int minX = Math.max(0, Math.floorDiv(clip.x - 1, blockSize));
+		int minY = Math.max(0, Math.floorDiv(clip.y - 1, blockSize));
+		int maxX = Math.min(width, Math.floorDiv(clip.x + clip.width - 1, blockSize) + 1);
+		int maxY = Math.min(height, Math.floorDiv(clip.y + clip.height - 1, blockSize) + 1);
+
+		// Dynamic cell layer
+		for (int y = Math.max(minY, skyRows); y < maxY; y++) {
+			int runStart = minX;
+			byte runType = world.get(minX, y);
+			for (int x = minX + 1; x <= maxX; x++) {
+				byte type = x < maxX ? world.get(x, y) : -1;
+				if (type != runType) {
+					if (runType != CellType.EMPTY) {
+						g.setColor(ColorConstants.forCell(runType));
+						g.fillRect(runStart * blockSize, y * blockSize, (x - runStart) * blockSize, blockSize);
+					}
+					runStart = x;
+					runType = type;
+				}
+			}
+		}
+
+		// Gridline overlay, one textured fill over the visible soil
+		int soilTop = skyRows * blockSize;
+		int gridRight = width * blockSize + 1;
+		int gridBottom = height * blockSize + 1;
+		int gx0 = Math.max(clip.x, 0);
+		int gy0 = Math.max(clip.y, soilTop);
+		int gx1 = Math.min(clip.x + clip.width, gridRight);
+		int gy1 = Math.min(clip.y + clip.height, gridBottom);
+		if (gx0 < gx1 && gy0 < gy1) {
+			g.setPaint(gridlinePaint);
+			g.fillRect(gx0, gy0, gx1 - gx0, gy1 - gy0);
+		}
+
+		// Sky backdrop
+		if (clip.y < soilTop) {
+			g.drawImage(skyLayer, 0, soilTop - skyLayer.getHeight(), null);
+		}
+	}
+
+	private static BufferedImage createImage(GraphicsConfiguration config, int w, int h, int transparency) {
+		if (config != null) {
+			return config.createCompatibleImage(w, h, transparency);
+		}
+		return new BufferedImage(w, h, transparency == Transparency.OPAQUE
+				? BufferedImage.TYPE_INT_RGB
+				: BufferedImage.TYPE_INT_ARGB);
+	}
+
+	private void drawClouds(Graphics2D g) {
+		g.setColor(ColorConstants.CLOUD);
+		// Cloud bank 1
+		g.fillOval(30, 10, 60, 30);
+		g.fillOval(60, 5, 50, 25);
+		g.fillOval(90, 15, 70, 35);
+		g.fillOval(120, 8, 40, 20);
+		g.fillOval(100, 25, 60, 25);
+		// Cloud bank 2
+		g.fillOval(220, 18, 80, 35);
+		g.fillOval(250, 5, 60, 25);
+		g.fillOval(270, 25, 70, 30);
+		g.fillOval(300, 10, 50, 20);
+		g.fillOval(320, 22, 60, 25);
+		// Cloud bank 3
+		g.fillOval(420, 12, 90, 40);
+		g.fillOval(460, 5, 60, 25);
+		g.fillOval(480, 25, 70, 30);
+		g.fillOval(510, 15, 50, 20);
+		g.fillOval(530, 28, 60, 25);
+		// Small scattered clouds
+		g.fillOval(180, 40, 40, 18);
+		g.fillOval(380, 35, 35, 15);
+		g.fillOval(600, 20, 50, 20);
+		g.fillOval(700, 30, 60, 25);
+	}
+
+	private void drawTreesAndRocks(Graphics2D g, int width) {
+		int groundY = skyHeight * blockSize;
+		// Draw trees
+		for (int i = 2; i < width; i += 7) {
+			int x = i * blockSize + blockSize / 4;
+			// Tree trunk
+			g.setColor(ColorConstants.TREE_TRUNK);
+			g.fillRect(x + blockSize / 4, groundY - 18, blockSize / 4, 18);
+			// Tree foliage
+			g.setColor(ColorConstants.TREE_FOLIAGE);
+			g.fillOval(x, groundY - 32, blockSize, 20);
+		}
+		// Draw rocks (bottom of oval at groundY)
+		g.setColor(ColorConstants.ROCK);
+		for (int i = 5; i < width; i += 11) {
+			int x = i * blockSize + blockSize / 4;
+			int rockHeight = blockSize / 3;
+			g.fillOval(x, groundY - rockHeight, blockSize / 2, rockHeight);
+		}
+	}
+}
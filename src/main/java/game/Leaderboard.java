@@ -0,0 +1,426 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * High scores kept in a local file that any number of games on the machine
+ * append to.
+ *
+ * The file is a header followed by fixed-size records, each carrying a
+ * CRC32 of its contents. Records are only ever appended, under an exclusive
+ * file lock, so concurrent games never interleave their writes; readers
+ * take no lock at all and rely on the checksum to skip a record that is
+ * still being written. Reads go through a memory mapping of the file, and
+ * only the best {@code k} records of each mode are indexed, as positions
+ * into the mapping, so loading a file of a few hundred thousand games is
+ * one sequential checksum pass of a few megabytes. Those tables are also
+ * saved next to the file, with how far into the file they go, so the next
+ * game only checks the records appended since. The table of a single seed
+ * is built the first time it is asked for, by one more pass over the
+ * mapping, and kept up to date from then on.
+ */
+public class Leaderboard implements AutoCloseable {
+	public static final int LEVELS = 0;
+	public static final int ENDLESS = 1;
+	private static final int MODES = 2;
+
+	private static final int MAGIC = 0x4d4f4c42; // "MOLB"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	// crc, mode, seed, score, levels, time
+	private static final int RECORD_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+	private static final int INDEX_MAGIC = 0x4d4f4c49; // "MOLI"
+
+	/**
+	 * One recorded game.
+	 */
+	public static final class Entry {
+		private final int mode;
+		private final long seed;
+		private final int score;
+		private final int levels;
+		private final long timeMillis;
+
+		Entry(int mode, long seed, int score, int levels, long timeMillis) {
+			this.mode = mode;
+			this.seed = seed;
+			this.score = score;
+			this.levels = levels;
+			this.timeMillis = timeMillis;
+		}
+
+		public int getMode() {
+			return mode;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * Returns the levels completed, or the depth reached in endless mode.
+		 */
+		public int getLevels() {
+			return levels;
+		}
+
+		public long getTimeMillis() {
+			return timeMillis;
+		}
+	}
+
+	/**
+	 * The best records of one board, as file positions sorted by score,
+	 * best first. Earlier records win ties.
+	 */
+	private static final class Board {
+		private int[] positions = new int[1];
+		private int[] scores = new int[1];
+		private int count;
+
+		void offer(int position, int score, int k) {
+			if (count == k && score <= scores[count - 1]) {
+				return;
+			}
+			if (count < k) {
+				if (count == positions.length) {
+					int size = Math.min(k, count * 2);
+					positions = Arrays.copyOf(positions, size);
+					scores = Arrays.copyOf(scores, size);
+				}
+				count++;
+			}
+			int i = count - 1;
+			while (i > 0 && scores[i - 1] < score) {
+				positions[i] = positions[i - 1];
+				scores[i] = scores[i - 1];
+				i--;
+			}
+			positions[i] = position;
+			scores[i] = score;
+		}
+	}
+
+	private final Path path;
+	private final Path indexPath;
+	private final FileChannel channel;
+	private final int k;
+	private final CRC32 crc = new CRC32();
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+	private final Board[] modeBoards = new Board[MODES];
+	// Tables of the seeds asked for so far
+	private final List<Map<Long, Board>> seedBoards = new ArrayList<>(MODES);
+	private MappedByteBuffer mapped;
+	// A second view of the mapping, positioned over each record to checksum it in place
+	private ByteBuffer checked;
+	// Everything before this offset has been indexed
+	private long scanned = HEADER_SIZE;
+	private int recordCount;
+	private int corruptCount;
+
+	/**
+	 * Opens or creates the leaderboard at {@code path} and indexes the
+	 * {@code k} best games of every board.
+	 */
+	public Leaderboard(Path path, int k) throws IOException {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+		this.path = path;
+		this.indexPath = path.resolveSibling(path.getFileName() + ".idx");
+		this.k = k;
+		for (int mode = 0; mode < MODES; mode++) {
+			modeBoards[mode] = new Board();
+			seedBoards.add(new HashMap<>());
+		}
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		refresh();
+	}
+
+	/**
+	 * Returns the leaderboard file in the user's home directory, or the one
+	 * set with {@code -Dmole.leaderboard}.
+	 */
+	public static Path defaultPath() {
+		String configured = System.getProperty("mole.leaderboard");
+		if (configured != null) {
+			return Path.of(configured);
+		}
+		return Path.of(System.getProperty("user.home"), ".molegame", "leaderboard.bin");
+	}
+
+	/**
+	 * Appends a finished game and returns its entry. Safe to call from
+	 * several processes at once.
+	 */
+	public synchronized Entry record(int mode, long seed, int score, int levels) {
+		if (mode < 0 || mode >= MODES) {
+			throw new IllegalArgumentException("Unknown mode " + mode);
+		}
+		Entry entry = new Entry(mode, seed, score, levels, System.currentTimeMillis());
+		record.clear();
+		record.putInt(0).putInt(mode).putLong(seed).putInt(score).putInt(levels).putLong(entry.timeMillis);
+		crc.reset();
+		crc.update(record.array(), 4, RECORD_SIZE - 4);
+		record.putInt(0, (int) crc.getValue());
+		record.flip();
+		try {
+			// File locks belong to the whole JVM, so instances in one process take turns first
+			synchronized (Leaderboard.class) {
+				FileLock lock = channel.lock();
+				try {
+					long size = channel.size();
+					if (size < HEADER_SIZE) {
+						writeFully(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+						size = HEADER_SIZE;
+					}
+					// Drop the torn tail of a writer that died mid-record
+					long end = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+					if (end != size) {
+						channel.truncate(end);
+					}
+					writeFully(record, end);
+					channel.force(false);
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to record score in " + path, e);
+		}
+		refresh();
+		return entry;
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Indexes the games other instances appended since the last call.
+	 */
+	public synchronized void refresh() {
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size == scanned) {
+				return;
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Leaderboard " + path + " is too large");
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			checked = mapped.duplicate();
+			if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+				throw new IOException(path + " is not a leaderboard file");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read leaderboard " + path, e);
+		}
+		if (scanned == HEADER_SIZE) {
+			loadIndex();
+		}
+		int limit = mapped.limit();
+		int position = (int) scanned;
+		if (position + RECORD_SIZE > limit) {
+			return;
+		}
+		while (position + RECORD_SIZE <= limit) {
+			if (!isValid(position)) {
+				if (position + RECORD_SIZE == limit) {
+					// Possibly still being written; look again next time
+					break;
+				}
+				corruptCount++;
+			} else {
+				index(position);
+			}
+			position += RECORD_SIZE;
+		}
+		if (position != scanned) {
+			scanned = position;
+			saveIndex();
+		}
+	}
+
+	/**
+	 * Saves the tables of the best games and how far into the file they go.
+	 * The saved index is only a shortcut, so failures are ignored.
+	 */
+	private void saveIndex() {
+		ByteBuffer index = ByteBuffer.allocate(4 + 4 + 8 + 4 + 4 + 4 + MODES * (4 + 4 * k));
+		index.putInt(INDEX_MAGIC).putInt(k).putLong(scanned).putInt(recordCount).putInt(corruptCount);
+		// Ties the index to this file's content
+		index.putInt(scanned > HEADER_SIZE ? mapped.getInt((int) scanned - RECORD_SIZE) : 0);
+		for (Board board : modeBoards) {
+			index.putInt(board.count);
+			for (int i = 0; i < board.count; i++) {
+				index.putInt(board.positions[i]);
+			}
+		}
+		try {
+			// Written aside and moved into place, so other games never read half an index
+			Path temp = Files.createTempFile(indexPath.toAbsolutePath().getParent(), "leaderboard", ".tmp");
+			try {
+				Files.write(temp, Arrays.copyOf(index.array(), index.position()));
+				Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			// The next game will scan the whole file instead
+		}
+	}
+
+	/**
+	 * Restores the tables saved by {@link #saveIndex()}, if they match the
+	 * file, so scanning can start where they end.
+	 */
+	private void loadIndex() {
+		ByteBuffer index;
+		try {
+			index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+		} catch (IOException e) {
+			return;
+		}
+		try {
+			// Tables saved by a game that kept fewer entries cannot fill ours
+			if (index.getInt() != INDEX_MAGIC || index.getInt() < k) {
+				return;
+			}
+			long end = index.getLong();
+			int records = index.getInt();
+			int corrupt = index.getInt();
+			int lastCrc = index.getInt();
+			if (end <= HEADER_SIZE || end > mapped.limit() || (end - HEADER_SIZE) % RECORD_SIZE != 0
+					|| mapped.getInt((int) end - RECORD_SIZE) != lastCrc) {
+				return;
+			}
+			int[][] positions = new int[MODES][];
+			for (int mode = 0; mode < MODES; mode++) {
+				positions[mode] = new int[index.getInt()];
+				for (int i = 0; i < positions[mode].length; i++) {
+					int position = index.getInt();
+					if (position < HEADER_SIZE || position >= end || (position - HEADER_SIZE) % RECORD_SIZE != 0
+							|| !isValid(position) || mapped.getInt(position + 4) != mode) {
+						return;
+					}
+					positions[mode][i] = position;
+				}
+			}
+			for (int mode = 0; mode < MODES; mode++) {
+				for (int position : positions[mode]) {
+					modeBoards[mode].offer(position, mapped.getInt(position + 16), k);
+				}
+			}
+			recordCount = records;
+			corruptCount = corrupt;
+			scanned = end;
+		} catch (BufferUnderflowException e) {
+			// Not an index this version wrote
+		}
+	}
+
+	private boolean isValid(int position) {
+		checked.limit(position + RECORD_SIZE).position(position + 4);
+		crc.reset();
+		crc.update(checked);
+		int mode = mapped.getInt(position + 4);
+		return (int) crc.getValue() == mapped.getInt(position) && mode >= 0 && mode < MODES;
+	}
+
+	private void index(int position) {
+		int mode = mapped.getInt(position + 4);
+		int score = mapped.getInt(position + 16);
+		recordCount++;
+		modeBoards[mode].offer(position, score, k);
+		Board seedBoard = seedBoards.get(mode).get(mapped.getLong(position + 8));
+		if (seedBoard != null) {
+			seedBoard.offer(position, score, k);
+		}
+	}
+
+	/**
+	 * Returns the best games of a mode across all seeds, best first.
+	 */
+	public synchronized List<Entry> top(int mode) {
+		return entries(modeBoards[mode]);
+	}
+
+	/**
+	 * Returns the best games of a mode played with the given seed, best first.
+	 */
+	public synchronized List<Entry> top(int mode, long seed) {
+		Board board = seedBoards.get(mode).get(seed);
+		if (board == null) {
+			board = new Board();
+			for (int position = HEADER_SIZE; position < scanned; position += RECORD_SIZE) {
+				if (mapped.getLong(position + 8) == seed && mapped.getInt(position + 4) == mode
+						&& isValid(position)) {
+					board.offer(position, mapped.getInt(position + 16), k);
+				}
+			}
+			seedBoards.get(mode).put(seed, board);
+		}
+		return entries(board);
+	}
+
+	private List<Entry> entries(Board board) {
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; board != null && i < board.count; i++) {
+			int position = board.positions[i];
+			entries.add(new Entry(mapped.getInt(position + 4), mapped.getLong(position + 8),
+					mapped.getInt(position + 16), mapped.getInt(position + 20), mapped.getLong(position + 24)));
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns how many games are indexed.
+	 */
+	public synchronized int size() {
+		return recordCount;
+	}
+
+	/**
+	 * Returns how many records were skipped because their checksum failed.
+	 */
+	public synchronized int getCorrupt() {
+		return corruptCount;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close " + path, e);
+		}
+	}
+}
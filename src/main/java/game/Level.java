@@ -0,0 +1,66 @@
+package game;
+
+/**
+ * A generated level: its world plus the metadata needed to play or
+ * reproduce it.
+ */
+public class Level {
+	/** Rows of sky above the soil at the top of every world. */
+	public static final int SKY_HEIGHT = 5;
+
+	private final int number;
+	private final long seed;
+	private final WorldGrid world;
+	private final int startX;
+	private final int startY;
+	private final int goalX;
+	private final int goalY;
+	private final int optimalMoves;
+
+	public Level(int number, long seed, WorldGrid world, int startX, int startY, int goalX, int goalY,
+			int optimalMoves) {
+		this.number = number;
+		this.seed = seed;
+		this.world = world;
+		this.startX = startX;
+		this.startY = startY;
+		this.goalX = goalX;
+		this.goalY = goalY;
+		this.optimalMoves = optimalMoves;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public WorldGrid getWorld() {
+		return world;
+	}
+
+	public int getStartX() {
+		return startX;
+	}
+
+	public int getStartY() {
+		return startY;
+	}
+
+	public int getGoalX() {
+		return goalX;
+	}
+
+	public int getGoalY() {
+		return goalY;
+	}
+
+	/**
+	 * Returns the fewest single-cell moves from the start to the goal.
+	 */
+	public int getOptimalMoves() {
+		return optimalMoves;
+	}
+}
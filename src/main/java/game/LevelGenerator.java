@@ -0,0 +1,98 @@
+package game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds levels deterministically from a seed.
+ *
+ * Obstacles, power-ups and the goal are drawn by sampling without
+ * replacement from the free soil cells (a partial Fisher-Yates shuffle), so
+ * every requested item is placed in a single O(cells) pass with no retries,
+ * and the same seed always reproduces the same level. The goal and power-ups
+ * are drawn first, so on a grid too crowded for everything it is the
+ * obstacle count that gets cut short.
+ *
+ * Every level is checked with a {@link PathFinder}: if the obstacles wall
+ * the goal off from the start, the fewest obstacles needed to open a path are
+ * turned back into soil, so no level is unwinnable. The optimal move count is
+ * recorded on the level.
+ *
+ * Instances reuse a scratch buffer and are not thread-safe; use one per thread.
+ */
+public class LevelGenerator {
+	private final int skyHeight;
+	private int[] candidates = new int[0];
+	private final PathFinder pathFinder = new PathFinder();
+
+	public LevelGenerator(int skyHeight) {
+		this.skyHeight = skyHeight;
+	}
+
+	/**
+	 * Derives the seed of one level from the seed of the whole game.
+	 */
+	public static long levelSeed(long gameSeed, int level) {
+		return new SplittableRandom(gameSeed ^ (level * 0x9E3779B97F4A7C15L)).nextLong();
+	}
+
+	public Level generate(int number, long seed, int width, int height, int obstacleCount, int powerUpCount) {
+		if (height <= skyHeight + 1) {
+			throw new IllegalArgumentException("Grid height " + height + " leaves no soil below the sky");
+		}
+		WorldGrid world = new WorldGrid(width, height);
+		SplittableRandom random = new SplittableRandom(seed);
+
+		// Draw sky and soil
+		world.fill(0, 0, width, skyHeight, CellType.SKY);
+		world.fill(0, skyHeight, width, height - skyHeight, CellType.SOIL);
+
+		// Every soil cell except the mole's start is a candidate
+		int startX = width / 2;
+		int startY = skyHeight + 1;
+		int start = world.index(startX, startY);
+		int firstSoil = world.index(0, skyHeight);
+		int free = world.size() - firstSoil - 1;
+		if (candidates.length < free) {
+			candidates = new int[free];
+		}
+		int n = 0;
+		for (int i = firstSoil; i < world.size(); i++) {
+			if (i != start) {
+				candidates[n++] = i;
+			}
+		}
+
+		int goal = take(random, 0, n);
+		world.set(goal, CellType.GOAL);
+		int placed = 1;
+		for (int i = 0; i < powerUpCount && placed < n; i++) {
+			world.set(take(random, placed++, n), CellType.POWER_UP);
+		}
+		for (int i = 0; i < obstacleCount && placed < n; i++) {
+			world.set(take(random, placed++, n), CellType.OBSTACLE);
+		}
+
+		// Place the mole LAST to ensure it's visible
+		world.set(start, CellType.MOLE);
+
+		// Reject unsolvable layouts by repairing them
+		pathFinder.load(world);
+		int optimalMoves = pathFinder.bfs(start, goal);
+		if (optimalMoves == PathFinder.UNREACHABLE) {
+			pathFinder.repair(world, start, goal);
+			optimalMoves = pathFinder.bfs(start, goal);
+		}
+		return new Level(number, seed, world, startX, startY, world.xOf(goal), world.yOf(goal), optimalMoves);
+	}
+
+	/**
+	 * Swaps a uniformly chosen candidate from {@code [pos, n)} into {@code pos} and returns it.
+	 */
+	private int take(SplittableRandom random, int pos, int n) {
+		int pick = pos + random.nextInt(n - pos);
+		int chosen = candidates[pick];
+		candidates[pick] = candidates[pos];
+		candidates[pos] = chosen;
+		return chosen;
+	}
+}
@@ -0,0 +1,86 @@
+package game;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Generates upcoming levels on a background thread while the current one is
+ * being played.
+ *
+ * Each level is built into its own detached {@link WorldGrid} that no other
+ * thread touches until it is handed over by {@link #take(int)}, so the game
+ * thread can swap it in as a single reference assignment. At most
+ * {@code lookahead} levels are kept ready at once.
+ */
+public class LevelPreloader implements AutoCloseable {
+	/**
+	 * Builds one level. Called on the preloader thread with a generator owned by that thread.
+	 */
+	public interface LevelFactory {
+		Level create(LevelGenerator generator, int level);
+	}
+
+	private final LevelFactory factory;
+	private final LevelGenerator generator;
+	private final int lookahead;
+	private final ExecutorService executor;
+	private final Map<Integer, CompletableFuture<Level>> ready = new HashMap<>();
+
+	public LevelPreloader(LevelFactory factory, int skyHeight, int lookahead) {
+		this.factory = factory;
+		this.generator = new LevelGenerator(skyHeight);
+		this.lookahead = lookahead;
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "mole-level-preloader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts generating levels {@code first} to {@code first + lookahead - 1}.
+	 */
+	public synchronized void preload(int first) {
+		for (int level = first; level < first + lookahead; level++) {
+			ready.computeIfAbsent(level, this::submit);
+		}
+	}
+
+	/**
+	 * Returns the given level, waiting only if it is still being generated,
+	 * and starts generating the levels after it.
+	 */
+	public Level take(int level) {
+		CompletableFuture<Level> future;
+		synchronized (this) {
+			future = ready.remove(level);
+			if (future == null) {
+				future = submit(level);
+			}
+			// Anything before this level will never be asked for
+			ready.keySet().removeIf(pending -> pending < level);
+			preload(level + 1);
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for level " + level, e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to generate level " + level, e.getCause());
+		}
+	}
+
+	private CompletableFuture<Level> submit(int level) {
+		return CompletableFuture.supplyAsync(() -> factory.create(generator, level), executor);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,282 @@
+package game;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime measurements of the game: how long painting and move handling
+ * take, how long a key press waits to show up on screen, how many cells are
+ * repainted and how many effects are scheduled, plus the collector's work.
+ *
+ * Collection is switched on with {@code -Dmole.metrics=true}. Every
+ * measuring call site is guarded by {@link #ENABLED}, a static final flag,
+ * so when it is off the JIT folds the guarded code away and the hot paths
+ * pay nothing, not even a clock read. When on, the numbers are published
+ * as the {@code game:type=Metrics} MXBean and can be drawn over the game.
+ */
+public final class Metrics implements MetricsMXBean {
+	public static final boolean ENABLED = Boolean.getBoolean("mole.metrics");
+
+	public static final Histogram PAINT_NANOS = new Histogram();
+	public static final Histogram MOVE_NANOS = new Histogram();
+	public static final Histogram INPUT_TO_FRAME_NANOS = new Histogram();
+	public static final LongAdder CELLS_REPAINTED = new LongAdder();
+	public static final LongAdder EFFECTS_SCHEDULED = new LongAdder();
+
+	private static final Metrics INSTANCE = new Metrics();
+	// Oldest key press applied but not yet published in a snapshot; game thread only
+	private static long appliedInputNanos;
+	// Oldest key press published in a snapshot but not yet painted
+	private static final AtomicLong publishedInputNanos = new AtomicLong();
+
+	/**
+	 * A lock-free histogram of non-negative values such as durations in
+	 * nanoseconds. Buckets are log-linear, four per power of two, so any
+	 * percentile is reported within 25% of the true value in a fixed 1 KB.
+	 */
+	public static final class Histogram {
+		private static final int SUB_BUCKET_BITS = 2;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		public void record(long value) {
+			value = Math.max(0, value);
+			counts.incrementAndGet(bucket(value));
+			count.increment();
+			long seen = max.get();
+			while (value > seen && !max.compareAndSet(seen, value)) {
+				seen = max.get();
+			}
+		}
+
+		private static int bucket(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+			int sub = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+			return (exponent + 1) * SUB_BUCKETS + sub;
+		}
+
+		// Largest value that falls in the bucket
+		private static long upperBound(int bucket) {
+			if (bucket < SUB_BUCKETS) {
+				return bucket;
+			}
+			int exponent = bucket / SUB_BUCKETS - 1;
+			long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent;
+			return lowest + (1L << exponent) - 1;
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Returns a value that at least {@code percentile} percent of the
+		 * recorded values do not exceed, or 0 if nothing was recorded.
+		 */
+		public long percentile(double percentile) {
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				total += counts.get(i);
+			}
+			long rank = (long) Math.ceil(total * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS && total != 0; i++) {
+				seen += counts.get(i);
+				if (seen >= Math.max(1, rank)) {
+					return Math.min(upperBound(i), getMax());
+				}
+			}
+			return 0;
+		}
+
+		public void reset() {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts.set(i, 0);
+			}
+			count.reset();
+			max.set(0);
+		}
+	}
+
+	private Metrics() {
+	}
+
+	/**
+	 * Registers the MXBean with the platform MBean server, once.
+	 */
+	public static synchronized void register() {
+		try {
+			ObjectName name = new ObjectName("game:type=Metrics");
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+			}
+		} catch (JMException e) {
+			System.err.println("Cannot register metrics MBean: " + e);
+		}
+	}
+
+	public static Metrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Notes that a key pressed at {@code timestampNanos} was applied to the
+	 * world. Call on the game thread.
+	 */
+	public static void inputApplied(long timestampNanos) {
+		if (appliedInputNanos == 0) {
+			appliedInputNanos = timestampNanos;
+		}
+	}
+
+	/**
+	 * Notes that the world, with every input applied so far, was published
+	 * for painting. Call on the game thread after publishing.
+	 */
+	public static void framePublished() {
+		if (appliedInputNanos != 0) {
+			publishedInputNanos.compareAndSet(0, appliedInputNanos);
+			appliedInputNanos = 0;
+		}
+	}
+
+	/**
+	 * Takes the press time of the oldest input waiting to be painted, or 0.
+	 * Call on the painting thread before picking the snapshot to paint, so
+	 * the snapshot is at least as new as the input.
+	 */
+	public static long takePublishedInput() {
+		return publishedInputNanos.getAndSet(0);
+	}
+
+	/**
+	 * Forgets measurements in flight, such as when a new level starts.
+	 */
+	public static void resetInput() {
+		appliedInputNanos = 0;
+		publishedInputNanos.set(0);
+	}
+
+	@Override
+	public long getPaintCount() {
+		return PAINT_NANOS.getCount();
+	}
+
+	@Override
+	public long getPaintMicrosMedian() {
+		return PAINT_NANOS.percentile(50) / 1000;
+	}
+
+	@Override
+	public long getPaintMicros99() {
+		return PAINT_NANOS.percentile(99) / 1000;
+	}
+
+	@Override
+	public long getPaintMicrosMax() {
+		return PAINT_NANOS.getMax() / 1000;
+	}
+
+	@Override
+	public long getMoveCount() {
+		return MOVE_NANOS.getCount();
+	}
+
+	@Override
+	public long getMoveMicrosMedian() {
+		return MOVE_NANOS.percentile(50) / 1000;
+	}
+
+	@Override
+	public long getMoveMicros99() {
+		return MOVE_NANOS.percentile(99) / 1000;
+	}
+
+	@Override
+	public long getMoveMicrosMax() {
+		return MOVE_NANOS.getMax() / 1000;
+	}
+
+	@Override
+	public long getInputToFrameMicrosMedian() {
+		return INPUT_TO_FRAME_NANOS.percentile(50) / 1000;
+	}
+
+	@Override
+	public long getInputToFrameMicros99() {
+		return INPUT_TO_FRAME_NANOS.percentile(99) / 1000;
+	}
+
+	@Override
+	public long getInputToFrameMicrosMax() {
+		return INPUT_TO_FRAME_NANOS.getMax() / 1000;
+	}
+
+	@Override
+	public long getCellsRepainted() {
+		return CELLS_REPAINTED.sum();
+	}
+
+	@Override
+	public long getEffectsScheduled() {
+		return EFFECTS_SCHEDULED.sum();
+	}
+
+	@Override
+	public long getGcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		return total;
+	}
+
+	@Override
+	public long getGcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	@Override
+	public void reset() {
+		PAINT_NANOS.reset();
+		MOVE_NANOS.reset();
+		INPUT_TO_FRAME_NANOS.reset();
+		CELLS_REPAINTED.reset();
+		EFFECTS_SCHEDULED.reset();
+	}
+
+	/**
+	 * Returns the lines of the on-screen overlay.
+	 */
+	public String[] overlayLines() {
+		return new String[] {
+				"paint " + getPaintMicrosMedian() + " / " + getPaintMicros99() + " us (p50 / p99)",
+				"move " + getMoveMicrosMedian() + " / " + getMoveMicros99() + " us",
+				"key to frame " + getInputToFrameMicrosMedian() / 1000 + " / " + getInputToFrameMicros99() / 1000
+						+ " ms",
+				"cells repainted " + getCellsRepainted() + ", effects " + getEffectsScheduled(),
+				"gc " + getGcCount() + " runs, " + getGcMillis() + " ms",
+		};
+	}
+}
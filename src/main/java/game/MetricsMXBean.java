@@ -0,0 +1,38 @@
+package game;
+
+/**
+ * The view of the metrics exported over JMX. Times are in microseconds.
+ */
+public interface MetricsMXBean {
+	long getPaintCount();
+
+	long getPaintMicrosMedian();
+
+	long getPaintMicros99();
+
+	long getPaintMicrosMax();
+
+	long getMoveCount();
+
+	long getMoveMicrosMedian();
+
+	long getMoveMicros99();
+
+	long getMoveMicrosMax();
+
+	long getInputToFrameMicrosMedian();
+
+	long getInputToFrameMicros99();
+
+	long getInputToFrameMicrosMax();
+
+	long getCellsRepainted();
+
+	long getEffectsScheduled();
+
+	long getGcCount();
+
+	long getGcMillis();
+
+	void reset();
+}
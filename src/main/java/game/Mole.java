@@ -1,41 +1,163 @@
 package game;
 
-import java.awt.Color;
-import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Logger;
-
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import utils.InputEventQueue;
 import utils.InputHandler;
 
 public class Mole {
-	private static final int INITIAL_GRID_WIDTH = 30;
-	private static final int INITIAL_GRID_HEIGHT = 50;
 	private static final int BLOCK_SIZE = 20;
-	private static final int INITIAL_TIME_LIMIT = 60000;
-	private static final int TIME_DECREASE_PER_LEVEL = 5000;
-	private static final int INITIAL_OBSTACLE_COUNT = 50;
-	private static final int OBSTACLE_INCREASE_PER_LEVEL = 10;
-	private static final int INITIAL_POWER_UP_COUNT = 5;
-	public static final int SKY_HEIGHT = 5;
-	private static final int POWER_UP_DURATION = 10;
-	private static final int MIN_TIME_LIMIT = 5000;
-
-	private GameGraphics g;
-	private int score = 0;
-	private static final Logger logger = Logger.getLogger(Mole.class.getName());
+	private static final int LEVELS_PRELOADED = 2;
+	// Frame cap for the active rendering thread; 0 keeps Swing's passive repainting
+	private static final int ACTIVE_RENDERING_FPS = Integer.getInteger("mole.fps", 0);
+	// Play in the terminal the game was started from instead of a window
+	private static final boolean TERMINAL = "terminal".equals(System.getProperty("mole.display"));
+	// Endless mode: one world that goes down forever instead of levels
+	private static final boolean ENDLESS = Boolean.getBoolean("mole.endless");
+	// Keep dug tunnels in far-away chunks on disk instead of forgetting them
+	private static final boolean SPILL_CHUNKS = Boolean.getBoolean("mole.spill");
+	private static final int ENDLESS_WINDOW_CHUNKS = 8;
+	private static final int ENDLESS_CACHED_CHUNKS = 64;
+	// Record the game to this file, or play back the recording in this file
+	private static final String RECORD_PATH = System.getProperty("mole.record");
+	private static final String REPLAY_PATH = System.getProperty("mole.replay");
+	private static final int REPLAY_SPEED = Integer.getInteger("mole.replay.speed", 1);
+	private static final int HIGH_SCORES_SHOWN = 5;
+	// Enemies chasing the mole, per level number; not used in endless mode
+	private static final int ENEMIES_PER_LEVEL = Integer.getInteger("mole.enemies", 0);
+	// Rocks and loose soil fall into tunnels; not used in endless mode
+	private static final boolean FALLING_DEBRIS = Boolean.getBoolean("mole.debris");
+	// Keep the game in a file to resume after the window closes; a replay, a recording or a chosen seed is
+	// played from the start and leaves the saved game alone
+	private static final boolean SAVE_GAME = !ENDLESS && REPLAY_PATH == null && RECORD_PATH == null
+			&& System.getProperty("mole.seed") == null;
+	private static final int CHECKPOINT_TICKS = GameEngine.TICKS_PER_SECOND;
+
+	private GameDisplay g;
+	private WorldGrid world;
+	private Level currentLevel;
+	private final long gameSeed;
+	private final Difficulty difficulty;
+	private final LevelPreloader preloader;
+	private final GameEngine engine;
+	private EndlessWorld endless;
+	// Written by the game thread, read by the shutdown hook that records an endless game
+	private volatile long deepestRow;
+	private final Leaderboard leaderboard;
+	private final SaveGame saver;
+	// The saved game being resumed, until its level starts
+	private SaveGame.Resume resumed;
 	private InputHandler inputHandler;
 
+	// Level state, owned by the game thread
+	private final GameClock clock = new GameClock(
+			GameEngine.TICKS_PER_SECOND * (REPLAY_PATH != null ? Math.max(1, REPLAY_SPEED) : 1));
+	private Replay replay;
+	private Replay.Track replayTrack;
+	private int replayCursor;
+	private ReplayRecorder recorder;
+	private boolean paused;
+	private long shownSeconds;
+	private final char[] pendingKeys = new char[InputHandler.QUEUE_CAPACITY];
+	private final long[] pendingKeyNanos = new long[InputHandler.QUEUE_CAPACITY];
+	private int pendingKeyCount;
+	private final InputEventQueue.Consumer collectPressedKeys = (key, pressed, timestampNanos) -> {
+		if (pressed && pendingKeyCount < pendingKeys.length) {
+			pendingKeyNanos[pendingKeyCount] = timestampNanos;
+			pendingKeys[pendingKeyCount++] = key;
+		}
+	};
+
+	// Turns engine events into on-screen feedback
+	private final GameListener display = new GameListener() {
+		@Override
+		public void onMessage(String message) {
+			g.showMessage(message);
+		}
+
+		@Override
+		public void onPowerUp(int x, int y) {
+			engine.highlight(x, y);
+			g.showPowerUpEffect();
+		}
+
+		@Override
+		public void onLevelWon(Level level, int moves, long ticks) {
+			g.showMessage("Level completed in " + moves + " moves! (best: " + level.getOptimalMoves() + ")");
+			g.updateScore(engine.getScore());
+		}
+
+		@Override
+		public void onTimeUp(Level level) {
+			g.showMessage("Time's up! Level failed.");
+		}
+
+		@Override
+		public void onCaught(Level level) {
+			g.showMessage("Caught by an enemy! Level failed.");
+		}
+	};
+
 	public Mole() {
+		// Every level is derived from this seed; pass -Dmole.seed to replay a reported game
+		if (REPLAY_PATH != null && !ENDLESS) {
+			try {
+				replay = Replay.read(Path.of(REPLAY_PATH));
+			} catch (IOException e) {
+				System.err.println("Failed to read replay " + REPLAY_PATH + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		if (Metrics.ENABLED) {
+			Metrics.register();
+		}
+		if (SAVE_GAME) {
+			resumed = loadSave();
+		}
+		Difficulty played = ENDLESS ? Difficulty.STANDARD.withoutTimeLimit()
+				: Difficulty.STANDARD.withEnemiesPerLevel(ENEMIES_PER_LEVEL).withFallingDebris(FALLING_DEBRIS);
+		// A replay or a resumed game goes on with the settings it was started with
+		this.difficulty = replay != null ? replay.configure(played)
+				: resumed != null ? resumed.getState().configure(played) : played;
+		this.gameSeed = replay != null ? replay.getGameSeed()
+				: resumed != null ? resumed.getGameSeed()
+				: Long.getLong("mole.seed", new SplittableRandom().nextLong());
+		if (RECORD_PATH != null && replay == null && !ENDLESS) {
+			try {
+				recorder = new ReplayRecorder(new BufferedOutputStream(Files.newOutputStream(Path.of(RECORD_PATH))),
+						gameSeed, difficulty);
+			} catch (IOException e) {
+				System.err.println("Cannot record to " + RECORD_PATH + ": " + e.getMessage());
+			}
+		}
+		// Watching a replay is not a new game
+		this.leaderboard = replay == null ? openLeaderboard() : null;
+		this.saver = SAVE_GAME ? new SaveGame(SaveGame.defaultPath(), gameSeed) : null;
+		if (saver != null) {
+			// Lets the checkpoints still queued reach the disk when the window closes
+			Runtime.getRuntime().addShutdownHook(new Thread(saver::close, "mole-save-flush"));
+		}
+		this.engine = new GameEngine(difficulty, display);
+		this.preloader = ENDLESS ? null : new LevelPreloader(this::generateLevel, Level.SKY_HEIGHT, LEVELS_PRELOADED);
+		if (preloader != null) {
+			preloader.preload(resumed != null ? resumed.getLevel().getNumber() + 1 : 1);
+		}
 		try {
 			this.inputHandler = new InputHandler();
-			this.g = new GameGraphics(INITIAL_GRID_WIDTH, INITIAL_GRID_HEIGHT, BLOCK_SIZE, inputHandler);
+			this.world = new WorldGrid(difficulty.getInitialGridWidth(), difficulty.getInitialGridHeight());
+			this.g = TERMINAL ? TerminalDisplay.open(world, inputHandler)
+					: new GameGraphics(world, BLOCK_SIZE, inputHandler, ACTIVE_RENDERING_FPS);
+			g.updateTitle("Mole Game (seed " + gameSeed + ")");
 		} catch (Exception e) {
 			if (g != null) {
-				g.showError("Failed to initialize GameGraphics: " + e.getMessage());
+				g.showError("Failed to initialize the display: " + e.getMessage());
 			} else {
-				System.err.println("Failed to initialize GameGraphics: " + e.getMessage());
+				System.err.println("Failed to initialize the display: " + e.getMessage());
 			}
 			System.exit(1);
 		}
@@ -48,231 +170,302 @@ public class Mole {
 			String choice = m.g.showInputDialog("Do you want to play again? (y/n)");
 			if (choice == null || !choice.equalsIgnoreCase("y")) {
 				m.g.showMessage("Thanks for playing!");
+				if (TERMINAL) {
+					// A terminal has no window to leave open, so give it back with the message below the game
+					m.g.dispose();
+				}
 				break;
 			}
 		}
 	}
 
 	public void startGame() {
-		int level = 1;
+		if (ENDLESS) {
+			digEndless();
+			return;
+		}
+		int level = resumed != null ? resumed.getLevel().getNumber() : 1;
 		while (true) {
-			g.showMessage("Starting Level " + level);
-			int newGridWidth = INITIAL_GRID_WIDTH + level * 5;
-			int newGridHeight = INITIAL_GRID_HEIGHT + level * 5;
-			g.resizeGrid(newGridWidth, newGridHeight);
+			if (replay != null) {
+				if (level > replay.getTracks().size()) {
+					g.showMessage("End of replay");
+					preloader.close();
+					g.showGameOverScreen(engine.getScore());
+					break;
+				}
+				replayTrack = replay.getTracks().get(level - 1);
+				replayCursor = 0;
+			}
+			g.showMessage((resumed != null ? "Resuming Level " : "Starting Level ") + level);
 			drawWorld(level);
+			if (recorder != null) {
+				recorder.startLevel(level);
+			}
 			boolean success = dig(level);
+			if (recorder != null) {
+				recorder.endLevel(engine.getTick());
+			}
 			if (success) {
 				g.showMessage("Level " + level + " completed!");
 				level++;
 			} else {
-				g.showGameOverScreen(score);
+				preloader.close();
+				if (recorder != null) {
+					recorder.close();
+				}
+				if (saver != null) {
+					// A finished game has nothing left to resume
+					saver.discard();
+					saver.close();
+				}
+				g.showGameOverScreen(engine.getScore(), recordScore(level - 1));
 				break;
 			}
 		}
 	}
 
-	public void drawWorld(int level) {
-		System.out.println("Starting drawWorld for level " + level);
-
-		// Clear the grid first
-		g.rectangle(0, 0, g.getGridWidth(), g.getGridHeight(), Color.WHITE);
-
-		// Draw sky and soil
-		System.out.println("Drawing sky and soil");
-		g.rectangle(0, 0, g.getGridWidth(), SKY_HEIGHT, ColorConstants.SKY);
-		g.rectangle(0, SKY_HEIGHT, g.getGridWidth(), g.getGridHeight() - SKY_HEIGHT, ColorConstants.SOIL);
-
-		// Place obstacles
-		int obstacleCount = INITIAL_OBSTACLE_COUNT + level * OBSTACLE_INCREASE_PER_LEVEL;
-		System.out.println("Placing " + obstacleCount + " obstacles");
-		placeRandomBlocks(obstacleCount, ColorConstants.OBSTACLE, SKY_HEIGHT, g.getGridHeight());
-
-		// Place power-ups
-		int powerUpCount = INITIAL_POWER_UP_COUNT + level;
-		System.out.println("Placing " + powerUpCount + " power-ups");
-		placeRandomBlocks(powerUpCount, ColorConstants.POWER_UP, SKY_HEIGHT, g.getGridHeight());
+	private static Leaderboard openLeaderboard() {
+		try {
+			return new Leaderboard(Leaderboard.defaultPath(), HIGH_SCORES_SHOWN);
+		} catch (IOException | RuntimeException e) {
+			System.err.println("High scores will not be saved: " + e.getMessage());
+			return null;
+		}
+	}
 
-		// Place goal
-		int goalX, goalY;
-		do {
-			goalX = (int) (Math.random() * g.getGridWidth());
-			goalY = SKY_HEIGHT + (int) (Math.random() * (g.getGridHeight() - SKY_HEIGHT));
-		} while (g.getBlockColor(goalX, goalY) != ColorConstants.SOIL);
-		System.out.println("Placing goal at (" + goalX + ", " + goalY + ")");
-		g.block(goalX, goalY, ColorConstants.GOAL);
+	private static SaveGame.Resume loadSave() {
+		try {
+			return SaveGame.load(SaveGame.defaultPath());
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Cannot resume the saved game: " + e.getMessage());
+			return null;
+		}
+	}
 
-		// Place the mole LAST to ensure it's visible
-		int startX = g.getGridWidth() / 2;
-		int startY = SKY_HEIGHT + 1;
-		System.out.println("Placing mole at (" + startX + ", " + startY + ")");
-		g.block(startX, startY, ColorConstants.MOLE);
+	/**
+	 * Saves the finished game to the leaderboard and returns the table of
+	 * best scores to show, or null if there is no leaderboard.
+	 */
+	private String recordScore(int levelsCompleted) {
+		if (leaderboard == null) {
+			return null;
+		}
+		try (leaderboard) {
+			Leaderboard.Entry entry = leaderboard.record(Leaderboard.LEVELS, gameSeed, engine.getScore(),
+					levelsCompleted);
+			StringBuilder table = new StringBuilder("High scores:");
+			int rank = 1;
+			for (Leaderboard.Entry best : leaderboard.top(Leaderboard.LEVELS)) {
+				table.append('\n').append(rank++).append(". ").append(best.getScore())
+						.append(" (level ").append(best.getLevels() + 1).append(")");
+				if (best.getTimeMillis() == entry.getTimeMillis() && best.getSeed() == gameSeed) {
+					table.append("  <- you");
+				}
+			}
+			return table.toString();
+		} catch (RuntimeException e) {
+			System.err.println("Failed to save the score: " + e.getMessage());
+			return null;
+		}
+	}
 
-		// Force a repaint
-		g.repaint();
+	/**
+	 * Switches to the given level. Levels are normally generated ahead of
+	 * time by the preloader, so this is just a swap of the world reference.
+	 */
+	public void drawWorld(int level) {
+		currentLevel = resumed != null ? resumed.getLevel() : preloader.take(level);
+		world = currentLevel.getWorld();
+		// A new world is a full redraw
+		g.setWorld(world);
 	}
 
-	private void placeRandomBlocks(int count, Color color, int minY, int maxY) {
-		for (int i = 0; i < count; i++) {
-			int x = (int) (Math.random() * g.getGridWidth());
-			int y = minY + (int) (Math.random() * (maxY - minY));
-			if (g.getBlockColor(x, y) == ColorConstants.SOIL) { // Only place if spot is empty soil
-				g.block(x, y, color);
+	/**
+	 * Plays endless mode: a single level with no goal and no time limit whose
+	 * soil is streamed in chunks as the mole digs. The score is the depth
+	 * reached. Memory stays bounded however deep the mole goes.
+	 */
+	private void digEndless() {
+		int width = difficulty.getInitialGridWidth();
+		ChunkGenerator generator = new ChunkGenerator(width, Level.SKY_HEIGHT, gameSeed);
+		ChunkSpill spill = null;
+		if (SPILL_CHUNKS) {
+			try {
+				spill = ChunkSpill.createTemp(generator.chunkSize());
+			} catch (IOException e) {
+				g.showMessage("Cannot save chunks to disk, far-away tunnels will be forgotten");
+			}
+		}
+		try (ChunkCache chunks = new ChunkCache(generator, ENDLESS_CACHED_CHUNKS, spill)) {
+			endless = new EndlessWorld(chunks, width, ENDLESS_WINDOW_CHUNKS);
+			world = endless.getWindow();
+			world.set(width / 2, Level.SKY_HEIGHT, CellType.MOLE);
+			currentLevel = new Level(1, gameSeed, world, width / 2, Level.SKY_HEIGHT, -1, -1, 0);
+			g.setWorld(world);
+			g.showMessage("Endless mode: dig as deep as you can!");
+			if (leaderboard != null) {
+				// The game ends when the window closes, so the depth is saved on the way out
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					try (leaderboard) {
+						int depth = (int) Math.min(Integer.MAX_VALUE, deepestRow);
+						leaderboard.record(Leaderboard.ENDLESS, gameSeed, depth, depth);
+					}
+				}, "leaderboard-save"));
 			}
+			// Runs until the window is closed
+			dig(1);
 		}
 	}
 
-	private long getRemainingTime(long startTime, long timeLimit) {
-		long elapsedTime = System.currentTimeMillis() - startTime;
-		return timeLimit - elapsedTime;
+	/**
+	 * Builds a level from the game seed. Runs on the preloader thread, so it
+	 * only reads immutable state.
+	 */
+	private Level generateLevel(LevelGenerator generator, int level) {
+		return difficulty.generate(generator, gameSeed, level);
 	}
 
+	/**
+	 * Plays one level and returns true if the mole reached the goal.
+	 *
+	 * The level runs as a fixed-timestep simulation: every tick drains the
+	 * buffered input, feeds the moves to the {@link GameEngine} and then
+	 * advances its clock, so the timer and time-up check advance even when no
+	 * key is pressed. Between ticks the thread sleeps until the next tick is due.
+	 */
 	public boolean dig(int level) {
-		logger.info("Starting dig method for level " + level);
-		int x = g.getGridWidth() / 2;
-		int y = SKY_HEIGHT + 1; // Start just below sky
-		int moves = 0;
-		long startTime = System.currentTimeMillis();
-		long timeLimit = Math.max(MIN_TIME_LIMIT, INITIAL_TIME_LIMIT - (level * TIME_DECREASE_PER_LEVEL));
-		final Object speedBoostLock = new Object();
-		final boolean[] speedBoost = { false };
-		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-
-		try {
-			while (true) {
-				// Update timer display
-				long remainingTime = getRemainingTime(startTime, timeLimit);
-				g.updateTimer(remainingTime / 1000);
-
-				char key = inputHandler.waitForKeyPress();
+		if (resumed != null) {
+			engine.resumeLevel(currentLevel, resumed.getState());
+			resumed = null;
+			g.updateScore(engine.getScore());
+		} else {
+			engine.startLevel(currentLevel);
+		}
+		if (saver != null) {
+			saver.startLevel(currentLevel, engine.saveState());
+		}
+		if (Metrics.ENABLED) {
+			Metrics.resetInput();
+		}
+		paused = false;
+		shownSeconds = -1;
+		clock.start();
 
-				int moveDistance;
-				synchronized (speedBoostLock) {
-					moveDistance = speedBoost[0] ? 2 : 1;
+		while (true) {
+			if (paused) {
+				waitForResume();
+				continue;
+			}
+			int due = clock.advance();
+			for (int i = 0; i < due && !paused; i++) {
+				int result = tick();
+				if (result != GameEngine.RUNNING) {
+					return result == GameEngine.WON;
 				}
+			}
+			LockSupport.parkNanos(clock.nanosUntilNextTick());
+		}
+	}
 
-				Map<Character, int[]> movementMap = Map.of(
-						'w', new int[] { 0, -1 },
-						'a', new int[] { -1, 0 },
-						's', new int[] { 0, 1 },
-						'd', new int[] { 1, 0 });
-
-				Color blockColor = null;
-				int newX = x, newY = y;
-
-				if (key == 'p') {
-					g.showPauseScreen("Game Paused. Press 'r' to resume.");
-					while (g.waitForKey() != 'r') {
-						// Wait for 'r' key
-					}
-					g.hidePauseScreen();
-					continue;
+	private int tick() {
+		// Apply the input that arrived since the previous tick, in order
+		pendingKeyCount = 0;
+		inputHandler.drain(collectPressedKeys);
+		int result = GameEngine.RUNNING;
+		for (int i = 0; i < pendingKeyCount && result == GameEngine.RUNNING; i++) {
+			char key = pendingKeys[i];
+			if (key == 'p') {
+				pause();
+				break;
+			}
+			if (key == '+' || key == '=') {
+				g.zoomIn();
+			} else if (key == '-') {
+				g.zoomOut();
+			} else if (key == '`') {
+				g.toggleMetricsOverlay();
+			} else if (replayTrack == null) {
+				if (recorder != null) {
+					recorder.key(engine.getTick(), key);
 				}
+				if (Metrics.ENABLED) {
+					long start = System.nanoTime();
+					result = engine.move(key);
+					Metrics.MOVE_NANOS.record(System.nanoTime() - start);
+					Metrics.inputApplied(pendingKeyNanos[i]);
+				} else {
+					result = engine.move(key);
+				}
+			}
+		}
+		// During playback the moves come from the recording instead of the keyboard
+		while (replayTrack != null && result == GameEngine.RUNNING && !paused
+				&& replayCursor < replayTrack.getKeyCount()
+				&& replayTrack.getTick(replayCursor) <= engine.getTick()) {
+			result = engine.move(replayTrack.getKey(replayCursor++));
+		}
+		if (result == GameEngine.RUNNING && !paused) {
+			// Runs timed effects too, so their cell changes go out with the moves
+			result = engine.tick();
+			if (saver != null && result == GameEngine.RUNNING && engine.getTick() % CHECKPOINT_TICKS == 0) {
+				saver.checkpoint(engine.saveState());
+			}
+		}
+		if (endless != null) {
+			followEndless();
+		}
+		g.followMole(engine.getMoleX(), engine.getMoleY());
+		g.repaintDirty();
+		if (result != GameEngine.RUNNING || paused) {
+			return result;
+		}
 
-				if (movementMap.containsKey(key)) {
-					int[] delta = movementMap.get(key);
-					newX += delta[0] * moveDistance;
-					newY += delta[1] * moveDistance;
-
-					// Check boundaries
-					if (newX < 0 || newX >= g.getGridWidth() || newY < 0 || newY >= g.getGridHeight()) {
-						System.out.println("Cannot move outside boundaries");
-						continue;
-					}
-
-					if (isSky(newY)) {
-						g.showMessage("You can't dig in the sky!");
-						continue;
-					}
-
-					// Check for obstacles along the path
-					boolean pathBlocked = false;
-					int steps = Math.max(Math.abs(newX - x), Math.abs(newY - y));
-					for (int i = 1; i <= steps; i++) {
-						int intermediateX = x + (newX - x) * i / steps;
-						int intermediateY = y + (newY - y) * i / steps;
-						if (g.getBlockColor(intermediateX, intermediateY) == ColorConstants.OBSTACLE) {
-							pathBlocked = true;
-							break;
-						}
-					}
-					if (pathBlocked) {
-						g.showMessage("You can't dig through obstacles, even with a power-up!");
-						continue;
-					}
-
-					blockColor = g.getBlockColor(newX, newY);
-					if (blockColor == ColorConstants.OBSTACLE) {
-						g.showMessage("You hit an obstacle!");
-						continue;
-					}
-
-					// Fill all cells between old and new position with TUNNEL
-					for (int i = 1; i <= steps; i++) {
-						int intermediateX = x + (newX - x) * i / steps;
-						int intermediateY = y + (newY - y) * i / steps;
-						// Only fill with tunnel if not the destination
-						if (i < steps) {
-							g.block(intermediateX, intermediateY, ColorConstants.TUNNEL);
-						}
-					}
-					// Remove the mole from the current position (turn to tunnel)
-					g.block(x, y, ColorConstants.TUNNEL);
-
-					// Update position and increment moves
-					x = newX;
-					y = newY;
-					moves++;
-
-					// Draw the mole at the new position
-					g.block(x, y, ColorConstants.MOLE);
+		if (endless != null) {
+			return GameEngine.RUNNING;
+		}
 
-					// Handle power-up
-					if (blockColor == ColorConstants.POWER_UP) {
-						logger.info("Power-up collected at position (" + newX + ", " + newY + ")");
-						synchronized (speedBoostLock) {
-							speedBoost[0] = true;
-						}
-						scheduler.schedule(() -> {
-							synchronized (speedBoostLock) {
-								speedBoost[0] = false;
-							}
-						}, POWER_UP_DURATION, TimeUnit.SECONDS);
-					}
+		// Update timer display when the shown value changes
+		long seconds = engine.getRemainingTicks() / GameEngine.TICKS_PER_SECOND;
+		if (seconds != shownSeconds) {
+			shownSeconds = seconds;
+			g.updateTimer(seconds);
+		}
+		return GameEngine.RUNNING;
+	}
 
-					// Handle goal
-					if (blockColor == ColorConstants.GOAL) {
-						long endTime = System.currentTimeMillis();
-						logger.info("Goal reached in " + moves + " moves and " + (endTime - startTime) / 1000
-								+ " seconds.");
-						g.showMessage("Level completed in " + moves + " moves!");
-						score += 100 * level;
-						g.updateScore(score);
-						return true;
-					}
-				}
+	private void followEndless() {
+		int rows = endless.follow(engine.getMoleY());
+		if (rows != 0) {
+			engine.scroll(rows);
+			g.scrollWorld(rows);
+		}
+		long depth = endless.getTopRow() + engine.getMoleY() - Level.SKY_HEIGHT;
+		if (depth > deepestRow) {
+			deepestRow = depth;
+			g.updateScore((int) Math.min(Integer.MAX_VALUE, depth));
+		}
+	}
 
-				// Check if time is up
-				if (System.currentTimeMillis() - startTime > timeLimit) {
-					logger.warning("Time's up! Level failed.");
-					g.showMessage("Time's up! Level failed.");
-					return false;
-				}
-			}
-		} finally {
-			scheduler.shutdown();
-			try {
-				if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
-					scheduler.shutdownNow();
-				}
-			} catch (InterruptedException e) {
-				scheduler.shutdownNow();
-				Thread.currentThread().interrupt();
-			}
+	private void pause() {
+		paused = true;
+		clock.pause();
+		if (saver != null) {
+			saver.checkpoint(engine.saveState());
 		}
+		g.showPauseScreen("Game Paused. Press 'r' to resume.");
 	}
 
-	private boolean isSky(int y) {
-		return y < SKY_HEIGHT;
+	private void waitForResume() {
+		pendingKeyCount = 0;
+		inputHandler.drain(collectPressedKeys);
+		for (int i = 0; i < pendingKeyCount; i++) {
+			if (pendingKeys[i] == 'r') {
+				paused = false;
+				g.hidePauseScreen();
+				clock.resume();
+				return;
+			}
+		}
+		inputHandler.awaitInput(clock.getTickNanos());
 	}
-}
\ No newline at end of file
+}
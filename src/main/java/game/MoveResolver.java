@@ -0,0 +1,114 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Validates and applies mole moves on a {@link WorldGrid} without allocating.
+ *
+ * Keys map to directions through a precomputed table, and a move of any
+ * distance is resolved by stepping a flat cell index along the direction's
+ * stride: every cell on the path is read once to look for obstacles, and
+ * written once to dig the tunnel if the move goes ahead. The result of the
+ * last move is kept in fields rather than returned as an object.
+ *
+ * Instances are not thread-safe; the engine owns one.
+ */
+public class MoveResolver {
+	public static final int MOVED = 0;
+	public static final int NOT_A_MOVE = 1;
+	public static final int OUT_OF_BOUNDS = 2;
+	public static final int INTO_SKY = 3;
+	public static final int BLOCKED = 4;
+
+	private static final int[] DX = { 0, -1, 0, 1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+	// Direction index per ASCII key, -1 for keys that are not moves
+	private static final byte[] DIRECTIONS = new byte[128];
+	static {
+		Arrays.fill(DIRECTIONS, (byte) -1);
+		DIRECTIONS['w'] = 0;
+		DIRECTIONS['a'] = 1;
+		DIRECTIONS['s'] = 2;
+		DIRECTIONS['d'] = 3;
+	}
+
+	private int skyHeight;
+	private int x;
+	private int y;
+	private byte target;
+
+	public MoveResolver(int skyHeight) {
+		this.skyHeight = skyHeight;
+	}
+
+	/**
+	 * Sets how many rows at the top of the world are sky, as when an
+	 * {@link EndlessWorld} scrolls the sky out of its window.
+	 */
+	public void setSkyHeight(int skyHeight) {
+		this.skyHeight = skyHeight;
+	}
+
+	/**
+	 * Returns the direction index of {@code key}, or -1 if it is not a move key.
+	 */
+	public static int direction(char key) {
+		return key < DIRECTIONS.length ? DIRECTIONS[key] : -1;
+	}
+
+	/**
+	 * Moves the mole at ({@code fromX}, {@code fromY}) {@code distance} cells
+	 * in the direction of {@code key}. On {@link #MOVED} the cells it left and
+	 * passed through become tunnel, the landing cell becomes the mole, and
+	 * {@link #getX()}, {@link #getY()} and {@link #getTarget()} describe the
+	 * landing. Any other result leaves the world untouched.
+	 */
+	public int resolve(WorldGrid world, int fromX, int fromY, char key, int distance) {
+		int dir = direction(key);
+		if (dir < 0) {
+			return NOT_A_MOVE;
+		}
+		int toX = fromX + DX[dir] * distance;
+		int toY = fromY + DY[dir] * distance;
+		if (!world.inBounds(toX, toY)) {
+			return OUT_OF_BOUNDS;
+		}
+		// Moves are straight lines, so if the landing is below the sky the whole path is
+		if (toY < skyHeight) {
+			return INTO_SKY;
+		}
+		int stride = DX[dir] + DY[dir] * world.getWidth();
+		int from = world.index(fromX, fromY);
+		int cell = from;
+		for (int i = 0; i < distance; i++) {
+			cell += stride;
+			if (world.get(cell) == CellType.OBSTACLE) {
+				return BLOCKED;
+			}
+		}
+		target = world.get(cell);
+		world.set(from, CellType.TUNNEL);
+		for (int i = 1, passed = from + stride; i < distance; i++, passed += stride) {
+			world.set(passed, CellType.TUNNEL);
+		}
+		world.set(cell, CellType.MOLE);
+		x = toX;
+		y = toY;
+		return MOVED;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns what the landing cell held before the mole moved onto it.
+	 */
+	public byte getTarget() {
+		return target;
+	}
+}
@@ -0,0 +1,150 @@
+package game;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+
+/**
+ * Non-blocking on-screen notifications ("toasts") for the game panel.
+ *
+ * Messages are queued with a time to live, stacked top-down with the newest
+ * first, and fade out over their last {@link #FADE_NANOS}. Posting never
+ * blocks the game thread; the renderer copies whatever is live at paint time
+ * and draws it without holding the lock.
+ * Posting the same text as the newest toast refreshes it instead of stacking
+ * a duplicate.
+ */
+public class Notifications {
+	public static final long DEFAULT_TTL_NANOS = 2_000_000_000L;
+	public static final long FADE_NANOS = 500_000_000L;
+	public static final int MAX_VISIBLE = 5;
+
+	private static final Font TOAST_FONT = new Font("Arial", Font.BOLD, 16);
+	private static final int PADDING = 8;
+	private static final int SPACING = 6;
+
+	// Ring of the most recent toasts; index 0 of the ring is the oldest live one
+	private final String[] messages = new String[MAX_VISIBLE];
+	private final long[] expiresAt = new long[MAX_VISIBLE];
+	private int first;
+	private int count;
+
+	public void post(String message, long now) {
+		post(message, now, DEFAULT_TTL_NANOS);
+	}
+
+	public synchronized void post(String message, long now, long ttlNanos) {
+		expire(now);
+		if (count > 0) {
+			int newest = (first + count - 1) % MAX_VISIBLE;
+			if (messages[newest].equals(message)) {
+				expiresAt[newest] = now + ttlNanos;
+				return;
+			}
+		}
+		if (count == MAX_VISIBLE) {
+			// Drop the oldest to make room
+			messages[first] = null;
+			first = (first + 1) % MAX_VISIBLE;
+			count--;
+		}
+		int slot = (first + count) % MAX_VISIBLE;
+		messages[slot] = message;
+		expiresAt[slot] = now + ttlNanos;
+		count++;
+	}
+
+	/**
+	 * Returns the number of toasts still visible at {@code now}.
+	 */
+	public synchronized int activeCount(long now) {
+		expire(now);
+		return count;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < MAX_VISIBLE; i++) {
+			messages[i] = null;
+		}
+		first = 0;
+		count = 0;
+	}
+
+	/**
+	 * Returns the height of the band the toasts are drawn in.
+	 */
+	public static int bandHeight(FontMetrics metrics) {
+		return MAX_VISIBLE * (metrics.getHeight() + 2 * PADDING + SPACING);
+	}
+
+	public static Font getFont() {
+		return TOAST_FONT;
+	}
+
+	/**
+	 * Draws the live toasts centered horizontally, starting at {@code top}.
+	 */
+	public void paint(Graphics2D g, int surfaceWidth, int top, long now) {
+		String[] live = new String[MAX_VISIBLE];
+		long[] liveRemaining = new long[MAX_VISIBLE];
+		int shown;
+		synchronized (this) {
+			expire(now);
+			// Newest first
+			for (shown = 0; shown < count; shown++) {
+				int slot = (first + count - 1 - shown) % MAX_VISIBLE;
+				live[shown] = messages[slot];
+				liveRemaining[shown] = expiresAt[slot] - now;
+			}
+		}
+		if (shown == 0) {
+			return;
+		}
+		Composite original = g.getComposite();
+		g.setFont(TOAST_FONT);
+		FontMetrics metrics = g.getFontMetrics();
+		int boxHeight = metrics.getHeight() + 2 * PADDING;
+		int y = top;
+		for (int i = 0; i < shown; i++) {
+			long remaining = liveRemaining[i];
+			float alpha = remaining >= FADE_NANOS ? 1f : (float) remaining / FADE_NANOS;
+			if (alpha < 1f) {
+				g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+			} else {
+				g.setComposite(original);
+			}
+			String message = live[i];
+			int boxWidth = metrics.stringWidth(message) + 2 * PADDING;
+			int x = (surfaceWidth - boxWidth) / 2;
+			g.setColor(ColorConstants.TOAST_BACKGROUND);
+			g.fillRoundRect(x, y, boxWidth, boxHeight, 12, 12);
+			g.setColor(ColorConstants.TOAST_TEXT);
+			g.drawString(message, x + PADDING, y + PADDING + metrics.getAscent());
+			y += boxHeight + SPACING;
+		}
+		g.setComposite(original);
+	}
+
+	/**
+	 * Drops every toast that expired by {@code now}, keeping the rest in
+	 * order. Toasts can have different lifetimes, so any of them may go.
+	 */
+	private void expire(long now) {
+		int live = 0;
+		for (int i = 0; i < count; i++) {
+			int slot = (first + i) % MAX_VISIBLE;
+			if (expiresAt[slot] - now > 0) {
+				int to = (first + live) % MAX_VISIBLE;
+				messages[to] = messages[slot];
+				expiresAt[to] = expiresAt[slot];
+				live++;
+			}
+		}
+		for (int i = live; i < count; i++) {
+			messages[(first + i) % MAX_VISIBLE] = null;
+		}
+		count = live;
+	}
+}
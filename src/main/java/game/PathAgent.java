@@ -0,0 +1,87 @@
+package game;
+
+import java.util.SplittableRandom;
+
+/**
+ * A simulated player that follows the shortest path to the goal.
+ *
+ * At the start of each level it labels every cell with its distance to the
+ * goal, then on each move picks the direction whose landing cell is closest
+ * to the goal, never jumping over the goal while boosted. It presses a key
+ * only every {@code ticksPerMove} ticks and picks a random direction with
+ * probability {@code mistakeRate}, which together approximate the speed and
+ * accuracy of a human player.
+ */
+public class PathAgent implements Agent {
+	private static final char[] KEYS = { 'w', 'a', 's', 'd' };
+	private static final int[] DX = { 0, -1, 0, 1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	private final int ticksPerMove;
+	private final double mistakeRate;
+	private final SplittableRandom random;
+	private final PathFinder pathFinder = new PathFinder();
+	private int cooldown;
+
+	public PathAgent(int ticksPerMove, double mistakeRate, long seed) {
+		this.ticksPerMove = Math.max(1, ticksPerMove);
+		this.mistakeRate = mistakeRate;
+		this.random = new SplittableRandom(seed);
+	}
+
+	@Override
+	public void startLevel(GameEngine engine) {
+		WorldGrid world = engine.getWorld();
+		Level level = engine.getLevel();
+		pathFinder.load(world);
+		pathFinder.bfs(world.index(level.getGoalX(), level.getGoalY()), -1);
+		cooldown = ticksPerMove;
+	}
+
+	@Override
+	public char nextKey(GameEngine engine) {
+		if (--cooldown > 0) {
+			return 0;
+		}
+		cooldown = ticksPerMove;
+		if (random.nextDouble() < mistakeRate) {
+			return KEYS[random.nextInt(KEYS.length)];
+		}
+		WorldGrid world = engine.getWorld();
+		int distance = engine.isBoosted() ? 2 : 1;
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int dir = 0; dir < KEYS.length; dir++) {
+			int landing = landing(engine, world, dir, distance);
+			if (landing >= 0) {
+				int toGoal = pathFinder.distance(landing);
+				if (toGoal != PathFinder.UNREACHABLE && toGoal < bestDistance) {
+					bestDistance = toGoal;
+					best = dir;
+				}
+			}
+		}
+		// With no safe move, wait for the boost to run out
+		return best < 0 ? 0 : KEYS[best];
+	}
+
+	/**
+	 * Returns the cell a move in {@code dir} would land on, or -1 if the move
+	 * would be refused or would tunnel over the goal, which erases it.
+	 */
+	private int landing(GameEngine engine, WorldGrid world, int dir, int distance) {
+		int x = engine.getMoleX();
+		int y = engine.getMoleY();
+		for (int step = 1; step <= distance; step++) {
+			x += DX[dir];
+			y += DY[dir];
+			if (!world.inBounds(x, y) || !pathFinder.isPassable(world.index(x, y))) {
+				return -1;
+			}
+			if (step < distance && pathFinder.distance(world.index(x, y)) == 0) {
+				return -1;
+			}
+		}
+		return world.index(x, y);
+	}
+}
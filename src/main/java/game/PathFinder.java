@@ -0,0 +1,190 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Shortest paths for the mole over a {@link WorldGrid}.
+ *
+ * {@link #load(WorldGrid)} snapshots which cells the mole can enter into a
+ * bitset; BFS then runs over that bitset with 4-way unit moves. All
+ * buffers are reused between calls, so repeated queries on grids of the
+ * same size allocate nothing. A 200x200 grid is a full BFS over 40k cells,
+ * well inside a millisecond.
+ *
+ * Instances are not thread-safe; use one per thread.
+ */
+public class PathFinder {
+	public static final int UNREACHABLE = -1;
+
+	private int width;
+	private int height;
+	private int size;
+	private long[] passable = new long[0];
+	private int[] dist = new int[0];
+	private int[] queue = new int[0];
+	private int[] parent = new int[0];
+	private int[] deque = new int[0];
+
+	/**
+	 * Returns whether the mole may enter a cell of this type.
+	 */
+	public static boolean isPassable(byte type) {
+		return type != CellType.OBSTACLE && type != CellType.SKY && type != CellType.EMPTY;
+	}
+
+	/**
+	 * Captures the passable cells of {@code world}. Must be called again after the world changes.
+	 */
+	public void load(WorldGrid world) {
+		width = world.getWidth();
+		height = world.getHeight();
+		size = world.size();
+		int words = (size + 63) >>> 6;
+		if (passable.length < words) {
+			passable = new long[words];
+		} else {
+			Arrays.fill(passable, 0, words, 0L);
+		}
+		if (dist.length < size) {
+			dist = new int[size];
+			queue = new int[size];
+			parent = new int[size];
+		}
+		for (int i = 0; i < size; i++) {
+			if (isPassable(world.get(i))) {
+				passable[i >>> 6] |= 1L << i;
+			}
+		}
+	}
+
+	public boolean isPassable(int index) {
+		return (passable[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Breadth-first search from {@code from}. Stops as soon as {@code to} is
+	 * reached; pass -1 to label the whole reachable region, which can then be
+	 * read with {@link #distance(int)}.
+	 *
+	 * @return the number of moves from {@code from} to {@code to}, or {@link #UNREACHABLE}
+	 */
+	public int bfs(int from, int to) {
+		Arrays.fill(dist, 0, size, UNREACHABLE);
+		int head = 0;
+		int tail = 0;
+		dist[from] = 0;
+		queue[tail++] = from;
+		while (head < tail) {
+			int cell = queue[head++];
+			if (cell == to) {
+				return dist[cell];
+			}
+			int next = dist[cell] + 1;
+			int x = cell % width;
+			if (x > 0) {
+				tail = visit(cell - 1, next, tail);
+			}
+			if (x < width - 1) {
+				tail = visit(cell + 1, next, tail);
+			}
+			if (cell >= width) {
+				tail = visit(cell - width, next, tail);
+			}
+			if (cell < size - width) {
+				tail = visit(cell + width, next, tail);
+			}
+		}
+		return to < 0 ? UNREACHABLE : dist[to];
+	}
+
+	private int visit(int cell, int d, int tail) {
+		if (dist[cell] == UNREACHABLE && isPassable(cell)) {
+			dist[cell] = d;
+			queue[tail++] = cell;
+		}
+		return tail;
+	}
+
+	/**
+	 * Returns the distance labelled by the last {@link #bfs(int, int)}.
+	 */
+	public int distance(int index) {
+		return dist[index];
+	}
+
+	/**
+	 * Makes {@code to} reachable from {@code from} by turning the fewest
+	 * possible obstacles back into soil, found with a 0-1 BFS where entering
+	 * an obstacle costs one and anything else costs nothing. Sky cells are
+	 * never crossed. Reloads the passability of {@code world} afterwards.
+	 *
+	 * @return the number of obstacles removed
+	 */
+	public int repair(WorldGrid world, int from, int to) {
+		load(world);
+		Arrays.fill(dist, 0, size, Integer.MAX_VALUE);
+		// Deque in a ring of 2 * size slots: zero-cost moves go to the front, obstacle moves to the back
+		int capacity = size * 2;
+		if (deque.length < capacity) {
+			deque = new int[capacity];
+		}
+		int head = 0;
+		int count = 0;
+		dist[from] = 0;
+		parent[from] = -1;
+		deque[head] = from;
+		count++;
+		while (count > 0) {
+			int cell = deque[head];
+			head = (head + 1) % capacity;
+			count--;
+			if (cell == to) {
+				break;
+			}
+			int x = cell % width;
+			for (int dir = 0; dir < 4; dir++) {
+				int next;
+				if (dir == 0 && x > 0) {
+					next = cell - 1;
+				} else if (dir == 1 && x < width - 1) {
+					next = cell + 1;
+				} else if (dir == 2 && cell >= width) {
+					next = cell - width;
+				} else if (dir == 3 && cell < size - width) {
+					next = cell + width;
+				} else {
+					continue;
+				}
+				byte type = world.get(next);
+				if (type == CellType.SKY || type == CellType.EMPTY) {
+					continue;
+				}
+				int cost = type == CellType.OBSTACLE ? 1 : 0;
+				int d = dist[cell] + cost;
+				if (d < dist[next]) {
+					dist[next] = d;
+					parent[next] = cell;
+					if (cost == 0) {
+						head = (head - 1 + capacity) % capacity;
+						deque[head] = next;
+					} else {
+						deque[(head + count) % capacity] = next;
+					}
+					count++;
+				}
+			}
+		}
+		if (dist[to] == Integer.MAX_VALUE) {
+			return 0;
+		}
+		int removed = 0;
+		for (int cell = to; cell != -1; cell = parent[cell]) {
+			if (world.get(cell) == CellType.OBSTACLE) {
+				world.set(cell, CellType.SOIL);
+				removed++;
+			}
+		}
+		load(world);
+		return removed;
+	}
+}
@@ -0,0 +1,188 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recorded game: the game seed plus, for every level played, the keys fed
+ * to the {@link GameEngine} and the tick each one was applied on.
+ *
+ * Levels are generated from the seed and the engine is deterministic, so
+ * replaying the keys on the same ticks reproduces the game exactly.
+ *
+ * File format, written by {@link ReplayRecorder}: the magic bytes
+ * {@code MOLR}, a version byte, the 8-byte game seed, the 4-byte number of
+ * enemies per level and a byte that is 1 if debris was falling, then one
+ * block per level. A block is the level number as a varint followed by entries, each a
+ * varint {@code delta << 1 | end}, where {@code delta} is the number of ticks
+ * since the previous entry of the level. A key entry ({@code end == 0}) is
+ * followed by the key as a varint; an end entry ({@code end == 1}) closes the
+ * level on the tick it finished. A typical key costs two bytes.
+ */
+public class Replay {
+	static final byte[] MAGIC = { 'M', 'O', 'L', 'R' };
+	static final int VERSION = 2;
+
+	/**
+	 * The keys of one level.
+	 */
+	public static final class Track {
+		private final int level;
+		private long[] ticks = new long[64];
+		private char[] keys = new char[64];
+		private int count;
+		private long endTick = -1;
+
+		Track(int level) {
+			this.level = level;
+		}
+
+		void add(long tick, char key) {
+			if (count == ticks.length) {
+				ticks = Arrays.copyOf(ticks, count * 2);
+				keys = Arrays.copyOf(keys, count * 2);
+			}
+			ticks[count] = tick;
+			keys[count] = key;
+			count++;
+		}
+
+		public int getLevel() {
+			return level;
+		}
+
+		public int getKeyCount() {
+			return count;
+		}
+
+		public long getTick(int i) {
+			return ticks[i];
+		}
+
+		public char getKey(int i) {
+			return keys[i];
+		}
+
+		/**
+		 * Returns the tick the level finished on, or -1 if the recording stopped mid-level.
+		 */
+		public long getEndTick() {
+			return endTick;
+		}
+	}
+
+	private final long gameSeed;
+	private final int enemiesPerLevel;
+	private final boolean fallingDebris;
+	private final List<Track> tracks;
+
+	Replay(long gameSeed, int enemiesPerLevel, boolean fallingDebris, List<Track> tracks) {
+		this.gameSeed = gameSeed;
+		this.enemiesPerLevel = enemiesPerLevel;
+		this.fallingDebris = fallingDebris;
+		this.tracks = tracks;
+	}
+
+	public long getGameSeed() {
+		return gameSeed;
+	}
+
+	public int getEnemiesPerLevel() {
+		return enemiesPerLevel;
+	}
+
+	public boolean hasFallingDebris() {
+		return fallingDebris;
+	}
+
+	/**
+	 * Returns {@code difficulty} with the settings the game was recorded with,
+	 * which the levels and the simulation depend on.
+	 */
+	public Difficulty configure(Difficulty difficulty) {
+		return difficulty.withEnemiesPerLevel(enemiesPerLevel).withFallingDebris(fallingDebris);
+	}
+
+	public List<Track> getTracks() {
+		return Collections.unmodifiableList(tracks);
+	}
+
+	public static Replay read(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+			return read(in);
+		}
+	}
+
+	public static Replay read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a mole replay");
+		}
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported replay version " + version);
+		}
+		long seed = in.readLong();
+		int enemies = in.readInt();
+		int debris = in.readUnsignedByte();
+		if (enemies < 0 || debris > 1) {
+			throw new IOException("Malformed replay header");
+		}
+		List<Track> tracks = new ArrayList<>();
+		while (true) {
+			long level = readVarint(in, true);
+			if (level < 0) {
+				break;
+			}
+			Track track = new Track((int) level);
+			tracks.add(track);
+			long tick = 0;
+			while (true) {
+				long entry = readVarint(in, true);
+				if (entry < 0) {
+					// Recording stopped in the middle of this level
+					return new Replay(seed, enemies, debris == 1, tracks);
+				}
+				tick += entry >>> 1;
+				if ((entry & 1) != 0) {
+					track.endTick = tick;
+					break;
+				}
+				track.add(tick, (char) readVarint(in, false));
+			}
+		}
+		return new Replay(seed, enemies, debris == 1, tracks);
+	}
+
+	/**
+	 * Reads an unsigned LEB128 varint, or returns -1 at a clean end of stream if allowed.
+	 */
+	private static long readVarint(DataInputStream in, boolean endAllowed) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				if (shift == 0 && endAllowed) {
+					return -1;
+				}
+				throw new EOFException("Truncated replay");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in replay");
+	}
+}
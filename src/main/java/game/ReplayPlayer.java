@@ -0,0 +1,121 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Plays a {@link Replay} back headlessly, as fast as the CPU allows.
+ *
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=game.ReplayPlayer -Dexec.args="game.replay"
+ * </pre>
+ */
+public class ReplayPlayer {
+	/**
+	 * What a replayed game came to.
+	 */
+	public static final class Result {
+		private int levelsPlayed;
+		private int levelsWon;
+		private int score;
+		private long ticks;
+		private int desyncedLevel = -1;
+
+		public int getLevelsPlayed() {
+			return levelsPlayed;
+		}
+
+		public int getLevelsWon() {
+			return levelsWon;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * Returns the total game time replayed, in ticks.
+		 */
+		public long getTicks() {
+			return ticks;
+		}
+
+		/**
+		 * Returns the first level that did not end on its recorded tick, or -1
+		 * if the replay matched the recording throughout.
+		 */
+		public int getDesyncedLevel() {
+			return desyncedLevel;
+		}
+	}
+
+	/**
+	 * Feeds the keys of one level into {@code engine} on their recorded ticks.
+	 * Plays on past the last key until the level ends or {@code limitTick}.
+	 *
+	 * @return the level status afterwards
+	 */
+	public static int playLevel(GameEngine engine, Replay.Track track, long limitTick) {
+		int status = engine.getStatus();
+		for (int i = 0; i < track.getKeyCount() && status == GameEngine.RUNNING; i++) {
+			long tick = track.getTick(i);
+			while (engine.getTick() < tick && status == GameEngine.RUNNING) {
+				status = engine.tick();
+			}
+			if (status == GameEngine.RUNNING) {
+				status = engine.move(track.getKey(i));
+			}
+		}
+		while (status == GameEngine.RUNNING && engine.getTick() < limitTick) {
+			status = engine.tick();
+		}
+		return status;
+	}
+
+	/**
+	 * Replays the game on {@code difficulty}, with the settings recorded in the replay applied to it.
+	 */
+	public static Result play(Replay replay, Difficulty difficulty) {
+		difficulty = replay.configure(difficulty);
+		LevelGenerator generator = new LevelGenerator(Level.SKY_HEIGHT);
+		GameEngine engine = new GameEngine(difficulty, GameListener.NONE);
+		Result result = new Result();
+		for (Replay.Track track : replay.getTracks()) {
+			engine.startLevel(difficulty.generate(generator, replay.getGameSeed(), track.getLevel()));
+			long end = track.getEndTick() >= 0 ? track.getEndTick() : Long.MAX_VALUE;
+			int status = playLevel(engine, track, end);
+			result.levelsPlayed++;
+			result.ticks += engine.getTick();
+			if (track.getEndTick() >= 0 && result.desyncedLevel < 0
+					&& (status == GameEngine.RUNNING || engine.getTick() != track.getEndTick())) {
+				result.desyncedLevel = track.getLevel();
+			}
+			if (status == GameEngine.WON) {
+				result.levelsWon++;
+			} else {
+				break;
+			}
+		}
+		result.score = engine.getScore();
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: ReplayPlayer <replay file>");
+			System.exit(2);
+		}
+		Replay replay = Replay.read(Path.of(args[0]));
+		long start = System.nanoTime();
+		Result result = play(replay, Difficulty.STANDARD);
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Seed " + replay.getGameSeed() + ": " + result.getLevelsWon() + " of "
+				+ result.getLevelsPlayed() + " levels won, score " + result.getScore() + ", "
+				+ result.getTicks() / GameEngine.TICKS_PER_SECOND + " s of play replayed in "
+				+ elapsed / 1_000_000 + " ms");
+		if (result.getDesyncedLevel() >= 0) {
+			System.out.println("Replay diverged from the recording at level " + result.getDesyncedLevel());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Records a game in the {@link Replay} format as it is played.
+ *
+ * Keys are appended to an in-memory buffer, which costs a few array writes
+ * on the game thread and never touches the disk; the buffer is written out
+ * when a level ends.
+ */
+public class ReplayRecorder implements AutoCloseable {
+	private final OutputStream out;
+	private byte[] buffer = new byte[256];
+	private int length;
+	private long lastTick;
+
+	/**
+	 * Starts a recording of the game identified by {@code gameSeed}, played with {@code difficulty}.
+	 */
+	public ReplayRecorder(OutputStream out, long gameSeed, Difficulty difficulty) throws IOException {
+		this.out = out;
+		out.write(Replay.MAGIC);
+		out.write(Replay.VERSION);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (gameSeed >>> shift));
+		}
+		int enemies = difficulty.getEnemiesPerLevel();
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			out.write(enemies >>> shift);
+		}
+		out.write(difficulty.hasFallingDebris() ? 1 : 0);
+		out.flush();
+	}
+
+	public void startLevel(int level) {
+		lastTick = 0;
+		writeVarint(level);
+	}
+
+	/**
+	 * Records {@code key} being applied on {@code tick}, before that tick's clock step.
+	 */
+	public void key(long tick, char key) {
+		writeVarint((tick - lastTick) << 1);
+		writeVarint(key);
+		lastTick = tick;
+	}
+
+	/**
+	 * Closes the current level on the tick it finished and writes it out.
+	 */
+	public void endLevel(long tick) {
+		writeVarint((tick - lastTick) << 1 | 1);
+		flush();
+	}
+
+	private void writeVarint(long value) {
+		if (length + 10 > buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		while ((value & ~0x7FL) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void flush() {
+		try {
+			out.write(buffer, 0, length);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write replay", e);
+		}
+		length = 0;
+	}
+
+	/**
+	 * Writes out what was recorded of an unfinished level and closes the stream.
+	 */
+	@Override
+	public void close() {
+		flush();
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close replay", e);
+		}
+	}
+}
@@ -0,0 +1,624 @@
+package game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the game being played in a file so it can be resumed after the
+ * window closes.
+ *
+ * The file is a header, a snapshot of the level (the {@link State} and
+ * every cell, deflated), then checkpoints that each hold the state again
+ * plus only the cells changed since the checkpoint before. Every record
+ * carries a CRC32, so a record cut short by a crash is ignored on loading
+ * and the game resumes from the checkpoint before it.
+ *
+ * Changed cells are found through a {@link DirtyRegion} attached to the
+ * world with {@link WorldGrid#trackChanges(DirtyRegion)}, so a checkpoint
+ * costs the game thread a copy of those cells and nothing else. Everything
+ * touching the disk happens on a writer thread, which keeps its own copy of
+ * the cells up to date from the checkpoints. Once the checkpoints outgrow
+ * the snapshot, it compacts them by writing a new snapshot from that copy
+ * to a temporary file and moving it over the save. The game thread copies
+ * the whole grid only when a level starts or more cells changed between
+ * two checkpoints than the region tracks.
+ */
+public class SaveGame implements AutoCloseable {
+	private static final int MAGIC = 0x4d4f4c53; // "MOLS"
+	private static final int VERSION = 2;
+	// magic, version, game seed
+	private static final int HEADER_SIZE = 4 + 4 + 8;
+	// length, crc
+	private static final int RECORD_HEADER_SIZE = 4 + 4;
+	private static final byte SNAPSHOT = 1;
+	private static final byte CHECKPOINT = 2;
+	// Cells tracked between two checkpoints before the whole grid is copied instead
+	private static final int TRACKED_CELLS = 1 << 14;
+	// Checkpoints are compacted once they outgrow both the snapshot and this
+	private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+	/**
+	 * Everything besides the cells needed to resume a level: which level it
+	 * is, the settings the game is played with, where the mole and the
+	 * enemies are, and which cells may still fall. Immutable once built, so
+	 * the game thread can hand it to the writer.
+	 */
+	public static final class State {
+		final int levelNumber;
+		final long levelSeed;
+		final int startX;
+		final int startY;
+		final int goalX;
+		final int goalY;
+		final int optimalMoves;
+		final int moleX;
+		final int moleY;
+		final int moves;
+		final long tick;
+		final int score;
+		// Ticks left on the power-up, or 0
+		final long boostTicks;
+		final int[] enemyCells;
+		final byte[] enemyUnder;
+		final int[] enemyWait;
+		final int enemiesPerLevel;
+		final boolean fallingDebris;
+		// The cells the soil physics will look at next tick
+		final int[] activeCells;
+
+		State(Level level, Difficulty difficulty, int moleX, int moleY, int moves, long tick, int score,
+				long boostTicks, int[] enemyCells, byte[] enemyUnder, int[] enemyWait, int[] activeCells) {
+			this(level.getNumber(), level.getSeed(), level.getStartX(), level.getStartY(), level.getGoalX(),
+					level.getGoalY(), level.getOptimalMoves(), moleX, moleY, moves, tick, score, boostTicks,
+					enemyCells, enemyUnder, enemyWait, difficulty.getEnemiesPerLevel(),
+					difficulty.hasFallingDebris(), activeCells);
+		}
+
+		private State(int levelNumber, long levelSeed, int startX, int startY, int goalX, int goalY,
+				int optimalMoves, int moleX, int moleY, int moves, long tick, int score, long boostTicks,
+				int[] enemyCells, byte[] enemyUnder, int[] enemyWait, int enemiesPerLevel, boolean fallingDebris,
+				int[] activeCells) {
+			this.levelNumber = levelNumber;
+			this.levelSeed = levelSeed;
+			this.startX = startX;
+			this.startY = startY;
+			this.goalX = goalX;
+			this.goalY = goalY;
+			this.optimalMoves = optimalMoves;
+			this.moleX = moleX;
+			this.moleY = moleY;
+			this.moves = moves;
+			this.tick = tick;
+			this.score = score;
+			this.boostTicks = boostTicks;
+			this.enemyCells = enemyCells;
+			this.enemyUnder = enemyUnder;
+			this.enemyWait = enemyWait;
+			this.enemiesPerLevel = enemiesPerLevel;
+			this.fallingDebris = fallingDebris;
+			this.activeCells = activeCells;
+		}
+
+		public int getLevelNumber() {
+			return levelNumber;
+		}
+
+		public long getTick() {
+			return tick;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * Returns {@code difficulty} with the settings the saved game was
+		 * played with, which the levels and the simulation depend on.
+		 */
+		public Difficulty configure(Difficulty difficulty) {
+			return difficulty.withEnemiesPerLevel(enemiesPerLevel).withFallingDebris(fallingDebris);
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(levelNumber);
+			out.writeLong(levelSeed);
+			out.writeInt(startX);
+			out.writeInt(startY);
+			out.writeInt(goalX);
+			out.writeInt(goalY);
+			out.writeInt(optimalMoves);
+			out.writeInt(moleX);
+			out.writeInt(moleY);
+			out.writeInt(moves);
+			out.writeLong(tick);
+			out.writeInt(score);
+			out.writeLong(boostTicks);
+			out.writeInt(enemyCells.length);
+			for (int i = 0; i < enemyCells.length; i++) {
+				out.writeInt(enemyCells[i]);
+				out.writeByte(enemyUnder[i]);
+				out.writeInt(enemyWait[i]);
+			}
+			out.writeInt(enemiesPerLevel);
+			out.writeBoolean(fallingDebris);
+			out.writeInt(activeCells.length);
+			for (int cell : activeCells) {
+				out.writeInt(cell);
+			}
+		}
+
+		private static State read(DataInputStream in) throws IOException {
+			int levelNumber = in.readInt();
+			long levelSeed = in.readLong();
+			int startX = in.readInt();
+			int startY = in.readInt();
+			int goalX = in.readInt();
+			int goalY = in.readInt();
+			int optimalMoves = in.readInt();
+			int moleX = in.readInt();
+			int moleY = in.readInt();
+			int moves = in.readInt();
+			long tick = in.readLong();
+			int score = in.readInt();
+			long boostTicks = in.readLong();
+			int enemies = in.readInt();
+			if (enemies < 0 || enemies > in.available()) {
+				throw new IOException("Bad enemy count " + enemies);
+			}
+			int[] enemyCells = new int[enemies];
+			byte[] enemyUnder = new byte[enemies];
+			int[] enemyWait = new int[enemies];
+			for (int i = 0; i < enemies; i++) {
+				enemyCells[i] = in.readInt();
+				enemyUnder[i] = in.readByte();
+				enemyWait[i] = in.readInt();
+			}
+			int enemiesPerLevel = in.readInt();
+			if (enemiesPerLevel < 0) {
+				throw new IOException("Bad enemies per level " + enemiesPerLevel);
+			}
+			boolean fallingDebris = in.readBoolean();
+			int active = in.readInt();
+			if (active < 0 || active > in.available() / 4) {
+				throw new IOException("Bad active cell count " + active);
+			}
+			int[] activeCells = new int[active];
+			for (int i = 0; i < active; i++) {
+				activeCells[i] = in.readInt();
+			}
+			return new State(levelNumber, levelSeed, startX, startY, goalX, goalY, optimalMoves, moleX, moleY,
+					moves, tick, score, boostTicks, enemyCells, enemyUnder, enemyWait, enemiesPerLevel,
+					fallingDebris, activeCells);
+		}
+	}
+
+	/**
+	 * A saved game read back by {@link #load(Path)}.
+	 */
+	public static final class Resume {
+		private final long gameSeed;
+		private final Level level;
+		private final State state;
+
+		private Resume(long gameSeed, Level level, State state) {
+			this.gameSeed = gameSeed;
+			this.level = level;
+			this.state = state;
+		}
+
+		public long getGameSeed() {
+			return gameSeed;
+		}
+
+		/**
+		 * Returns the level being played, with its world as of the last checkpoint.
+		 */
+		public Level getLevel() {
+			return level;
+		}
+
+		public State getState() {
+			return state;
+		}
+	}
+
+	private final Path path;
+	private final long gameSeed;
+	private final ExecutorService writer;
+
+	// Game thread only
+	private WorldGrid world;
+	private DirtyRegion changes;
+	private final int[] changed = new int[TRACKED_CELLS];
+
+	// Writer thread only
+	private byte[] cells;
+	private int width;
+	private int height;
+	private FileChannel channel;
+	private long snapshotBytes;
+	private long checkpointBytes;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] deflated = new byte[0];
+
+	public SaveGame(Path path, long gameSeed) {
+		this.path = path;
+		this.gameSeed = gameSeed;
+		this.writer = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "mole-save");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns where the game is saved: the {@code mole.save} system property
+	 * if set, otherwise a file in {@code ~/.molegame}.
+	 */
+	public static Path defaultPath() {
+		String configured = System.getProperty("mole.save");
+		if (configured != null) {
+			return Path.of(configured);
+		}
+		return Path.of(System.getProperty("user.home"), ".molegame", "save.bin");
+	}
+
+	/**
+	 * Starts saving {@code level}, replacing whatever was saved before, and
+	 * tracks the changes to its world from now on. Called on the game thread
+	 * once the engine has started or resumed the level.
+	 */
+	public void startLevel(Level level, State state) {
+		if (world != null) {
+			world.trackChanges(null);
+		}
+		world = level.getWorld();
+		changes = new DirtyRegion(world.getWidth(), world.getHeight(), TRACKED_CELLS);
+		world.trackChanges(changes);
+		submitSnapshot(state);
+	}
+
+	/**
+	 * Saves the cells changed since the last checkpoint, and {@code state}.
+	 * Called on the game thread; returns without waiting for the disk.
+	 */
+	public void checkpoint(State state) {
+		if (world == null) {
+			return;
+		}
+		int count = changes.drain(changed);
+		if (count == DirtyRegion.ALL) {
+			submitSnapshot(state);
+			return;
+		}
+		int[] indices = Arrays.copyOf(changed, count);
+		byte[] types = new byte[count];
+		for (int i = 0; i < count; i++) {
+			types[i] = world.get(indices[i]);
+		}
+		submit(() -> writeCheckpoint(indices, types, state));
+	}
+
+	/**
+	 * Deletes the save, as when the game is over and there is nothing left
+	 * to resume, and stops tracking the world.
+	 */
+	public void discard() {
+		if (world != null) {
+			world.trackChanges(null);
+			world = null;
+		}
+		submit(() -> {
+			cells = null;
+			closeChannel();
+			Files.deleteIfExists(path);
+		});
+	}
+
+	private void submitSnapshot(State state) {
+		changes.drain(changed);
+		int w = world.getWidth();
+		int h = world.getHeight();
+		byte[] copy = new byte[w * h];
+		world.copyRows(0, h, copy, 0);
+		submit(() -> {
+			cells = copy;
+			width = w;
+			height = h;
+			writeSnapshot(state);
+		});
+	}
+
+	private interface Write {
+		void run() throws IOException;
+	}
+
+	private void submit(Write write) {
+		try {
+			writer.execute(() -> {
+				try {
+					write.run();
+				} catch (IOException | RuntimeException e) {
+					System.err.println("Failed to save the game: " + e.getMessage());
+					// Nothing more goes into this file; the next snapshot starts over
+					cells = null;
+					closeChannel();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Closed on the way out; the last checkpoint written stands
+		}
+	}
+
+	/**
+	 * Writes the cells the writer holds as a new save file and moves it over
+	 * the old one, so the save is always either the old file or the new one.
+	 */
+	private void writeSnapshot(State state) throws IOException {
+		closeChannel();
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(SNAPSHOT);
+		state.write(out);
+		out.writeInt(width);
+		out.writeInt(height);
+		int length = deflate(cells);
+		out.writeInt(length);
+		out.write(deflated, 0, length);
+
+		Path temp = Files.createTempFile(parent, "save", ".tmp");
+		FileChannel file = null;
+		try {
+			file = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.READ);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(gameSeed);
+			writeFully(file, header.flip());
+			snapshotBytes = writeRecord(file, bytes.toByteArray());
+			file.force(false);
+			replace(temp, path);
+			channel = file;
+			file = null;
+			checkpointBytes = 0;
+		} finally {
+			if (file != null) {
+				file.close();
+			}
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Moves {@code from} over {@code to} atomically where the file system
+	 * can, and with a plain replacing move where it cannot.
+	 */
+	private static void replace(Path from, Path to) throws IOException {
+		try {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private void writeCheckpoint(int[] indices, byte[] types, State state) throws IOException {
+		if (cells == null) {
+			return;
+		}
+		for (int i = 0; i < indices.length; i++) {
+			cells[indices[i]] = types[i];
+		}
+		if (checkpointBytes > Math.max(snapshotBytes, MIN_COMPACTION_BYTES)) {
+			writeSnapshot(state);
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + indices.length * 5);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(CHECKPOINT);
+		state.write(out);
+		out.writeInt(indices.length);
+		for (int i = 0; i < indices.length; i++) {
+			out.writeInt(indices[i]);
+			out.writeByte(types[i]);
+		}
+		checkpointBytes += writeRecord(channel, bytes.toByteArray());
+	}
+
+	private int deflate(byte[] input) {
+		deflater.reset();
+		deflater.setInput(input);
+		deflater.finish();
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == deflated.length) {
+				deflated = Arrays.copyOf(deflated, Math.max(4096, deflated.length * 2));
+			}
+			length += deflater.deflate(deflated, length, deflated.length - length);
+		}
+		return length;
+	}
+
+	private static long writeRecord(FileChannel file, byte[] payload) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+		record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+		writeFully(file, record);
+		return record.limit();
+	}
+
+	private static void writeFully(FileChannel file, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			file.write(buffer, file.size());
+		}
+	}
+
+	private void closeChannel() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// The data is already written
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * Waits for the queued writes to reach the file and stops the writer.
+	 * Safe to call from a shutdown hook while the game thread is still
+	 * running; later checkpoints are dropped.
+	 */
+	@Override
+	public void close() {
+		submit(this::closeChannel);
+		writer.shutdown();
+		try {
+			writer.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the game saved at {@code path}, up to its last complete
+	 * checkpoint.
+	 *
+	 * @return the saved game, or null if there is none
+	 * @throws IOException if the file cannot be read or is not a save
+	 */
+	public static Resume load(Path path) throws IOException {
+		byte[] file;
+		try {
+			file = Files.readAllBytes(path);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(file);
+		if (file.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not a saved game: " + path);
+		}
+		long gameSeed = buffer.getLong();
+		State state = null;
+		byte[] cells = null;
+		int width = 0;
+		int height = 0;
+		CRC32 crc = new CRC32();
+		while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+			int length = buffer.getInt();
+			int checksum = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining()) {
+				break;
+			}
+			crc.reset();
+			crc.update(file, buffer.position(), length);
+			if ((int) crc.getValue() != checksum) {
+				// Torn by a crash while it was being appended
+				break;
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(file, buffer.position(), length));
+			buffer.position(buffer.position() + length);
+			try {
+				byte type = in.readByte();
+				State next = State.read(in);
+				if (type == SNAPSHOT) {
+					width = in.readInt();
+					height = in.readInt();
+					if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+						throw new IOException("Bad world size " + width + "x" + height);
+					}
+					byte[] compressed = new byte[in.readInt()];
+					in.readFully(compressed);
+					cells = inflate(compressed, width * height);
+				} else if (type == CHECKPOINT && cells != null) {
+					int count = in.readInt();
+					for (int i = 0; i < count; i++) {
+						int index = in.readInt();
+						byte cell = in.readByte();
+						if (index < 0 || index >= cells.length) {
+							throw new IOException("Cell " + index + " outside the world");
+						}
+						cells[index] = cell;
+					}
+				} else {
+					throw new IOException("Unexpected record " + type);
+				}
+				state = next;
+			} catch (EOFException e) {
+				throw new IOException("Record ends early in " + path, e);
+			}
+		}
+		if (cells == null) {
+			throw new IOException("No snapshot in " + path);
+		}
+		for (byte cell : cells) {
+			if (cell < 0 || cell >= CellType.COUNT) {
+				throw new IOException("Bad cell type " + cell + " in " + path);
+			}
+		}
+		WorldGrid world = new WorldGrid(width, height);
+		world.setRows(0, height, cells, 0);
+		if (!world.inBounds(state.moleX, state.moleY)) {
+			throw new IOException("Mole outside the world in " + path);
+		}
+		for (int i = 0; i < state.enemyCells.length; i++) {
+			if (state.enemyCells[i] < 0 || state.enemyCells[i] >= cells.length) {
+				throw new IOException("Enemy outside the world in " + path);
+			}
+		}
+		for (int cell : state.activeCells) {
+			if (cell < 0 || cell >= cells.length) {
+				throw new IOException("Falling cell outside the world in " + path);
+			}
+		}
+		Level level = new Level(state.levelNumber, state.levelSeed, world, state.startX, state.startY, state.goalX,
+				state.goalY, state.optimalMoves);
+		return new Resume(gameSeed, level, state);
+	}
+
+	private static byte[] inflate(byte[] compressed, int size) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] cells = new byte[size];
+			int length = 0;
+			while (length < size && !inflater.finished()) {
+				int n = inflater.inflate(cells, length, size - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != size) {
+				throw new IOException("Snapshot holds " + length + " of " + size + " cells");
+			}
+			return cells;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt snapshot", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package game;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Falling debris: rocks and loose soil drop into the tunnels dug below them.
+ *
+ * A rock ({@link CellType#OBSTACLE}) falls whenever the cell below it is
+ * tunnel. Soil holds as long as something solid is beside it; soil with
+ * tunnel below and on both sides is loose and falls too. Everything falls
+ * at most one cell per tick, so collapses play out over several ticks.
+ *
+ * Only active cells are looked at: cells next to a change that might now
+ * be unstable. A tick costs time in proportion to the disturbed area
+ * however big the world is, and a settled world costs nothing.
+ *
+ * The world is split into bands of {@link #BAND_ROWS} rows, each with its
+ * own active list. A cell only ever reads and writes its own row and the
+ * one below, so every other band is independent of its neighbors: even
+ * bands run together, then odd bands. When there is enough to do the bands
+ * of each half run in parallel on the common fork-join pool. Band sizes do
+ * not depend on the number of cores, and within a band cells are processed
+ * bottom-up in index order, so the outcome is the same however many
+ * threads take part.
+ *
+ * Instances are not thread-safe; the engine owns one and calls it from the
+ * game thread.
+ */
+public class SoilPhysics {
+	public static final int BAND_ROWS = 16;
+	// Fewer active cells than this are cheaper to process than to hand out to other threads
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	private WorldGrid world;
+	private int width;
+	private int height;
+	private int bands;
+	// Per band: the cells to look at this tick, and the cells to look at next tick found while processing it
+	private int[][] active = new int[0][];
+	private int[] activeCount = new int[0];
+	private int[][] woken = new int[0][];
+	private int[] wokenCount = new int[0];
+	// Per band: the pairs of cells that swapped this tick
+	private int[][] moved = new int[0][];
+	private int[] movedCount = new int[0];
+	private boolean[] scheduled = new boolean[0];
+	private boolean[] landed = new boolean[0];
+	private int[] changed = new int[0];
+	private int changedCount;
+	private boolean parallel = true;
+
+	/**
+	 * Starts simulating {@code world}, which is taken to be at rest.
+	 */
+	public void reset(WorldGrid world) {
+		this.world = world;
+		this.width = world.getWidth();
+		this.height = world.getHeight();
+		this.bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+		if (active.length < bands) {
+			active = new int[bands][16];
+			woken = new int[bands][16];
+			moved = new int[bands][16];
+		}
+		activeCount = new int[bands];
+		wokenCount = new int[bands];
+		movedCount = new int[bands];
+		if (scheduled.length < world.size()) {
+			scheduled = new boolean[world.size()];
+			landed = new boolean[world.size()];
+			changed = new int[64];
+		} else {
+			Arrays.fill(scheduled, false);
+			Arrays.fill(landed, false);
+		}
+		changedCount = 0;
+	}
+
+	/**
+	 * Allows or forbids running bands on other threads. The outcome is the
+	 * same either way.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Wakes the cells around cell {@code index} after it changed outside the
+	 * simulation, as when the mole digs it.
+	 */
+	public void disturb(int index) {
+		int x = index % width;
+		schedule(index);
+		if (index >= width) {
+			schedule(index - width);
+		}
+		if (x > 0) {
+			schedule(index - 1);
+		}
+		if (x < width - 1) {
+			schedule(index + 1);
+		}
+	}
+
+	private void schedule(int index) {
+		if (!scheduled[index]) {
+			scheduled[index] = true;
+			int band = index / width / BAND_ROWS;
+			active[band] = append(active[band], activeCount[band]++, index);
+		}
+	}
+
+	private static int[] append(int[] list, int at, int value) {
+		if (at == list.length) {
+			list = Arrays.copyOf(list, list.length * 2);
+		}
+		list[at] = value;
+		return list;
+	}
+
+	/**
+	 * Advances the simulation one tick.
+	 *
+	 * @return the number of cells that fell
+	 */
+	public int step() {
+		changedCount = 0;
+		int total = 0;
+		for (int band = 0; band < bands; band++) {
+			total += activeCount[band];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		boolean inParallel = parallel && total >= PARALLEL_THRESHOLD && bands > 2;
+		for (int parity = 0; parity < 2; parity++) {
+			if (inParallel) {
+				IntStream.iterate(parity, band -> band < bands, band -> band + 2).parallel().forEach(this::runBand);
+			} else {
+				for (int band = parity; band < bands; band += 2) {
+					runBand(band);
+				}
+			}
+		}
+
+		// Hand the woken cells to their bands, in band order so the lists come out the same every run
+		int falls = 0;
+		for (int band = 0; band < bands; band++) {
+			for (int i = 0; i < wokenCount[band]; i++) {
+				schedule(woken[band][i]);
+			}
+			wokenCount[band] = 0;
+			for (int i = 0; i < movedCount[band]; i++) {
+				int cell = moved[band][i];
+				landed[cell] = false;
+				changed = append(changed, changedCount++, cell);
+			}
+			falls += movedCount[band] / 2;
+			movedCount[band] = 0;
+		}
+		return falls;
+	}
+
+	private void runBand(int band) {
+		int count = activeCount[band];
+		int[] cells = active[band];
+		activeCount[band] = 0;
+		// Cells woken by this band land in its own list or the rows just above and below
+		for (int i = 0; i < count; i++) {
+			scheduled[cells[i]] = false;
+		}
+		// Bottom-up, so a falling column moves as one
+		Arrays.sort(cells, 0, count);
+		for (int i = count - 1; i >= 0; i--) {
+			settle(band, cells[i]);
+		}
+	}
+
+	/**
+	 * Drops cell {@code index} by one if it is unstable.
+	 */
+	private void settle(int band, int index) {
+		if (landed[index]) {
+			// Already fell this tick; it was woken to carry on next tick
+			return;
+		}
+		int below = index + width;
+		if (below >= world.size() || world.get(below) != CellType.TUNNEL) {
+			return;
+		}
+		byte type = world.get(index);
+		if (type != CellType.OBSTACLE && !(type == CellType.SOIL && isLoose(index))) {
+			return;
+		}
+		world.set(below, type);
+		world.set(index, CellType.TUNNEL);
+		landed[below] = true;
+		moved[band] = append(moved[band], movedCount[band]++, index);
+		moved[band] = append(moved[band], movedCount[band]++, below);
+		// What was above may drop into the gap, the sides lost their support, and the debris may keep falling
+		int x = index % width;
+		if (index >= width) {
+			wake(band, index - width);
+		}
+		if (x > 0) {
+			wake(band, index - 1);
+		}
+		if (x < width - 1) {
+			wake(band, index + 1);
+		}
+		wake(band, below);
+	}
+
+	private boolean isLoose(int index) {
+		int x = index % width;
+		return x > 0 && x < width - 1 && world.get(index - 1) == CellType.TUNNEL
+				&& world.get(index + 1) == CellType.TUNNEL;
+	}
+
+	private void wake(int band, int index) {
+		woken[band] = append(woken[band], wokenCount[band]++, index);
+	}
+
+	/**
+	 * Returns how many cells changed in the last {@link #step()}.
+	 */
+	public int getChangedCount() {
+		return changedCount;
+	}
+
+	/**
+	 * Returns the index of the {@code i}th cell changed in the last {@link #step()}.
+	 */
+	public int getChanged(int i) {
+		return changed[i];
+	}
+
+	/**
+	 * Returns the cells waiting to be looked at next tick, so a saved game
+	 * can carry on a collapse with {@link #activate(int[])}.
+	 */
+	public int[] getActiveCells() {
+		int[] cells = new int[getActiveCount()];
+		int at = 0;
+		for (int band = 0; band < bands; band++) {
+			System.arraycopy(active[band], 0, cells, at, activeCount[band]);
+			at += activeCount[band];
+		}
+		return cells;
+	}
+
+	/**
+	 * Schedules cells returned by {@link #getActiveCells()} to be looked at
+	 * next tick. Called after {@link #reset(WorldGrid)} on the saved world.
+	 */
+	public void activate(int[] cells) {
+		for (int cell : cells) {
+			schedule(cell);
+		}
+	}
+
+	/**
+	 * Returns the number of cells waiting to be looked at next tick.
+	 */
+	public int getActiveCount() {
+		int total = 0;
+		for (int band = 0; band < bands; band++) {
+			total += activeCount[band];
+		}
+		return total;
+	}
+}
@@ -0,0 +1,430 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import utils.InputHandler;
+
+/**
+ * Shows the game on an ANSI terminal, so it can be played over SSH or on a
+ * machine without a display.
+ *
+ * The world is drawn by a {@link TerminalRenderer}, which only sends the
+ * cells that changed, with the status, notifications and metrics on the
+ * lines below it. Drawing happens on the game thread inside
+ * {@link #repaintDirty()}; there is no separate paint thread to hand
+ * snapshots to.
+ *
+ * Keys are read from standard input with the terminal in non-canonical,
+ * no-echo mode, set and restored with {@code stty}, and published to the
+ * {@link InputHandler} like Swing key events. Terminals do not report key
+ * releases, so every press is followed by its release at once. The arrow
+ * keys stand in for w, a, s and d.
+ */
+public class TerminalDisplay implements GameDisplay {
+	private static final int DEFAULT_COLUMNS = 80;
+	private static final int DEFAULT_ROWS = 24;
+	private static final long MESSAGE_NANOS = 3_000_000_000L;
+	private static final long METRICS_REFRESH_NANOS = 250_000_000L;
+	private static final String HIDE_CURSOR = "\033[?25l";
+	private static final String SHOW_CURSOR = "\033[?25h";
+
+	// The terminal is shared by every display of the process; one reader feeds whichever is current
+	private static final Object TERMINAL = new Object();
+	private static String savedMode;
+	private static boolean restoreHooked;
+	private static Thread reader;
+	private static volatile InputHandler keys;
+
+	private final InputHandler inputHandler;
+	private final OutputStream out;
+	private final TerminalRenderer renderer;
+	private final int[] dirtyCells = new int[DirtyRegion.CAPACITY];
+	private final int metricsRows;
+	private WorldGrid world;
+	private boolean redraw = true;
+	private boolean viewMoved;
+	private boolean broken;
+	private int score;
+	private long timer;
+	private boolean showTimer;
+	private String pauseMessage;
+	private String message = "";
+	private long messageExpiry;
+	private String shownStatus;
+	private String shownMessage;
+	private boolean metricsOverlay;
+	private long metricsRefreshed;
+
+	/**
+	 * Takes over the terminal the game was started from.
+	 *
+	 * @throws IOException if standard input is not a terminal
+	 */
+	public static TerminalDisplay open(WorldGrid world, InputHandler inputHandler) throws IOException {
+		int columns = DEFAULT_COLUMNS;
+		int rows = DEFAULT_ROWS;
+		synchronized (TERMINAL) {
+			String[] size = stty("size").trim().split("\\s+");
+			if (size.length == 2 && Integer.parseInt(size[0]) > 0) {
+				rows = Integer.parseInt(size[0]);
+				columns = Integer.parseInt(size[1]);
+			}
+			if (savedMode == null) {
+				savedMode = stty("-g").trim();
+				stty("-icanon -echo min 1 time 0");
+				if (!restoreHooked) {
+					restoreHooked = true;
+					Runtime.getRuntime().addShutdownHook(new Thread(TerminalDisplay::restoreTerminal,
+							"terminal-restore"));
+				}
+			}
+			keys = inputHandler;
+			if (reader == null) {
+				reader = new Thread(() -> readKeys(System.in), "terminal-input");
+				reader.setDaemon(true);
+				reader.start();
+			}
+		}
+		TerminalDisplay display = new TerminalDisplay(world, inputHandler,
+				new FileOutputStream(FileDescriptor.out), columns, rows);
+		display.write(HIDE_CURSOR);
+		return display;
+	}
+
+	/**
+	 * Creates a display drawing into {@code out} as if it were a terminal of
+	 * the given size, without touching the real terminal.
+	 */
+	TerminalDisplay(WorldGrid world, InputHandler inputHandler, OutputStream out, int columns, int rows) {
+		this.world = world;
+		this.inputHandler = inputHandler;
+		this.out = out;
+		this.metricsRows = Metrics.ENABLED ? Metrics.get().overlayLines().length : 0;
+		// Status and notification lines, then the metrics, below the world
+		this.renderer = new TerminalRenderer(columns / TerminalRenderer.COLUMNS_PER_CELL, rows - 2 - metricsRows);
+	}
+
+	private static String stty(String args) throws IOException {
+		Process process = new ProcessBuilder("sh", "-c", "stty " + args + " < /dev/tty")
+				.redirectError(ProcessBuilder.Redirect.DISCARD).start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		process.getInputStream().transferTo(output);
+		try {
+			if (process.waitFor() != 0) {
+				throw new IOException("Not a terminal: stty " + args + " failed");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while setting up the terminal", e);
+		}
+		return output.toString(StandardCharsets.US_ASCII);
+	}
+
+	private static void restoreTerminal() {
+		synchronized (TERMINAL) {
+			if (savedMode == null) {
+				return;
+			}
+			System.out.print("\033[0m" + SHOW_CURSOR + "\n");
+			System.out.flush();
+			try {
+				stty(savedMode);
+			} catch (IOException e) {
+				System.err.println("Could not restore the terminal, run 'stty sane': " + e.getMessage());
+			}
+			savedMode = null;
+		}
+	}
+
+	/**
+	 * Publishes the keys typed on {@code in} to the current display's input
+	 * handler until the stream ends.
+	 */
+	private static void readKeys(InputStream in) {
+		KeyDecoder decoder = new KeyDecoder();
+		try {
+			int b;
+			while ((b = in.read()) >= 0) {
+				char key = decoder.decode(b);
+				InputHandler target = keys;
+				if (key != 0 && target != null) {
+					target.publish(key, true);
+					target.publish(key, false);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Stopped reading keys: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Turns the bytes a terminal sends into key characters, translating the
+	 * arrow keys' escape sequences into w, a, s and d.
+	 */
+	static final class KeyDecoder {
+		private static final int PLAIN = 0;
+		private static final int ESCAPE = 1;
+		private static final int SEQUENCE = 2;
+		private int state = PLAIN;
+
+		/**
+		 * Returns the key completed by byte {@code b}, or 0 if it is part of an
+		 * escape sequence.
+		 */
+		char decode(int b) {
+			switch (state) {
+				case ESCAPE:
+					if (b == '[') {
+						state = SEQUENCE;
+						return 0;
+					}
+					state = PLAIN;
+					break;
+				case SEQUENCE:
+					if (b >= '0' && b <= '9' || b == ';') {
+						return 0; // Parameters, as sent with modifier keys
+					}
+					state = PLAIN;
+					switch (b) {
+						case 'A':
+							return 'w';
+						case 'B':
+							return 's';
+						case 'C':
+							return 'd';
+						case 'D':
+							return 'a';
+						default:
+							return 0;
+					}
+				default:
+					break;
+			}
+			if (b == 0x1b) {
+				state = ESCAPE;
+				return 0;
+			}
+			return (char) b;
+		}
+	}
+
+	@Override
+	public synchronized void setWorld(WorldGrid world) {
+		this.world = world;
+		world.getDirtyRegion().drain(dirtyCells);
+		redraw = true;
+	}
+
+	@Override
+	public synchronized void followMole(int x, int y) {
+		viewMoved |= renderer.follow(world, x, y);
+	}
+
+	@Override
+	public synchronized void scrollWorld(int rows) {
+		renderer.scroll(rows);
+		viewMoved = true;
+	}
+
+	@Override
+	public synchronized void repaintDirty() {
+		long now = System.nanoTime();
+		int count = world.getDirtyRegion().drain(dirtyCells);
+		if (redraw) {
+			redraw = false;
+			renderer.clear();
+			shownStatus = null;
+			shownMessage = null;
+			count = DirtyRegion.ALL;
+		} else if (viewMoved) {
+			// Every cell in view may show something else now, but most show the same type as before
+			count = DirtyRegion.ALL;
+		}
+		viewMoved = false;
+		if (count != 0) {
+			int drawn = renderer.draw(world, dirtyCells, count);
+			if (Metrics.ENABLED) {
+				Metrics.CELLS_REPAINTED.add(drawn);
+				Metrics.framePublished();
+			}
+		}
+		drawStatus(now);
+		if (flush() > 0 && Metrics.ENABLED) {
+			long end = System.nanoTime();
+			Metrics.PAINT_NANOS.record(end - now);
+			long input = Metrics.takePublishedInput();
+			if (input != 0) {
+				Metrics.INPUT_TO_FRAME_NANOS.record(end - input);
+			}
+		}
+	}
+
+	/**
+	 * Draws the lines below the world that changed since they were last drawn.
+	 */
+	private void drawStatus(long now) {
+		int row = renderer.getViewHeight();
+		String status = pauseMessage != null ? "PAUSED  " + pauseMessage
+				: "Score: " + score + (showTimer ? "   Time: " + timer + "s" : "");
+		if (!status.equals(shownStatus)) {
+			shownStatus = status;
+			renderer.text(row, status);
+		}
+		if (!message.isEmpty() && now - messageExpiry > 0) {
+			message = "";
+		}
+		if (!message.equals(shownMessage)) {
+			shownMessage = message;
+			renderer.text(row + 1, message);
+		}
+		if (metricsRows > 0 && metricsOverlay) {
+			if (now - metricsRefreshed >= METRICS_REFRESH_NANOS) {
+				metricsRefreshed = now;
+				String[] lines = Metrics.get().overlayLines();
+				for (int i = 0; i < lines.length && i < metricsRows; i++) {
+					renderer.text(row + 2 + i, lines[i]);
+				}
+			}
+		}
+	}
+
+	private int flush() {
+		if (broken) {
+			return 0;
+		}
+		try {
+			return renderer.flush(out);
+		} catch (IOException e) {
+			broken = true;
+			System.err.println("Lost the terminal: " + e.getMessage());
+			return 0;
+		}
+	}
+
+	private void write(String sequence) {
+		renderer.control(sequence);
+		flush();
+	}
+
+	/**
+	 * Cells cannot be made bigger or smaller on a terminal.
+	 */
+	@Override
+	public void zoomIn() {
+	}
+
+	@Override
+	public void zoomOut() {
+	}
+
+	@Override
+	public synchronized void toggleMetricsOverlay() {
+		if (metricsRows == 0) {
+			return;
+		}
+		metricsOverlay = !metricsOverlay;
+		metricsRefreshed = System.nanoTime() - METRICS_REFRESH_NANOS;
+		if (!metricsOverlay) {
+			for (int i = 0; i < metricsRows; i++) {
+				renderer.text(renderer.getViewHeight() + 2 + i, "");
+			}
+		}
+	}
+
+	@Override
+	public synchronized void updateScore(int newScore) {
+		score = newScore;
+	}
+
+	@Override
+	public synchronized void updateTimer(long secondsRemaining) {
+		timer = secondsRemaining;
+		showTimer = true;
+	}
+
+	@Override
+	public synchronized void updateTitle(String title) {
+		write("\033]0;" + title + "\007");
+	}
+
+	@Override
+	public synchronized void showMessage(String message) {
+		this.message = message;
+		this.messageExpiry = System.nanoTime() + MESSAGE_NANOS;
+	}
+
+	/**
+	 * Shows the pause line at once, since the game stops publishing frames
+	 * while paused.
+	 */
+	@Override
+	public synchronized void showPauseScreen(String message) {
+		pauseMessage = message;
+		drawStatus(System.nanoTime());
+		flush();
+	}
+
+	@Override
+	public synchronized void hidePauseScreen() {
+		pauseMessage = null;
+		drawStatus(System.nanoTime());
+		flush();
+	}
+
+	@Override
+	public synchronized void showGameOverScreen(int finalScore, String highScores) {
+		renderer.clear();
+		renderer.text(0, "Game Over! Final Score: " + finalScore);
+		if (highScores != null) {
+			String[] lines = highScores.split("\n");
+			for (int i = 0; i < lines.length; i++) {
+				renderer.text(2 + i, lines[i]);
+			}
+		}
+		flush();
+		redraw = true;
+	}
+
+	/**
+	 * Asks on the notification line and returns the next key pressed. Keys
+	 * typed before the question are ignored. Call on the game thread.
+	 */
+	@Override
+	public String showInputDialog(String message) {
+		inputHandler.drain((key, pressed, timestampNanos) -> {
+		});
+		synchronized (this) {
+			renderer.text(renderer.getViewHeight() + 1, message);
+			shownMessage = null;
+			flush();
+		}
+		return String.valueOf(inputHandler.waitForKeyPress());
+	}
+
+	@Override
+	public void showError(String message) {
+		System.err.println(message);
+	}
+
+	/**
+	 * Leaves the last notification and the cursor below the game and gives
+	 * the terminal back.
+	 */
+	@Override
+	public synchronized void dispose() {
+		int row = renderer.getViewHeight() + 2 + metricsRows;
+		renderer.text(row, message);
+		renderer.park(row + 1);
+		flush();
+		if (keys == inputHandler) {
+			keys = null;
+		}
+		restoreTerminal();
+	}
+}
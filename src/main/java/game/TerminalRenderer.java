@@ -0,0 +1,267 @@
+package game;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Draws a {@link WorldGrid} on an ANSI terminal as colored blocks, two
+ * columns per cell so cells come out roughly square.
+ *
+ * The renderer remembers what every screen cell last showed and only emits
+ * escape sequences for the ones that differ, so a move costs a few dozen
+ * bytes instead of a screenful. Cursor moves are skipped when the next cell
+ * is right after the last one written, and color changes when it has the
+ * same color. Frames are built in a reusable buffer and written in one go.
+ *
+ * Instances are not thread-safe; the display owns one.
+ */
+public class TerminalRenderer {
+	public static final int COLUMNS_PER_CELL = 2;
+	private static final byte UNKNOWN = -1;
+	private static final byte[] CLEAR_SCREEN = ascii("\033[0m\033[2J");
+	private static final byte[] RESET_COLOR = ascii("\033[0m");
+	private static final byte[] CLEAR_TO_EOL = ascii("\033[K");
+	private static final byte[] CELL = ascii("  ");
+	// Background color sequence of each cell type
+	private static final byte[][] CELL_COLORS = new byte[CellType.COUNT][];
+
+	static {
+		for (byte type = 0; type < CellType.COUNT; type++) {
+			CELL_COLORS[type] = ascii("\033[48;5;" + xtermColor(ColorConstants.forCell(type)) + "m");
+		}
+	}
+
+	private final int viewWidth;
+	private final int viewHeight;
+	// Top left world cell on screen
+	private int originX;
+	private int originY;
+	// What each screen cell shows, or UNKNOWN
+	private final byte[] shown;
+	private int cursorRow = -1;
+	private int cursorColumn = -1;
+	private int color = UNKNOWN;
+	private byte[] buffer = new byte[4096];
+	private int length;
+
+	/**
+	 * @param viewWidth  world cells across the screen
+	 * @param viewHeight world cells down the screen
+	 */
+	public TerminalRenderer(int viewWidth, int viewHeight) {
+		this.viewWidth = Math.max(1, viewWidth);
+		this.viewHeight = Math.max(1, viewHeight);
+		this.shown = new byte[this.viewWidth * this.viewHeight];
+		Arrays.fill(shown, UNKNOWN);
+	}
+
+	/**
+	 * Returns the nearest color of the 6x6x6 cube of 256-color terminals.
+	 */
+	static int xtermColor(Color color) {
+		return 16 + 36 * cubeLevel(color.getRed()) + 6 * cubeLevel(color.getGreen()) + cubeLevel(color.getBlue());
+	}
+
+	private static int cubeLevel(int component) {
+		return (component * 5 + 127) / 255;
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	public int getViewWidth() {
+		return viewWidth;
+	}
+
+	public int getViewHeight() {
+		return viewHeight;
+	}
+
+	/**
+	 * Clears the screen; everything is drawn again by the next {@link #draw}.
+	 */
+	public void clear() {
+		append(CLEAR_SCREEN);
+		Arrays.fill(shown, UNKNOWN);
+		color = UNKNOWN;
+		cursorRow = -1;
+	}
+
+	/**
+	 * Scrolls the view so cell ({@code x}, {@code y}) of {@code world} is at
+	 * least a quarter of the view away from the edges, or as far as the
+	 * world allows.
+	 *
+	 * @return true if the view moved
+	 */
+	public boolean follow(WorldGrid world, int x, int y) {
+		int newX = follow(originX, x, viewWidth, world.getWidth());
+		int newY = follow(originY, y, viewHeight, world.getHeight());
+		boolean moved = newX != originX || newY != originY;
+		originX = newX;
+		originY = newY;
+		return moved;
+	}
+
+	private static int follow(int origin, int position, int view, int world) {
+		int margin = view / 4;
+		if (position < origin + margin) {
+			origin = position - margin;
+		} else if (position >= origin + view - margin) {
+			origin = position - view + margin + 1;
+		}
+		return Math.max(0, Math.min(origin, world - view));
+	}
+
+	/**
+	 * Moves the view with the world after its rows moved up by {@code rows}.
+	 */
+	public void scroll(int rows) {
+		originY = Math.max(0, originY - rows);
+	}
+
+	/**
+	 * Draws the cells of {@code world} that differ from the screen.
+	 *
+	 * @param dirty the changed cells, as drained from the world's
+	 *              {@link DirtyRegion}
+	 * @param count the number of changed cells, or {@link DirtyRegion#ALL}
+	 *              to compare every cell in view, as after the view moved
+	 * @return the number of cells drawn
+	 */
+	public int draw(WorldGrid world, int[] dirty, int count) {
+		int drawn = 0;
+		if (count == DirtyRegion.ALL) {
+			int right = Math.min(viewWidth, world.getWidth() - originX);
+			int bottom = Math.min(viewHeight, world.getHeight() - originY);
+			for (int row = 0; row < bottom; row++) {
+				for (int column = 0; column < right; column++) {
+					drawn += drawCell(row, column, world.get(originX + column, originY + row));
+				}
+			}
+		} else {
+			int width = world.getWidth();
+			for (int i = 0; i < count; i++) {
+				int column = dirty[i] % width - originX;
+				int row = dirty[i] / width - originY;
+				if (column >= 0 && column < viewWidth && row >= 0 && row < viewHeight) {
+					drawn += drawCell(row, column, world.get(dirty[i]));
+				}
+			}
+		}
+		return drawn;
+	}
+
+	private int drawCell(int row, int column, byte type) {
+		int index = row * viewWidth + column;
+		if (shown[index] == type) {
+			return 0;
+		}
+		shown[index] = type;
+		moveTo(row, column * COLUMNS_PER_CELL);
+		if (color != type) {
+			color = type;
+			append(CELL_COLORS[type]);
+		}
+		append(CELL);
+		cursorColumn += COLUMNS_PER_CELL;
+		return 1;
+	}
+
+	/**
+	 * Writes {@code text} in the default colors on screen row {@code row},
+	 * counting the rows below the view on from {@link #getViewHeight()}, and
+	 * blanks the rest of the line.
+	 */
+	public void text(int row, String text) {
+		moveTo(row, 0);
+		if (color != UNKNOWN) {
+			color = UNKNOWN;
+			append(RESET_COLOR);
+		}
+		append(ascii(text));
+		append(CLEAR_TO_EOL);
+		// Wide or control characters leave the cursor somewhere we cannot be sure of
+		cursorRow = -1;
+	}
+
+	/**
+	 * Appends an escape sequence that does not move the cursor, such as a
+	 * window title.
+	 */
+	public void control(String sequence) {
+		append(ascii(sequence));
+	}
+
+	/**
+	 * Puts the cursor on screen row {@code row} in the default colors, as
+	 * before handing the terminal back.
+	 */
+	public void park(int row) {
+		moveTo(row, 0);
+		append(RESET_COLOR);
+		color = UNKNOWN;
+	}
+
+	private void moveTo(int row, int column) {
+		if (row == cursorRow && column == cursorColumn) {
+			return;
+		}
+		append((byte) '\033');
+		append((byte) '[');
+		appendNumber(row + 1);
+		append((byte) ';');
+		appendNumber(column + 1);
+		append((byte) 'H');
+		cursorRow = row;
+		cursorColumn = column;
+	}
+
+	private void appendNumber(int n) {
+		if (n >= 10) {
+			appendNumber(n / 10);
+		}
+		append((byte) ('0' + n % 10));
+	}
+
+	private void append(byte b) {
+		if (length == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		buffer[length++] = b;
+	}
+
+	private void append(byte[] bytes) {
+		if (length + bytes.length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes.length));
+		}
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	/**
+	 * Returns the number of bytes of the frame built so far.
+	 */
+	public int pending() {
+		return length;
+	}
+
+	/**
+	 * Writes the frame built so far to {@code out} and starts the next one.
+	 *
+	 * @return the number of bytes written
+	 */
+	public int flush(OutputStream out) throws IOException {
+		int written = length;
+		if (written > 0) {
+			out.write(buffer, 0, written);
+			out.flush();
+			length = 0;
+		}
+		return written;
+	}
+}
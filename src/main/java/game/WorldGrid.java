@@ -0,0 +1,233 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Cell model for the mole game world.
+ *
+ * Cells are stored as {@link CellType} codes in a single flat array in
+ * row-major order, so cell {@code (x, y)} lives at index {@code y * width + x}
+ * and a horizontal run of cells is contiguous in memory. The game logic
+ * mutates the grid; renderers only read it, using the grid's
+ * {@link DirtyRegion} to find out which cells changed since they last looked.
+ * A second region can be attached with {@link #trackChanges(DirtyRegion)}
+ * for a reader that drains on its own schedule, such as {@link SaveGame}.
+ */
+public class WorldGrid {
+	private final int width;
+	private final int height;
+	private final byte[] cells;
+	private final DirtyRegion dirty;
+	private DirtyRegion changes;
+
+	public WorldGrid(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Grid dimensions must be positive: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.cells = new byte[width * height];
+		this.dirty = new DirtyRegion(width, height);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public DirtyRegion getDirtyRegion() {
+		return dirty;
+	}
+
+	/**
+	 * Marks every change from now on in {@code region} as well, or stops if
+	 * it is null. The region must match the grid's dimensions.
+	 */
+	public void trackChanges(DirtyRegion region) {
+		if (region != null && (region.getWidth() != width || region.getHeight() != height)) {
+			throw new IllegalArgumentException("Region dimensions differ from the grid's");
+		}
+		this.changes = region;
+	}
+
+	public int size() {
+		return cells.length;
+	}
+
+	public boolean inBounds(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	public int index(int x, int y) {
+		return y * width + x;
+	}
+
+	public int xOf(int index) {
+		return index % width;
+	}
+
+	public int yOf(int index) {
+		return index / width;
+	}
+
+	/**
+	 * Returns the cell type at {@code (x, y)}, or {@link CellType#EMPTY} when
+	 * the coordinates are outside the grid.
+	 */
+	public byte get(int x, int y) {
+		if (!inBounds(x, y)) {
+			return CellType.EMPTY;
+		}
+		return cells[y * width + x];
+	}
+
+	public byte get(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * Sets the cell at {@code (x, y)}. Writes outside the grid are ignored.
+	 */
+	public void set(int x, int y, byte type) {
+		if (inBounds(x, y)) {
+			set(y * width + x, type);
+		}
+	}
+
+	public void set(int index, byte type) {
+		if (cells[index] != type) {
+			cells[index] = type;
+			dirty.mark(index);
+			if (changes != null) {
+				changes.mark(index);
+			}
+		}
+	}
+
+	/**
+	 * Fills a rectangle of cells, clipped to the grid bounds. Each row of the
+	 * rectangle is a single contiguous fill, and a full-width rectangle is one
+	 * fill over the whole span.
+	 */
+	public void fill(int x, int y, int w, int h, byte type) {
+		int x0 = Math.max(0, x);
+		int y0 = Math.max(0, y);
+		int x1 = Math.min(width, x + w);
+		int y1 = Math.min(height, y + h);
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+		markRect(x0, y0, x1 - x0, y1 - y0);
+		if (x0 == 0 && x1 == width) {
+			Arrays.fill(cells, y0 * width, y1 * width, type);
+			return;
+		}
+		for (int yy = y0; yy < y1; yy++) {
+			int rowStart = yy * width;
+			Arrays.fill(cells, rowStart + x0, rowStart + x1, type);
+		}
+	}
+
+	public void fillAll(byte type) {
+		Arrays.fill(cells, type);
+		markAll();
+	}
+
+	/**
+	 * Copies all cells from another grid of the same dimensions.
+	 */
+	public void copyFrom(WorldGrid other) {
+		if (other.width != width || other.height != height) {
+			throw new IllegalArgumentException("Grid dimensions differ: " + other.width + "x" + other.height
+					+ " vs " + width + "x" + height);
+		}
+		System.arraycopy(other.cells, 0, cells, 0, cells.length);
+		markAll();
+	}
+
+	/**
+	 * Copies the first {@code count} cells listed in {@code indices} from
+	 * another grid of the same dimensions.
+	 */
+	public void copyCells(WorldGrid other, int[] indices, int count) {
+		for (int i = 0; i < count; i++) {
+			set(indices[i], other.cells[indices[i]]);
+		}
+	}
+
+	/**
+	 * Copies one row of cells into {@code dest} starting at {@code offset}.
+	 */
+	public void copyRow(int y, byte[] dest, int offset) {
+		System.arraycopy(cells, y * width, dest, offset, width);
+	}
+
+	/**
+	 * Copies {@code rows} whole rows starting at row {@code y} into {@code dest}.
+	 */
+	public void copyRows(int y, int rows, byte[] dest, int offset) {
+		System.arraycopy(cells, y * width, dest, offset, rows * width);
+	}
+
+	/**
+	 * Overwrites {@code rows} whole rows starting at row {@code y} from {@code src}.
+	 */
+	public void setRows(int y, int rows, byte[] src, int offset) {
+		System.arraycopy(src, offset, cells, y * width, rows * width);
+		markRect(0, y, width, rows);
+	}
+
+	private void markRect(int x, int y, int w, int h) {
+		dirty.markRect(x, y, w, h);
+		if (changes != null) {
+			changes.markRect(x, y, w, h);
+		}
+	}
+
+	private void markAll() {
+		dirty.markAll();
+		if (changes != null) {
+			changes.markAll();
+		}
+	}
+
+	/**
+	 * Counts the cells of the given type in a rectangle, clipped to the grid.
+	 */
+	public int count(int x, int y, int w, int h, byte type) {
+		int x0 = Math.max(0, x);
+		int y0 = Math.max(0, y);
+		int x1 = Math.min(width, x + w);
+		int y1 = Math.min(height, y + h);
+		int count = 0;
+		for (int yy = y0; yy < y1; yy++) {
+			int rowStart = yy * width;
+			for (int i = rowStart + x0; i < rowStart + x1; i++) {
+				if (cells[i] == type) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	public int count(byte type) {
+		return count(0, 0, width, height, type);
+	}
+
+	/**
+	 * Returns the index of the first cell of the given type at or after
+	 * {@code fromIndex}, or -1 if there is none.
+	 */
+	public int indexOf(byte type, int fromIndex) {
+		for (int i = Math.max(0, fromIndex); i < cells.length; i++) {
+			if (cells[i] == type) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,97 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands consistent copies of the world from the game thread to the
+ * renderer without either side blocking.
+ *
+ * A triple buffer: the writer copies the live grid into its back buffer and
+ * swaps it with the middle one in a single atomic exchange; the reader swaps
+ * the middle buffer for its front one only when a newer copy is there. Each
+ * side then owns its buffer outright, so a frame is never painted from a
+ * grid that is half-way through a move or a level change, and a slow frame
+ * just skips the copies published meanwhile.
+ *
+ * Each buffer remembers which cells changed since it was last written, so
+ * publishing copies only those instead of the whole grid: a move costs a
+ * handful of cells however large the world. A buffer that missed more
+ * changes than it remembers is copied in full.
+ *
+ * There must be one writer thread and one reader thread at a time.
+ */
+public class WorldSnapshots {
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4;
+	// Changed cells each buffer remembers before it falls back to a full copy
+	private static final int STALE_CAPACITY = 4096;
+	private static final int ALL = DirtyRegion.ALL;
+
+	private final WorldGrid[] buffers = new WorldGrid[3];
+	// Index of the middle buffer, plus FRESH if the reader has not taken it yet
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int back = 0; // Writer only
+	private int front = 2; // Reader only
+	private long published; // Writer only
+	// Per buffer, the cells changed since it was last written, or ALL; writer only
+	private final int[][] stale = new int[3][STALE_CAPACITY];
+	private final int[] staleCount = { ALL, ALL, ALL };
+
+	/**
+	 * Publishes a full copy of {@code world} as the newest frame, as when
+	 * switching to another world.
+	 */
+	public void publish(WorldGrid world) {
+		publish(world, null, ALL);
+	}
+
+	/**
+	 * Publishes a copy of {@code world} as the newest frame, given the
+	 * {@code count} cells that changed since the last publish, as drained
+	 * from its {@link DirtyRegion}, or {@link DirtyRegion#ALL}. Allocates
+	 * only when the grid size changes.
+	 */
+	public void publish(WorldGrid world, int[] changed, int count) {
+		for (int b = 0; b < staleCount.length; b++) {
+			int known = staleCount[b];
+			if (count == ALL || known == ALL || known + count > STALE_CAPACITY) {
+				staleCount[b] = ALL;
+			} else {
+				System.arraycopy(changed, 0, stale[b], known, count);
+				staleCount[b] = known + count;
+			}
+		}
+		WorldGrid target = buffers[back];
+		if (target == null || target.getWidth() != world.getWidth() || target.getHeight() != world.getHeight()) {
+			target = new WorldGrid(world.getWidth(), world.getHeight());
+			buffers[back] = target;
+			staleCount[back] = ALL;
+		}
+		if (staleCount[back] == ALL) {
+			target.copyFrom(world);
+		} else {
+			target.copyCells(world, stale[back], staleCount[back]);
+		}
+		staleCount[back] = 0;
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+		published++;
+	}
+
+	/**
+	 * Returns the newest published frame, or null before the first publish.
+	 * The grid stays untouched until the next call from the reader thread.
+	 */
+	public WorldGrid acquire() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+		return buffers[front];
+	}
+
+	/**
+	 * Returns how many frames the writer has published.
+	 */
+	public long getPublished() {
+		return published;
+	}
+}
@@ -0,0 +1,323 @@
+package game.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import game.CellType;
+import game.GameDisplay;
+import game.GameGraphics;
+import game.TerminalDisplay;
+import game.WorldGrid;
+import utils.InputHandler;
+
+/**
+ * A player's connection to a {@link MultiplayerServer}: sends keys and
+ * keeps a copy of the shared world up to date from the server's updates.
+ *
+ * Updates change the copy through {@link WorldGrid#set(int, byte)}, so its
+ * {@link game.DirtyRegion} tells a display exactly which cells to redraw.
+ * The channel is non-blocking; {@link #poll()} applies whatever has
+ * arrived and returns at once.
+ *
+ * Instances are not thread-safe; use one from a single thread.
+ */
+public class MultiplayerClient implements AutoCloseable {
+	private static final int FRAME_NANOS = 1_000_000_000 / 60;
+	private static final int BLOCK_SIZE = 20;
+	// The type byte and a two-byte key count leave the rest of an input frame for keys
+	private static final int KEYS_PER_FRAME = Protocol.MAX_CLIENT_FRAME - 3;
+
+	private final SocketChannel channel;
+	private final Selector selector;
+	private ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+	private final Protocol.Writer writer = new Protocol.Writer();
+	private WorldGrid world;
+	private int playerId;
+	private long tick;
+	private long bytesReceived;
+	// Per player id: the cell it is on, or -1 once it left, and its score
+	private int[] playerCells = new int[64];
+	private int[] playerScores = new int[64];
+
+	private MultiplayerClient(SocketChannel channel) throws IOException {
+		this.channel = channel;
+		this.selector = Selector.open();
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ);
+		Arrays.fill(playerCells, -1);
+	}
+
+	/**
+	 * Connects to a server and waits for the world.
+	 *
+	 * @throws IOException if the server cannot be reached, refuses the
+	 *                     player or sends no world within {@code timeoutMillis}
+	 */
+	public static MultiplayerClient connect(InetSocketAddress server, long timeoutMillis) throws IOException {
+		SocketChannel channel = SocketChannel.open(server);
+		channel.socket().setTcpNoDelay(true);
+		MultiplayerClient client = new MultiplayerClient(channel);
+		try {
+			if (!client.await(() -> client.world != null, timeoutMillis)) {
+				throw new IOException("No world from " + server + " within " + timeoutMillis + " ms");
+			}
+		} catch (IOException e) {
+			client.close();
+			throw e;
+		}
+		return client;
+	}
+
+	/**
+	 * Sends keys to the server, which applies them on its next tick.
+	 * More keys than fit in one frame go out in several.
+	 */
+	public void send(CharSequence keys) throws IOException {
+		for (int from = 0; from < keys.length(); from += KEYS_PER_FRAME) {
+			int to = Math.min(keys.length(), from + KEYS_PER_FRAME);
+			writer.begin(Protocol.INPUT).putVarint(to - from);
+			for (int i = from; i < to; i++) {
+				writer.putByte(keys.charAt(i));
+			}
+			writer.end();
+			ByteBuffer frame = writer.frame();
+			while (frame.hasRemaining()) {
+				if (channel.write(frame) == 0) {
+					// Input is tiny, so a full send buffer clears almost at once
+					Thread.onSpinWait();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies every update that has arrived, without waiting.
+	 *
+	 * @return the number of updates applied
+	 * @throws IOException if the server closed the connection or sent garbage
+	 */
+	public int poll() throws IOException {
+		int n = channel.read(in);
+		if (n < 0) {
+			throw new IOException("Server closed the connection");
+		}
+		bytesReceived += n;
+		in.flip();
+		int applied = 0;
+		try {
+			ByteBuffer frame;
+			while ((frame = Protocol.nextFrame(in, Protocol.MAX_SERVER_FRAME)) != null) {
+				byte type = frame.get();
+				if (type == Protocol.WELCOME) {
+					applyWelcome(frame);
+				} else if (type == Protocol.DELTA) {
+					applyDelta(frame);
+				}
+				applied++;
+			}
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			throw new IOException("Malformed update from the server", e);
+		}
+		in.compact();
+		if (!in.hasRemaining()) {
+			// A frame bigger than the buffer, such as the world of a large map
+			in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+		}
+		return applied;
+	}
+
+	/**
+	 * Polls until {@code condition} holds or {@code timeoutMillis} pass.
+	 *
+	 * @return whether the condition holds
+	 */
+	public boolean await(BooleanSupplier condition, long timeoutMillis) throws IOException {
+		long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+		while (!condition.getAsBoolean()) {
+			long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				return false;
+			}
+			selector.select(Math.max(1, left / 1_000_000));
+			selector.selectedKeys().clear();
+			poll();
+		}
+		return true;
+	}
+
+	private void applyWelcome(ByteBuffer frame) {
+		playerId = getPlayerId(frame);
+		long width = Protocol.getVarint(frame);
+		long height = Protocol.getVarint(frame);
+		// Checked before allocating, so a corrupt size is a malformed update rather than an OutOfMemoryError
+		if (width <= 0 || height <= 0 || width > Protocol.MAX_WORLD_CELLS / height) {
+			throw new IllegalArgumentException("Bad world size " + width + "x" + height);
+		}
+		tick = Protocol.getVarint(frame);
+		byte[] cells = new byte[(int) (width * height)];
+		Protocol.getCells(frame, cells);
+		WorldGrid grid = new WorldGrid((int) width, (int) height);
+		grid.setRows(0, (int) height, cells, 0);
+		applyPlayers(frame, grid.size());
+		world = grid;
+	}
+
+	private void applyDelta(ByteBuffer frame) {
+		if (world == null) {
+			throw new IllegalArgumentException("Update before the world");
+		}
+		tick = Protocol.getVarint(frame);
+		long cells = Protocol.getVarint(frame);
+		int cell = -1;
+		for (long i = 0; i < cells; i++) {
+			long gap = Protocol.getVarint(frame);
+			if (gap < 0 || gap >= world.size() - 1 - cell) {
+				throw new IllegalArgumentException("Cell gap " + gap + " after " + cell + " leaves the world");
+			}
+			cell += (int) gap + 1;
+			byte type = frame.get();
+			if (type < 0 || type >= CellType.COUNT) {
+				throw new IllegalArgumentException("Bad cell " + cell + " = " + type);
+			}
+			world.set(cell, type);
+		}
+		applyPlayers(frame, world.size());
+		long departed = Protocol.getVarint(frame);
+		for (long i = 0; i < departed; i++) {
+			int id = getPlayerId(frame);
+			if (id < playerCells.length) {
+				playerCells[id] = -1;
+			}
+		}
+	}
+
+	private void applyPlayers(ByteBuffer frame, int worldSize) {
+		long players = Protocol.getVarint(frame);
+		for (long i = 0; i < players; i++) {
+			int id = getPlayerId(frame);
+			long at = Protocol.getVarint(frame);
+			if (at < 0 || at >= worldSize) {
+				throw new IllegalArgumentException("Player " + id + " at cell " + at + " outside the world");
+			}
+			int cell = (int) at;
+			int score = (int) Protocol.getVarint(frame);
+			if (id >= playerCells.length) {
+				int size = Math.max(playerCells.length * 2, id + 1);
+				playerScores = Arrays.copyOf(playerScores, size);
+				int old = playerCells.length;
+				playerCells = Arrays.copyOf(playerCells, size);
+				Arrays.fill(playerCells, old, size, -1);
+			}
+			playerCells[id] = cell;
+			playerScores[id] = score;
+		}
+	}
+
+	private static int getPlayerId(ByteBuffer frame) {
+		long id = Protocol.getVarint(frame);
+		if (id < 0 || id > Protocol.MAX_PLAYER_ID) {
+			throw new IllegalArgumentException("Bad player id " + id);
+		}
+		return (int) id;
+	}
+
+	/**
+	 * Returns this client's copy of the world, or null before it arrived.
+	 */
+	public WorldGrid getWorld() {
+		return world;
+	}
+
+	public int getPlayerId() {
+		return playerId;
+	}
+
+	/**
+	 * Returns the server tick of the latest update.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the cell index of player {@code id}, or -1 if it is not playing.
+	 */
+	public int getPlayerCell(int id) {
+		return id < playerCells.length ? playerCells[id] : -1;
+	}
+
+	public int getPlayerScore(int id) {
+		return id < playerScores.length ? playerScores[id] : 0;
+	}
+
+	/**
+	 * Returns the number of players in the world as far as this client knows.
+	 */
+	public int getPlayerCount() {
+		int count = 0;
+		for (int cell : playerCells) {
+			if (cell >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	@Override
+	public void close() throws IOException {
+		selector.close();
+		channel.close();
+	}
+
+	/**
+	 * Plays on a server in a window, or in the terminal with
+	 * {@code -Dmole.display=terminal}.
+	 *
+	 * Usage: {@code MultiplayerClient [host] [port]}
+	 */
+	public static void main(String[] args) throws IOException {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : MultiplayerServer.DEFAULT_PORT;
+		InputHandler input = new InputHandler();
+		StringBuilder keys = new StringBuilder();
+		try (MultiplayerClient client = connect(new InetSocketAddress(host, port), 10_000)) {
+			WorldGrid world = client.getWorld();
+			GameDisplay display = "terminal".equals(System.getProperty("mole.display"))
+					? TerminalDisplay.open(world, input)
+					: new GameGraphics(world, BLOCK_SIZE, input);
+			display.updateTitle("Mole Game (" + host + ":" + port + ", player " + client.getPlayerId() + ")");
+			display.setWorld(world);
+			while (true) {
+				keys.setLength(0);
+				input.drain((key, pressed, timestampNanos) -> {
+					if (pressed) {
+						keys.append(key);
+					}
+				});
+				if (keys.length() > 0) {
+					client.send(keys);
+				}
+				client.poll();
+				int cell = client.getPlayerCell(client.getPlayerId());
+				if (cell >= 0) {
+					display.followMole(world.xOf(cell), world.yOf(cell));
+				}
+				display.updateScore(client.getPlayerScore(client.getPlayerId()));
+				display.repaintDirty();
+				LockSupport.parkNanos(FRAME_NANOS);
+			}
+		}
+	}
+}
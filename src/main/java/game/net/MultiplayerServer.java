@@ -0,0 +1,437 @@
+package game.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import game.CellType;
+import game.DirtyRegion;
+import game.Level;
+import game.LevelGenerator;
+import game.WorldGrid;
+
+/**
+ * A headless server that owns one world shared by many players.
+ *
+ * A single thread runs a {@link Selector} over every connection: it reads
+ * whatever input has arrived, queues the keys in the {@link SharedWorld},
+ * and at each tick applies them all and broadcasts what changed. No thread
+ * is started per connection, so hundreds of clients cost a few buffers
+ * each.
+ *
+ * The server keeps a copy of the world as last sent. After a tick the cells
+ * marked in the world's {@link DirtyRegion} are compared against it,
+ * or the whole world when too many changed to be tracked one by one, and
+ * only the cells that really differ go out, together with the players that
+ * moved or scored and those that left. The update is encoded once and the
+ * same bytes are queued to every client. A client that joins gets the
+ * whole world once, run-length encoded, and updates from then on.
+ *
+ * Writes never block: what a socket does not take is kept and sent when it
+ * becomes writable. A client that falls more than
+ * {@link #MAX_PENDING_BYTES} behind is dropped rather than slowing everyone.
+ * The world sent on joining does not count, as a large world dug full of
+ * tunnels can be bigger than that on its own.
+ */
+public class MultiplayerServer implements Runnable, AutoCloseable {
+	public static final int DEFAULT_PORT = 7777;
+	public static final int TICKS_PER_SECOND = 20;
+	public static final int MAX_PENDING_BYTES = 4 << 20;
+	private static final int POWER_UP_SECONDS = 10;
+	private static final int READ_BUFFER = 2048;
+
+	/**
+	 * The state of one client socket.
+	 */
+	private static final class Connection {
+		final SocketChannel channel;
+		final SelectionKey key;
+		final SharedWorld.Player player;
+		final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+		ByteBuffer out = ByteBuffer.allocate(1024);
+		boolean welcomed;
+		// Bytes of the world sent on joining still waiting, which the pending limit lets through
+		int welcomePending;
+
+		Connection(SocketChannel channel, SelectionKey key, SharedWorld.Player player) {
+			this.channel = channel;
+			this.key = key;
+			this.player = player;
+		}
+	}
+
+	private final SharedWorld shared;
+	private final WorldGrid world;
+	private final long tickNanos;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final List<Connection> connections = new ArrayList<>();
+	private final byte[] sent;
+	private final int[] dirtyCells = new int[DirtyRegion.CAPACITY];
+	private int[] changed = new int[DirtyRegion.CAPACITY];
+	private final Protocol.Writer writer = new Protocol.Writer();
+	private volatile boolean running = true;
+	private long bytesSent;
+
+	/**
+	 * Opens the server socket; call {@link #run()} to start serving.
+	 *
+	 * @param address where to listen; port 0 picks a free one
+	 * @throws IllegalArgumentException if the world has more than {@link Protocol#MAX_WORLD_CELLS} cells
+	 */
+	public MultiplayerServer(WorldGrid world, int ticksPerSecond, InetSocketAddress address) throws IOException {
+		if (world.size() > Protocol.MAX_WORLD_CELLS) {
+			throw new IllegalArgumentException("World of " + world.size() + " cells is too large to share");
+		}
+		this.world = world;
+		this.shared = new SharedWorld(world, Level.SKY_HEIGHT, POWER_UP_SECONDS * ticksPerSecond);
+		this.tickNanos = 1_000_000_000L / ticksPerSecond;
+		this.sent = new byte[world.size()];
+		for (int i = 0; i < sent.length; i++) {
+			sent[i] = world.get(i);
+		}
+		world.getDirtyRegion().drain(dirtyCells);
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(address);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Serves clients until {@link #close()} is called.
+	 */
+	@Override
+	public void run() {
+		long nextTick = System.nanoTime() + tickNanos;
+		try {
+			while (running) {
+				long wait = nextTick - System.nanoTime();
+				if (wait > 0) {
+					selector.select(Math.max(1, wait / 1_000_000));
+				} else {
+					selector.selectNow();
+				}
+				handleReadyKeys();
+				long now = System.nanoTime();
+				if (now - nextTick >= 0) {
+					tick();
+					nextTick += tickNanos;
+					if (now - nextTick > tickNanos * TICKS_PER_SECOND) {
+						// Fell far behind, as after a pause in a debugger; skip ahead instead of racing to catch up
+						nextTick = now + tickNanos;
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Server stopped: " + e.getMessage());
+		} finally {
+			shutdown();
+		}
+	}
+
+	private void handleReadyKeys() throws IOException {
+		Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+		while (ready.hasNext()) {
+			SelectionKey key = ready.next();
+			ready.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+			Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isReadable()) {
+					read(connection);
+				}
+				if (key.isValid() && key.isWritable()) {
+					flush(connection);
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				// A reset connection or a garbled frame; either way the client is gone
+				disconnect(connection);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			SharedWorld.Player player = shared.join();
+			if (player == null) {
+				// The world is full of moles, or the server ran out of player ids
+				channel.close();
+				continue;
+			}
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			Connection connection = new Connection(channel, key, player);
+			key.attach(connection);
+			connections.add(connection);
+		}
+	}
+
+	private void read(Connection connection) throws IOException {
+		int n = connection.channel.read(connection.in);
+		if (n < 0) {
+			disconnect(connection);
+			return;
+		}
+		ByteBuffer in = connection.in;
+		in.flip();
+		ByteBuffer frame;
+		while ((frame = Protocol.nextFrame(in, Protocol.MAX_CLIENT_FRAME)) != null) {
+			if (frame.get() == Protocol.INPUT) {
+				long keys = Protocol.getVarint(frame);
+				for (long i = 0; i < keys && frame.hasRemaining(); i++) {
+					shared.offer(connection.player, (char) (frame.get() & 0xFF));
+				}
+			}
+		}
+		in.compact();
+	}
+
+	private void disconnect(Connection connection) {
+		connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		if (connections.remove(connection)) {
+			shared.leave(connection.player);
+		}
+	}
+
+	/**
+	 * Applies the queued keys, then sends what changed to the clients that
+	 * have the world and the whole world to those that just joined.
+	 */
+	private void tick() {
+		shared.tick();
+		int length = encodeDelta();
+		if (length > 0) {
+			ByteBuffer frame = writer.frame();
+			for (int i = connections.size() - 1; i >= 0; i--) {
+				Connection connection = connections.get(i);
+				if (connection.welcomed) {
+					send(connection, frame.duplicate());
+				}
+			}
+		}
+		for (int i = connections.size() - 1; i >= 0; i--) {
+			Connection connection = connections.get(i);
+			if (!connection.welcomed) {
+				connection.welcomed = true;
+				encodeWelcome(connection.player.getId());
+				ByteBuffer welcome = writer.frame();
+				connection.welcomePending = welcome.remaining();
+				send(connection, welcome);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the changes since the last tick into the writer and brings the
+	 * sent copy up to date.
+	 *
+	 * @return the frame length, or 0 if nothing changed
+	 */
+	private int encodeDelta() {
+		int count = world.getDirtyRegion().drain(dirtyCells);
+		int changedCount = 0;
+		if (count == DirtyRegion.ALL) {
+			for (int i = 0; i < sent.length; i++) {
+				if (world.get(i) != sent[i]) {
+					changed = append(changed, changedCount++, i);
+				}
+			}
+		} else {
+			Arrays.sort(dirtyCells, 0, count);
+			for (int i = 0; i < count; i++) {
+				int cell = dirtyCells[i];
+				if (world.get(cell) != sent[cell]) {
+					changed = append(changed, changedCount++, cell);
+				}
+			}
+		}
+		int movedPlayers = 0;
+		for (int i = 0; i < shared.getPlayerCount(); i++) {
+			if (shared.isChanged(shared.getPlayer(i))) {
+				movedPlayers++;
+			}
+		}
+		if (changedCount == 0 && movedPlayers == 0 && shared.getDepartedCount() == 0) {
+			return 0;
+		}
+
+		writer.begin(Protocol.DELTA).putVarint(shared.getTick()).putVarint(changedCount);
+		int previous = -1;
+		for (int i = 0; i < changedCount; i++) {
+			int cell = changed[i];
+			byte type = world.get(cell);
+			sent[cell] = type;
+			writer.putVarint(cell - previous - 1).putByte(type);
+			previous = cell;
+		}
+		writer.putVarint(movedPlayers);
+		for (int i = 0; i < shared.getPlayerCount(); i++) {
+			SharedWorld.Player player = shared.getPlayer(i);
+			if (shared.isChanged(player)) {
+				shared.clearChanged(player);
+				putPlayer(player);
+			}
+		}
+		writer.putVarint(shared.getDepartedCount());
+		for (int i = 0; i < shared.getDepartedCount(); i++) {
+			writer.putVarint(shared.getDeparted(i));
+		}
+		shared.clearDeparted();
+		return writer.end();
+	}
+
+	private void encodeWelcome(int playerId) {
+		writer.begin(Protocol.WELCOME).putVarint(playerId).putVarint(world.getWidth())
+				.putVarint(world.getHeight()).putVarint(shared.getTick());
+		Protocol.putCells(writer, world);
+		writer.putVarint(shared.getPlayerCount());
+		for (int i = 0; i < shared.getPlayerCount(); i++) {
+			putPlayer(shared.getPlayer(i));
+		}
+		writer.end();
+	}
+
+	private void putPlayer(SharedWorld.Player player) {
+		writer.putVarint(player.getId()).putVarint(world.index(player.getX(), player.getY()))
+				.putVarint(player.getScore());
+	}
+
+	private static int[] append(int[] list, int at, int value) {
+		if (at == list.length) {
+			list = Arrays.copyOf(list, list.length * 2);
+		}
+		list[at] = value;
+		return list;
+	}
+
+	/**
+	 * Queues a frame for a client and writes as much as the socket takes now.
+	 */
+	private void send(Connection connection, ByteBuffer frame) {
+		ByteBuffer out = connection.out;
+		if (out.position() + frame.remaining() - connection.welcomePending > MAX_PENDING_BYTES) {
+			disconnect(connection);
+			return;
+		}
+		if (out.remaining() < frame.remaining()) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + frame.remaining()));
+			out.flip();
+			grown.put(out);
+			connection.out = out = grown;
+		}
+		out.put(frame);
+		try {
+			flush(connection);
+		} catch (IOException e) {
+			disconnect(connection);
+		}
+	}
+
+	private void flush(Connection connection) throws IOException {
+		ByteBuffer out = connection.out;
+		out.flip();
+		int written = connection.channel.write(out);
+		bytesSent += written;
+		connection.welcomePending = Math.max(0, connection.welcomePending - written);
+		out.compact();
+		// Only ask to hear about writability while something is waiting
+		int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+		if (connection.key.interestOps() != ops) {
+			connection.key.interestOps(ops);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written to clients so far. Only accurate
+	 * when read on the server thread or after it stopped.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of connected clients. Only accurate when read on
+	 * the server thread or after it stopped.
+	 */
+	public int getClientCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Stops serving and closes every connection.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		selector.wakeup();
+	}
+
+	private void shutdown() {
+		for (Connection connection : connections) {
+			try {
+				connection.channel.close();
+			} catch (IOException e) {
+				// Closing anyway
+			}
+		}
+		connections.clear();
+		try {
+			server.close();
+			selector.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close the server socket: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Serves a world generated from a seed.
+	 *
+	 * Usage: {@code MultiplayerServer [port] [width] [height] [seed]}
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int height = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : new SplittableRandom().nextLong();
+		int cells = width * height;
+		Level level = new LevelGenerator(Level.SKY_HEIGHT).generate(1, seed, width, height, cells / 40, cells / 400);
+		WorldGrid world = level.getWorld();
+		// Players get their own spawn points
+		world.set(level.getStartX(), level.getStartY(), CellType.SOIL);
+		try (MultiplayerServer server = new MultiplayerServer(world, TICKS_PER_SECOND, new InetSocketAddress(port))) {
+			System.out.println("Serving a " + width + "x" + height + " world (seed " + seed + ") on port "
+					+ server.getPort());
+			server.run();
+		}
+	}
+}
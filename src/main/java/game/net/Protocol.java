@@ -0,0 +1,221 @@
+package game.net;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import game.CellType;
+import game.WorldGrid;
+
+/**
+ * The messages between a {@link MultiplayerServer} and its clients.
+ *
+ * Every message is a frame: its length as a varint, then a type byte and
+ * the payload. Numbers are unsigned LEB128 varints, so small ones take a
+ * byte.
+ *
+ * <ul>
+ * <li>{@link #INPUT}, client to server: the key count, then one byte per
+ * key.</li>
+ * <li>{@link #WELCOME}, sent once to a new client: its player id, the
+ * world's width and height, the tick, the cells as runs of (length, type),
+ * then the players as in a delta.</li>
+ * <li>{@link #DELTA}, broadcast after every tick that changed something:
+ * the tick, the changed cells as (gap from the previous index, type) in
+ * index order, the players that moved or scored as (id, cell, score), and
+ * the ids of the players that left.</li>
+ * </ul>
+ */
+public final class Protocol {
+	public static final byte INPUT = 1;
+	public static final byte WELCOME = 2;
+	public static final byte DELTA = 3;
+	/** Longest frame a client may send. */
+	public static final int MAX_CLIENT_FRAME = 1024;
+	/** Longest frame a server may send. */
+	public static final int MAX_SERVER_FRAME = 64 << 20;
+	/** Most cells a shared world may have, so a client can always allocate its copy. */
+	public static final int MAX_WORLD_CELLS = 16 << 20;
+	/** Largest player id. Ids are not reused, so this is how many players a server takes in its lifetime. */
+	public static final int MAX_PLAYER_ID = (1 << 20) - 1;
+	// Room for the frame length, which is written after the payload is known
+	private static final int LENGTH_RESERVE = 5;
+
+	private Protocol() {
+	}
+
+	/**
+	 * A frame being written into a reusable buffer.
+	 */
+	public static final class Writer {
+		private ByteBuffer buffer = ByteBuffer.allocate(4096);
+		private int start;
+
+		/**
+		 * Starts a new frame of the given type, discarding anything written so far.
+		 */
+		public Writer begin(byte type) {
+			buffer.clear();
+			buffer.position(LENGTH_RESERVE);
+			buffer.put(type);
+			return this;
+		}
+
+		public Writer putByte(int b) {
+			ensure(1);
+			buffer.put((byte) b);
+			return this;
+		}
+
+		public Writer putVarint(long value) {
+			ensure(10);
+			Protocol.putVarint(buffer, value);
+			return this;
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				if (buffer.capacity() >= MAX_SERVER_FRAME) {
+					throw new BufferOverflowException();
+				}
+				ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+
+		/**
+		 * Finishes the frame: its length goes just in front of it.
+		 *
+		 * @return the number of bytes in the frame, length included
+		 */
+		public int end() {
+			int payload = buffer.position() - LENGTH_RESERVE;
+			start = LENGTH_RESERVE - varintSize(payload);
+			int end = buffer.position();
+			buffer.position(start);
+			Protocol.putVarint(buffer, payload);
+			buffer.position(end);
+			return end - start;
+		}
+
+		/**
+		 * Returns the finished frame as a read-only view; valid until the next {@link #begin}.
+		 */
+		public ByteBuffer frame() {
+			return buffer.asReadOnlyBuffer().flip().position(start);
+		}
+	}
+
+	public static void putVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Reads a varint, or returns -1 without moving if the buffer ends before it does.
+	 *
+	 * @throws IllegalArgumentException if the varint is longer than a long
+	 */
+	public static long getVarint(ByteBuffer buffer) {
+		int start = buffer.position();
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				buffer.position(start);
+				return -1;
+			}
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * Returns the next complete frame in {@code buffer} as a slice starting at
+	 * its type byte, and moves past it; or returns null, without moving, if
+	 * the frame has not fully arrived.
+	 *
+	 * @throws IllegalArgumentException if the frame is empty or longer than {@code maxFrame}
+	 */
+	public static ByteBuffer nextFrame(ByteBuffer buffer, int maxFrame) {
+		int start = buffer.position();
+		long length = getVarint(buffer);
+		if (length < 0) {
+			return null;
+		}
+		if (length == 0 || length > maxFrame) {
+			throw new IllegalArgumentException("Bad frame length " + length);
+		}
+		if (buffer.remaining() < length) {
+			buffer.position(start);
+			return null;
+		}
+		ByteBuffer frame = buffer.slice(buffer.position(), (int) length);
+		buffer.position(buffer.position() + (int) length);
+		return frame;
+	}
+
+	/**
+	 * Writes every cell of {@code world} as runs of equal cells.
+	 */
+	static void putCells(Writer out, WorldGrid world) {
+		int size = world.size();
+		int runs = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || world.get(i) != world.get(i - 1)) {
+				runs++;
+			}
+		}
+		out.putVarint(runs);
+		int i = 0;
+		while (i < size) {
+			byte type = world.get(i);
+			int end = i + 1;
+			while (end < size && world.get(end) == type) {
+				end++;
+			}
+			out.putVarint(end - i).putByte(type);
+			i = end;
+		}
+	}
+
+	/**
+	 * Reads the cells written by {@link #putCells} into {@code cells}.
+	 */
+	static void getCells(ByteBuffer in, byte[] cells) {
+		long runs = getVarint(in);
+		int at = 0;
+		for (long r = 0; r < runs; r++) {
+			int length = (int) getVarint(in);
+			byte type = in.get();
+			if (length <= 0 || at + length > cells.length) {
+				throw new IllegalArgumentException("Cell runs overflow the world");
+			}
+			if (type < 0 || type >= CellType.COUNT) {
+				throw new IllegalArgumentException("Bad cell type " + type);
+			}
+			Arrays.fill(cells, at, at + length, type);
+			at += length;
+		}
+		if (at != cells.length) {
+			throw new IllegalArgumentException("Cell runs cover " + at + " of " + cells.length + " cells");
+		}
+	}
+}
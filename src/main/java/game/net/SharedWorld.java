@@ -0,0 +1,255 @@
+package game.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import game.CellType;
+import game.EffectScheduler;
+import game.MoveResolver;
+import game.WorldGrid;
+
+/**
+ * The rules of the game for many moles digging in one world, as run by a
+ * {@link MultiplayerServer}.
+ *
+ * Moves follow the single-player rules of {@link game.GameEngine}: moles
+ * dig tunnels, obstacles and the sky stop them, power-ups make them move
+ * two cells for a while and goals are worth points. On top of that a mole
+ * cannot move into or through another mole. Keys are queued as they arrive
+ * and applied in batches on each {@link #tick()}, players in the order they
+ * joined, at most {@link #MOVES_PER_TICK} per player so a fast client gets
+ * no advantage beyond that.
+ *
+ * Instances are not thread-safe; the server thread owns one.
+ */
+public class SharedWorld {
+	public static final int MOVES_PER_TICK = 2;
+	public static final int GOAL_POINTS = 100;
+	// Keys a player can have waiting; more are dropped
+	private static final int KEY_QUEUE = 16;
+	private static final int BOOST_DISTANCE = 2;
+	private static final int EFFECT_WHEEL_SLOTS = 256;
+	// Per direction index of MoveResolver
+	private static final int[] DX = { 0, -1, 0, 1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+
+	/**
+	 * One mole and its queued keys.
+	 */
+	public static final class Player {
+		private final int id;
+		private int x;
+		private int y;
+		private int score;
+		private boolean boosted;
+		private boolean changed = true;
+		private final EffectScheduler.Timer boostTimer = new EffectScheduler.Timer(() -> boosted = false);
+		private final char[] keys = new char[KEY_QUEUE];
+		private int keyHead;
+		private int keyCount;
+
+		private Player(int id, int x, int y) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public int getX() {
+			return x;
+		}
+
+		public int getY() {
+			return y;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		public boolean isBoosted() {
+			return boosted;
+		}
+	}
+
+	private final WorldGrid world;
+	private final int skyHeight;
+	private final int boostTicks;
+	private final MoveResolver mover;
+	private final EffectScheduler effects = new EffectScheduler(EFFECT_WHEEL_SLOTS);
+	private final List<Player> players = new ArrayList<>();
+	private int[] departed = new int[16];
+	private int departedCount;
+	private int nextId = 1;
+	private long tick;
+
+	/**
+	 * @param boostTicks how long a power-up lasts
+	 */
+	public SharedWorld(WorldGrid world, int skyHeight, int boostTicks) {
+		this.world = world;
+		this.skyHeight = skyHeight;
+		this.boostTicks = boostTicks;
+		this.mover = new MoveResolver(skyHeight);
+	}
+
+	/**
+	 * Adds a mole on the first free surface cell from a spot that depends on
+	 * its id, so players spread out along the surface.
+	 *
+	 * @return the new player, or null if there is no room or no id left
+	 */
+	public Player join() {
+		if (nextId > Protocol.MAX_PLAYER_ID) {
+			return null;
+		}
+		int width = world.getWidth();
+		int id = nextId;
+		int startX = (int) ((id * 0x9E3779B1L & 0xFFFFFFFFL) % width);
+		for (int y = skyHeight; y < world.getHeight(); y++) {
+			for (int i = 0; i < width; i++) {
+				int x = (startX + i) % width;
+				byte type = world.get(x, y);
+				if (type == CellType.SOIL || type == CellType.TUNNEL) {
+					nextId++;
+					world.set(x, y, CellType.MOLE);
+					Player player = new Player(id, x, y);
+					players.add(player);
+					return player;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a mole, leaving a tunnel where it was.
+	 */
+	public void leave(Player player) {
+		if (!players.remove(player)) {
+			return;
+		}
+		world.set(player.x, player.y, CellType.TUNNEL);
+		player.boostTimer.cancel();
+		if (departedCount == departed.length) {
+			departed = Arrays.copyOf(departed, departedCount * 2);
+		}
+		departed[departedCount++] = player.id;
+	}
+
+	/**
+	 * Queues a key from a player for the next tick. Keys beyond what the
+	 * queue holds are dropped.
+	 *
+	 * @return false if the key was dropped
+	 */
+	public boolean offer(Player player, char key) {
+		if (player.keyCount == KEY_QUEUE) {
+			return false;
+		}
+		player.keys[(player.keyHead + player.keyCount++) % KEY_QUEUE] = key;
+		return true;
+	}
+
+	/**
+	 * Applies the queued keys and advances the timed effects by one tick.
+	 */
+	public void tick() {
+		tick++;
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			for (int moves = 0; moves < MOVES_PER_TICK && player.keyCount > 0; moves++) {
+				char key = player.keys[player.keyHead];
+				player.keyHead = (player.keyHead + 1) % KEY_QUEUE;
+				player.keyCount--;
+				move(player, key);
+			}
+		}
+		effects.advance();
+	}
+
+	private void move(Player player, char key) {
+		int steps = player.boosted ? BOOST_DISTANCE : 1;
+		if (isMoleInTheWay(player, key, steps)) {
+			return;
+		}
+		if (mover.resolve(world, player.x, player.y, key, steps) != MoveResolver.MOVED) {
+			return;
+		}
+		player.x = mover.getX();
+		player.y = mover.getY();
+		player.changed = true;
+		byte target = mover.getTarget();
+		if (target == CellType.POWER_UP) {
+			player.boosted = true;
+			effects.schedule(player.boostTimer, boostTicks);
+		} else if (target == CellType.GOAL) {
+			player.score += GOAL_POINTS;
+		}
+	}
+
+	private boolean isMoleInTheWay(Player player, char key, int steps) {
+		int dir = MoveResolver.direction(key);
+		if (dir < 0) {
+			return false;
+		}
+		for (int step = 1; step <= steps; step++) {
+			int x = player.x + DX[dir] * step;
+			int y = player.y + DY[dir] * step;
+			if (world.inBounds(x, y) && world.get(x, y) == CellType.MOLE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public WorldGrid getWorld() {
+		return world;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public int getPlayerCount() {
+		return players.size();
+	}
+
+	/**
+	 * Returns the {@code i}th player, in the order they joined.
+	 */
+	public Player getPlayer(int i) {
+		return players.get(i);
+	}
+
+	/**
+	 * Returns whether the player moved or scored since the last
+	 * {@link #clearChanged(Player)}, or just joined.
+	 */
+	public boolean isChanged(Player player) {
+		return player.changed;
+	}
+
+	public void clearChanged(Player player) {
+		player.changed = false;
+	}
+
+	/**
+	 * Returns how many players left since the last {@link #clearDeparted()}.
+	 */
+	public int getDepartedCount() {
+		return departedCount;
+	}
+
+	public int getDeparted(int i) {
+		return departed[i];
+	}
+
+	public void clearDeparted() {
+		departedCount = 0;
+	}
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer ring buffer of input events.
+ *
+ * The producer (normally the AWT event thread) publishes events without
+ * taking a lock: it writes the slot and then advances the tail with a release
+ * store. The consumer (the game loop) reads the tail with an acquire load and
+ * drains every published event in one batch. Each side caches the other's
+ * position so the shared counters are only re-read when the buffer looks full
+ * or empty. When the buffer is full new events are counted as dropped rather
+ * than overwriting events the consumer has not seen yet.
+ */
+public class InputEventQueue {
+
+    /**
+     * Receives drained events.
+     */
+    public interface Consumer {
+        void accept(char key, boolean pressed, long timestampNanos);
+    }
+
+    private final int mask;
+    private final char[] keys;
+    private final boolean[] pressed;
+    private final long[] timestamps;
+
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+    private long cachedHead; // producer's view of head
+    private long cachedTail; // consumer's view of tail
+    private volatile long dropped;
+
+    /**
+     * @param capacity number of events that can be buffered, rounded up to a power of two
+     */
+    public InputEventQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.keys = new char[size];
+        this.pressed = new boolean[size];
+        this.timestamps = new long[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Publishes an event. Must only be called from the producer thread.
+     *
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(char key, boolean isPressed, long timestampNanos) {
+        long t = tail.getPlain();
+        if (t - cachedHead > mask) {
+            cachedHead = head.getAcquire();
+            if (t - cachedHead > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        keys[slot] = key;
+        pressed[slot] = isPressed;
+        timestamps[slot] = timestampNanos;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code limit} published events to {@code consumer} in the
+     * order they were offered. Must only be called from the consumer thread.
+     *
+     * @return the number of events drained
+     */
+    public int drain(Consumer consumer, int limit) {
+        long h = head.getPlain();
+        if (h == cachedTail) {
+            cachedTail = tail.getAcquire();
+            if (h == cachedTail) {
+                return 0;
+            }
+        }
+        int count = (int) Math.min(cachedTail - h, limit);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (h + i) & mask;
+            consumer.accept(keys[slot], pressed[slot], timestamps[slot]);
+        }
+        head.setRelease(h + count);
+        return count;
+    }
+
+    public int drain(Consumer consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns true if no published events are waiting. Safe to call from any thread.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public int size() {
+        return (int) (tail.getAcquire() - head.getAcquire());
+    }
+
+    /**
+     * Returns how many events were rejected because the queue was full.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -2,38 +2,133 @@ package utils;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Handles user input for the MoleGame.
+ *
+ * Key presses and releases are published with a {@link System#nanoTime()}
+ * timestamp into an {@link InputEventQueue}, so bursts of keys are buffered
+ * instead of overwriting each other and nothing is lost while the game
+ * thread is busy. The game thread drains the queue in batches; publishing
+ * never blocks the event thread.
  */
 public class InputHandler extends KeyAdapter {
-    private char lastKeyPressed;
-    private final Object keyLock = new Object();
+    public static final int QUEUE_CAPACITY = 256;
+
+    private final InputEventQueue queue = new InputEventQueue(QUEUE_CAPACITY);
+    private final boolean[] held = new boolean[Character.MAX_VALUE + 1];
+    private volatile Thread waiter;
+    private InputEventQueue.Consumer downstream;
+    private final InputEventQueue.Consumer trackHeld = (key, pressed, timestampNanos) -> {
+        held[key] = pressed;
+        downstream.accept(key, pressed, timestampNanos);
+    };
+
+    // Result slot for waitForKeyPress, only touched by the consumer thread
+    private char pressedKey;
+    private boolean foundPress;
+    private final InputEventQueue.Consumer firstPress = (key, pressed, timestampNanos) -> {
+        held[key] = pressed;
+        if (pressed && !foundPress) {
+            pressedKey = key;
+            foundPress = true;
+        }
+    };
 
     /**
-     * Called when a key is pressed. Stores the key and notifies waiting threads.
+     * Called when a key is pressed. Publishes the key and wakes a waiting thread.
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        synchronized (keyLock) {
-            lastKeyPressed = e.getKeyChar();
-            keyLock.notifyAll(); // Notify any thread waiting for input
+        publish(e.getKeyChar(), true);
+    }
+
+    /**
+     * Called when a key is released. Publishes the release so held keys can be tracked.
+     */
+    @Override
+    public void keyReleased(KeyEvent e) {
+        publish(e.getKeyChar(), false);
+    }
+
+    /**
+     * Publishes a key event from the single input-producing thread.
+     */
+    public void publish(char key, boolean pressed) {
+        queue.offer(key, pressed, System.nanoTime());
+        // Order the publish before reading the waiter so a parking consumer cannot miss it
+        VarHandle.fullFence();
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
         }
     }
 
     /**
-     * Waits for a key press and returns the pressed key.
+     * Drains all buffered events into {@code consumer}, updating the held-key
+     * state as it goes. Must only be called from the game thread.
+     *
+     * @return the number of events drained
+     */
+    public int drain(InputEventQueue.Consumer consumer) {
+        downstream = consumer;
+        try {
+            return queue.drain(trackHeld);
+        } finally {
+            downstream = null;
+        }
+    }
+
+    /**
+     * Returns whether the key is currently held down, as of the last drained event.
+     */
+    public boolean isHeld(char key) {
+        return held[key];
+    }
+
+    /**
+     * Parks the calling thread until input is available or the timeout elapses.
+     *
+     * @return true if events are waiting
+     */
+    public boolean awaitInput(long timeoutNanos) {
+        if (!queue.isEmpty()) {
+            return true;
+        }
+        waiter = Thread.currentThread();
+        try {
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            waiter = null;
+        }
+        return !queue.isEmpty();
+    }
+
+    /**
+     * Waits for a key press and returns the pressed key. Presses that arrived
+     * while the caller was busy are returned in order before waiting.
      *
      * @return The character of the key pressed.
      */
     public char waitForKeyPress() {
-        synchronized (keyLock) {
-            try {
-                keyLock.wait(); // Wait for a key press
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        foundPress = false;
+        while (true) {
+            queue.drain(firstPress, 1);
+            if (foundPress) {
+                return pressedKey;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return pressedKey;
             }
-            return lastKeyPressed;
+            awaitInput(Long.MAX_VALUE);
         }
     }
+
+    public InputEventQueue getQueue() {
+        return queue;
+    }
 }
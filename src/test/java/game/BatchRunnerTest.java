@@ -0,0 +1,31 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @Test
+    void testParallelRunMatchesSequential() throws InterruptedException {
+        BatchRunner runner = new BatchRunner(Difficulty.STANDARD, 3, 6, 0.1);
+
+        BatchRunner.Report parallel = runner.run(100L, 40, 4);
+        BatchRunner.Report sequential = new BatchRunner.Report(3);
+        for (int i = 0; i < 40; i++) {
+            runner.play(100L + i, sequential);
+        }
+
+        assertEquals(40, parallel.getGames());
+        assertEquals(40, parallel.getReached(1));
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    void testPerfectPlayerWinsEarlyLevels() throws InterruptedException {
+        BatchRunner.Report report = new BatchRunner(Difficulty.STANDARD, 2, 1, 0).run(7L, 20, 2);
+
+        assertEquals(1.0, report.winRate(1));
+        assertTrue(report.averageMoves(1) >= report.averageOptimalMoves(1) / 2);
+    }
+}
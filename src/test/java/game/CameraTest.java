@@ -0,0 +1,80 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CameraTest {
+    private static final int BLOCK = 20;
+
+    private static Camera camera(int viewWidth, int viewHeight, int cellsWide, int cellsHigh) {
+        Camera camera = new Camera(BLOCK);
+        camera.setViewport(viewWidth, viewHeight);
+        camera.setWorldSize(cellsWide, cellsHigh);
+        return camera;
+    }
+
+    @Test
+    void testSnapCentersOnCellAndClampsToWorld() {
+        Camera camera = camera(400, 300, 100, 100);
+
+        camera.follow(50, 50);
+        camera.snap();
+        assertEquals(50 * BLOCK + BLOCK / 2 - 200, Camera.offsetX(camera.getView()));
+        assertEquals(50 * BLOCK + BLOCK / 2 - 150, Camera.offsetY(camera.getView()));
+        assertEquals(1.0, Camera.zoom(camera.getView()));
+
+        camera.follow(0, 99);
+        camera.snap();
+        assertEquals(0, Camera.offsetX(camera.getView()));
+        assertEquals(100 * BLOCK - 300, Camera.offsetY(camera.getView()));
+    }
+
+    @Test
+    void testSmallWorldNeverScrolls() {
+        Camera camera = camera(800, 600, 10, 10);
+        camera.follow(9, 9);
+        camera.snap();
+        assertEquals(0, Camera.offsetX(camera.getView()));
+        assertEquals(0, Camera.offsetY(camera.getView()));
+    }
+
+    @Test
+    void testScrollsSmoothlyAndSettles() {
+        Camera camera = camera(400, 300, 100, 100);
+        camera.follow(10, 10);
+        camera.snap();
+        int start = Camera.offsetX(camera.getView());
+
+        camera.follow(30, 10);
+        assertTrue(camera.update());
+        int first = Camera.offsetX(camera.getView());
+        int target = 30 * BLOCK + BLOCK / 2 - 200;
+        assertTrue(first > start && first < target);
+
+        int updates = 1;
+        while (camera.update()) {
+            updates++;
+        }
+        assertTrue(updates > 5 && updates < 200);
+        assertEquals(target, Camera.offsetX(camera.getView()), 1);
+    }
+
+    @Test
+    void testZoomKeepsCenter() {
+        Camera camera = camera(400, 400, 200, 200);
+        camera.follow(100, 100);
+        camera.snap();
+
+        assertTrue(camera.zoomIn());
+        long view = camera.getView();
+        double zoom = Camera.zoom(view);
+        assertEquals(1.5, zoom);
+        double centerX = (Camera.offsetX(view) + 200) / zoom;
+        assertEquals(100 * BLOCK + BLOCK / 2, centerX, 1);
+
+        while (camera.zoomOut()) {
+        }
+        assertEquals(0.25, Camera.zoom(camera.getView()));
+    }
+}
@@ -0,0 +1,48 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirtyRegionTest {
+
+    @Test
+    void testSetRecordsChangedCellsOnce() {
+        WorldGrid grid = new WorldGrid(20, 20);
+        int[] drained = new int[DirtyRegion.CAPACITY];
+        grid.getDirtyRegion().drain(drained);
+
+        grid.set(1, 2, CellType.TUNNEL);
+        grid.set(1, 2, CellType.MOLE);
+        grid.set(3, 4, CellType.TUNNEL);
+
+        assertEquals(2, grid.getDirtyRegion().drain(drained));
+        assertEquals(grid.index(1, 2), drained[0]);
+        assertEquals(grid.index(3, 4), drained[1]);
+        assertTrue(grid.getDirtyRegion().isEmpty());
+    }
+
+    @Test
+    void testUnchangedWriteIsNotDirty() {
+        WorldGrid grid = new WorldGrid(5, 5);
+        grid.set(0, 0, CellType.EMPTY);
+        assertTrue(grid.getDirtyRegion().isEmpty());
+    }
+
+    @Test
+    void testLargeFillMarksEverything() {
+        WorldGrid grid = new WorldGrid(60, 80);
+        grid.fill(0, 0, 60, 80, CellType.SOIL);
+        assertEquals(DirtyRegion.ALL, grid.getDirtyRegion().drain(new int[DirtyRegion.CAPACITY]));
+        assertTrue(grid.getDirtyRegion().isEmpty());
+    }
+
+    @Test
+    void testOverflowCollapsesToAll() {
+        WorldGrid grid = new WorldGrid(100, 100);
+        for (int i = 0; i <= DirtyRegion.CAPACITY; i++) {
+            grid.set(i, CellType.TUNNEL);
+        }
+        assertEquals(DirtyRegion.ALL, grid.getDirtyRegion().drain(new int[DirtyRegion.CAPACITY]));
+    }
+}
@@ -0,0 +1,90 @@
+package game;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EffectSchedulerTest {
+
+    @Test
+    void testManyTimersFireExactlyOnTime() {
+        EffectScheduler scheduler = new EffectScheduler(64);
+        int count = 500;
+        long[] firedAt = new long[count];
+        long[] deadline = new long[count];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < count; i++) {
+            int id = i;
+            // Many delays are longer than one lap of the wheel
+            deadline[i] = 1 + random.nextInt(1000);
+            scheduler.schedule(deadline[i], () -> firedAt[id] = scheduler.getTick());
+        }
+        assertEquals(count, scheduler.getPending());
+
+        for (int t = 0; t < 1000; t++) {
+            scheduler.advance();
+        }
+
+        assertArrayEquals(deadline, firedAt);
+        assertEquals(0, scheduler.getPending());
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        EffectScheduler scheduler = new EffectScheduler(16);
+        int[] runs = new int[1];
+        EffectScheduler.Timer timer = new EffectScheduler.Timer(() -> runs[0]++);
+
+        scheduler.schedule(timer, 5);
+        assertTrue(timer.cancel());
+        assertFalse(timer.cancel());
+        scheduler.schedule(timer, 3);
+        scheduler.schedule(timer, 20);
+        for (int t = 0; t < 19; t++) {
+            scheduler.advance();
+        }
+        assertEquals(0, runs[0]);
+        scheduler.advance();
+        assertEquals(1, runs[0]);
+        assertFalse(timer.isPending());
+    }
+
+    @Test
+    void testActionCanCancelTimerDueOnSameTick() {
+        EffectScheduler scheduler = new EffectScheduler(8);
+        int[] runs = new int[1];
+        EffectScheduler.Timer second = new EffectScheduler.Timer(() -> runs[0]++);
+        scheduler.schedule(2, second::cancel);
+        scheduler.schedule(second, 2);
+        EffectScheduler.Timer first = scheduler.schedule(2, second::cancel);
+
+        scheduler.advance();
+        scheduler.advance();
+
+        assertFalse(first.isPending());
+        assertEquals(0, runs[0]);
+    }
+
+    @Test
+    void testBlinkStopsWhenCellChanges() {
+        EffectScheduler scheduler = new EffectScheduler(8);
+        WorldGrid world = new WorldGrid(3, 3);
+        world.set(1, 1, CellType.MOLE);
+
+        new BlinkEffect(scheduler, world, 1, 1, 3, 2).start();
+        assertEquals(CellType.GLOW_EFFECT, world.get(1, 1));
+        scheduler.advance();
+        scheduler.advance();
+        assertEquals(CellType.MOLE, world.get(1, 1));
+
+        // The mole digs on before the next blink
+        world.set(1, 1, CellType.TUNNEL);
+        for (int t = 0; t < 20; t++) {
+            scheduler.advance();
+        }
+        assertEquals(CellType.TUNNEL, world.get(1, 1));
+        assertEquals(0, scheduler.getPending());
+    }
+}
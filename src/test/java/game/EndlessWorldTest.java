@@ -0,0 +1,121 @@
+package game;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndlessWorldTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+    private static final int WIDTH = 8;
+
+    /** Soil only, so the mole can dig straight down. */
+    private static ChunkGenerator openSoil() {
+        return new ChunkGenerator(WIDTH, SKY, 5L, 0, 0, 0, 0);
+    }
+
+    private static GameEngine start(EndlessWorld endless) {
+        WorldGrid window = endless.getWindow();
+        window.set(WIDTH / 2, SKY, CellType.MOLE);
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withoutTimeLimit(), GameListener.NONE);
+        engine.startLevel(new Level(1, 0L, window, WIDTH / 2, SKY, -1, -1, 0));
+        return engine;
+    }
+
+    private static void dig(GameEngine engine, EndlessWorld endless, char key, int moves) {
+        for (int i = 0; i < moves; i++) {
+            assertEquals(GameEngine.RUNNING, engine.move(key));
+            engine.scroll(endless.follow(engine.getMoleY()));
+        }
+    }
+
+    private static long depth(GameEngine engine, EndlessWorld endless) {
+        return endless.getTopRow() + engine.getMoleY();
+    }
+
+    @Test
+    void testChunksAreDeterministic() {
+        ChunkGenerator generator = new ChunkGenerator(WIDTH, SKY, 9L);
+        byte[] a = new byte[generator.chunkSize()];
+        byte[] b = new byte[generator.chunkSize()];
+        generator.generate(40, a);
+        generator.generate(41, b);
+        generator.generate(40, b);
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    void testDeepDigKeepsMemoryBounded() {
+        ChunkCache chunks = new ChunkCache(openSoil(), 12, null);
+        EndlessWorld endless = new EndlessWorld(chunks, WIDTH, 6);
+        GameEngine engine = start(endless);
+
+        dig(engine, endless, 's', 50_000);
+
+        assertEquals(SKY + 50_000, depth(engine, endless));
+        assertTrue(chunks.size() <= 12);
+        assertTrue(chunks.getEvicted() > 3000);
+        assertEquals(CellType.MOLE, endless.getWindow().get(WIDTH / 2, engine.getMoleY()));
+        assertEquals(CellType.TUNNEL, endless.getWindow().get(WIDTH / 2, engine.getMoleY() - 1));
+    }
+
+    @Test
+    void testSpilledTunnelsComeBack() throws IOException {
+        try (ChunkCache chunks = new ChunkCache(openSoil(), 8, ChunkSpill.createTemp(openSoil().chunkSize()))) {
+            EndlessWorld endless = new EndlessWorld(chunks, WIDTH, 6);
+            GameEngine engine = start(endless);
+
+            dig(engine, endless, 's', 1000);
+            dig(engine, endless, 'a', 1);
+            // Walk back up beside the tunnel until it is in view again
+            dig(engine, endless, 'w', 990);
+
+            WorldGrid window = endless.getWindow();
+            int y = engine.getMoleY();
+            assertEquals(CellType.TUNNEL, window.get(WIDTH / 2, y));
+            assertEquals(CellType.TUNNEL, window.get(WIDTH / 2, y + 5));
+            assertTrue(chunks.getRestored() > 0);
+        }
+    }
+
+    @Test
+    void testWithoutSpillFarTunnelsAreForgotten() {
+        ChunkCache chunks = new ChunkCache(openSoil(), 8, null);
+        EndlessWorld endless = new EndlessWorld(chunks, WIDTH, 6);
+        GameEngine engine = start(endless);
+
+        dig(engine, endless, 's', 1000);
+        dig(engine, endless, 'a', 1);
+        dig(engine, endless, 'w', 990);
+
+        assertEquals(CellType.SOIL, endless.getWindow().get(WIDTH / 2, engine.getMoleY()));
+        assertEquals(0, chunks.getRestored());
+    }
+
+    @Test
+    void testBlinkingMoleFollowsTheScroll() {
+        ChunkCache chunks = new ChunkCache(openSoil(), 12, null);
+        EndlessWorld endless = new EndlessWorld(chunks, WIDTH, 6);
+        GameEngine engine = start(endless);
+        WorldGrid window = endless.getWindow();
+        // One row short of where the window moves down
+        int trigger = (6 - EndlessWorld.MARGIN_CHUNKS) * ChunkGenerator.CHUNK_ROWS;
+        dig(engine, endless, 's', trigger - 1 - SKY);
+
+        assertEquals(GameEngine.RUNNING, engine.move('s'));
+        engine.highlight(engine.getMoleX(), engine.getMoleY());
+        assertEquals(CellType.GLOW_EFFECT, window.get(engine.getMoleX(), engine.getMoleY()));
+        int rows = endless.follow(engine.getMoleY());
+        assertEquals(ChunkGenerator.CHUNK_ROWS, rows);
+        engine.scroll(rows);
+        for (int i = 0; i < GameEngine.TICKS_PER_SECOND * 2; i++) {
+            engine.tick();
+        }
+
+        assertEquals(CellType.MOLE, window.get(engine.getMoleX(), engine.getMoleY()));
+        assertEquals(0, window.count(CellType.GLOW_EFFECT));
+        // The sky is out of view, so the top rows of the window are soil like any other
+        assertEquals(CellType.SOIL, window.get(0, 0));
+    }
+}
@@ -0,0 +1,106 @@
+package game;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowFieldTest {
+    private static final int SOIL_COST = 4;
+
+    private static void assertSameAsRebuilt(WorldGrid world, FlowField field) {
+        FlowField rebuilt = new FlowField(SOIL_COST);
+        rebuilt.reset(world, field.getRoot());
+        for (int i = 0; i < world.size(); i++) {
+            assertEquals(rebuilt.distance(i), field.distance(i), "cell " + world.xOf(i) + "," + world.yOf(i));
+        }
+    }
+
+    @Test
+    void testTunnelsAreCheaperThanSoil() {
+        WorldGrid world = TestWorlds.soil(10, 10, 1);
+        world.fill(1, 5, 8, 1, CellType.TUNNEL);
+        world.set(8, 5, CellType.MOLE);
+        world.set(5, 4, CellType.OBSTACLE);
+        FlowField field = new FlowField(SOIL_COST);
+        field.reset(world, world.index(8, 5));
+
+        assertEquals(0, field.distance(world.index(8, 5)));
+        assertEquals(7, field.distance(world.index(1, 5)));
+        // One step into the tunnel from below, then along it
+        assertEquals(1 + 4, field.distance(world.index(4, 6)));
+        assertEquals(FlowField.UNREACHABLE, field.distance(world.index(5, 4)));
+        assertEquals(FlowField.UNREACHABLE, field.distance(world.index(5, 0)));
+    }
+
+    @Test
+    void testIncrementalUpdatesMatchRebuild() {
+        WorldGrid world = TestWorlds.soil(30, 25, 1);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 120; i++) {
+            world.set(random.nextInt(30), 1 + random.nextInt(24), CellType.OBSTACLE);
+        }
+        int mole = world.index(15, 12);
+        world.set(mole, CellType.MOLE);
+        FlowField field = new FlowField(SOIL_COST);
+        field.reset(world, mole);
+
+        int[] steps = { -1, 1, -30, 30 };
+        for (int round = 0; round < 400; round++) {
+            if (random.nextInt(3) > 0) {
+                // The mole digs to a neighbor, leaving a tunnel
+                int next = mole + steps[random.nextInt(4)];
+                if (next < 30 || next >= world.size() || Math.abs(world.xOf(next) - world.xOf(mole)) > 1
+                        || world.get(next) == CellType.OBSTACLE) {
+                    continue;
+                }
+                world.set(mole, CellType.TUNNEL);
+                field.cellChanged(mole, CellType.TUNNEL);
+                world.set(next, CellType.MOLE);
+                field.cellChanged(next, CellType.MOLE);
+                field.setRoot(next);
+                mole = next;
+            } else {
+                // Cells change on their own: rock falls, tunnels collapse or open up
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    int cell = world.index(random.nextInt(30), 1 + random.nextInt(24));
+                    if (cell == mole) {
+                        continue;
+                    }
+                    byte[] types = { CellType.SOIL, CellType.TUNNEL, CellType.OBSTACLE };
+                    byte type = types[random.nextInt(3)];
+                    world.set(cell, type);
+                    field.cellChanged(cell, type);
+                }
+            }
+            field.update();
+            assertSameAsRebuilt(world, field);
+        }
+    }
+
+    @Test
+    void testDiggingAwayFromTheMoleTouchesFewCells() {
+        WorldGrid world = TestWorlds.soil(200, 200, 1);
+        int mole = world.index(100, 100);
+        world.set(mole, CellType.MOLE);
+        FlowField field = new FlowField(SOIL_COST);
+        field.reset(world, mole);
+        assertEquals(world.size() - 200, field.getSettled());
+
+        // Sealing off a corner pocket changes only the cells inside it
+        world.set(3, 1, CellType.OBSTACLE);
+        field.cellChanged(world.index(3, 1), CellType.OBSTACLE);
+        world.set(3, 2, CellType.OBSTACLE);
+        field.cellChanged(world.index(3, 2), CellType.OBSTACLE);
+        world.fill(0, 3, 4, 1, CellType.OBSTACLE);
+        for (int x = 0; x < 4; x++) {
+            field.cellChanged(world.index(x, 3), CellType.OBSTACLE);
+        }
+        int settled = field.update();
+
+        assertTrue(settled < 100, "settled " + settled);
+        assertEquals(FlowField.UNREACHABLE, field.distance(world.index(0, 1)));
+        assertSameAsRebuilt(world, field);
+    }
+}
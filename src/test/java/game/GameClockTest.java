@@ -0,0 +1,40 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameClockTest {
+    private long now;
+
+    @Test
+    void testAdvanceHandsOutWholeTicks() {
+        GameClock clock = new GameClock(100, () -> now);
+        now += 25_000_000; // 2.5 ticks
+        assertEquals(2, clock.advance());
+        now += 5_000_000; // remainder 0.5 + 0.5
+        assertEquals(1, clock.advance());
+        assertEquals(0, clock.advance());
+    }
+
+    @Test
+    void testNanosUntilNextTick() {
+        GameClock clock = new GameClock(100, () -> now);
+        now += 4_000_000;
+        assertEquals(6_000_000, clock.nanosUntilNextTick());
+        now += 10_000_000;
+        assertEquals(0, clock.nanosUntilNextTick());
+    }
+
+    @Test
+    void testPausedTimeIsNotCounted() {
+        GameClock clock = new GameClock(100, () -> now);
+        now += 15_000_000;
+        clock.pause();
+        now += 1_000_000_000;
+        assertEquals(0, clock.advance());
+        clock.resume();
+        now += 5_000_000;
+        assertEquals(2, clock.advance());
+    }
+}
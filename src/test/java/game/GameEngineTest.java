@@ -0,0 +1,223 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEngineTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+
+    private final List<String> messages = new ArrayList<>();
+    private final GameListener recorder = new GameListener() {
+        @Override
+        public void onMessage(String message) {
+            messages.add(message);
+        }
+    };
+
+    /** 5 wide, soil from row 5 to 11, mole at (2, 5) and goal at (2, 9). */
+    private static Level smallLevel() {
+        WorldGrid world = TestWorlds.soil(5, 12);
+        world.set(2, SKY, CellType.MOLE);
+        world.set(2, 9, CellType.GOAL);
+        world.set(3, SKY, CellType.OBSTACLE);
+        world.set(1, SKY, CellType.POWER_UP);
+        return new Level(1, 0L, world, 2, SKY, 2, 9, 4);
+    }
+
+    @Test
+    void testDigsToGoal() {
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, recorder);
+        engine.startLevel(smallLevel());
+
+        assertEquals(GameEngine.RUNNING, engine.move('s'));
+        assertEquals(GameEngine.RUNNING, engine.move('s'));
+        assertEquals(GameEngine.RUNNING, engine.move('s'));
+        assertEquals(CellType.TUNNEL, engine.getWorld().get(2, SKY));
+        assertEquals(CellType.MOLE, engine.getWorld().get(2, 8));
+        assertEquals(GameEngine.WON, engine.move('s'));
+        assertEquals(4, engine.getMoves());
+        assertEquals(100, engine.getScore());
+    }
+
+    @Test
+    void testRefusedMoves() {
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, recorder);
+        engine.startLevel(smallLevel());
+
+        engine.move('w');
+        engine.move('d');
+        engine.move('x');
+
+        assertEquals(List.of("You can't dig in the sky!", "You hit an obstacle!"), messages);
+        assertEquals(0, engine.getMoves());
+        assertEquals(2, engine.getMoleX());
+    }
+
+    @Test
+    void testPowerUpDoublesMovesUntilItExpires() {
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, recorder);
+        engine.startLevel(smallLevel());
+
+        engine.move('a');
+        assertTrue(engine.isBoosted());
+        engine.move('s');
+        assertEquals(SKY + 2, engine.getMoleY());
+
+        for (int i = 0; i < Difficulty.STANDARD.getPowerUpDuration() * GameEngine.TICKS_PER_SECOND; i++) {
+            engine.tick();
+        }
+        assertFalse(engine.isBoosted());
+        engine.move('s');
+        assertEquals(SKY + 3, engine.getMoleY());
+    }
+
+    @Test
+    void testTimeRunsOut() {
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, recorder);
+        engine.startLevel(smallLevel());
+        long limit = engine.getRemainingTicks();
+
+        for (long i = 0; i < limit; i++) {
+            assertEquals(GameEngine.RUNNING, engine.tick());
+        }
+        assertEquals(GameEngine.LOST, engine.tick());
+        assertEquals(GameEngine.LOST, engine.move('s'));
+    }
+
+    /** Open soil with the mole in the middle of the surface. */
+    private static Level openLevel(int size) {
+        WorldGrid world = TestWorlds.soil(size, size);
+        world.set(size / 2, SKY, CellType.MOLE);
+        return new Level(1, 42L, world, size / 2, SKY, -1, -1, 0);
+    }
+
+    @Test
+    void testEnemyCatchesIdleMole() {
+        boolean[] caught = new boolean[1];
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withEnemiesPerLevel(3), new GameListener() {
+            @Override
+            public void onCaught(Level level) {
+                caught[0] = true;
+            }
+        });
+        engine.startLevel(openLevel(40));
+        assertEquals(3, engine.getEnemies().size());
+        assertEquals(3, engine.getWorld().count(CellType.ENEMY));
+
+        int status = GameEngine.RUNNING;
+        while (status == GameEngine.RUNNING) {
+            status = engine.tick();
+        }
+
+        assertEquals(GameEngine.LOST, status);
+        assertTrue(caught[0]);
+        assertTrue(engine.getRemainingTicks() > 0);
+        // Enemies burrow without digging
+        assertEquals(0, engine.getWorld().count(CellType.TUNNEL));
+    }
+
+    @Test
+    void testDiggingIntoAnEnemyIsCaughtToo() {
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withEnemiesPerLevel(1), GameListener.NONE);
+        engine.startLevel(openLevel(40));
+        WorldGrid world = engine.getWorld();
+
+        while (engine.getStatus() == GameEngine.RUNNING) {
+            int enemy = engine.getEnemies().getCell(0);
+            int dx = world.xOf(enemy) - engine.getMoleX();
+            int dy = world.yOf(enemy) - engine.getMoleY();
+            if (Math.abs(dx) + Math.abs(dy) == 1) {
+                char key = dx < 0 ? 'a' : dx > 0 ? 'd' : dy < 0 ? 'w' : 's';
+                assertEquals(GameEngine.LOST, engine.move(key));
+                return;
+            }
+            assertEquals(GameEngine.RUNNING, engine.tick());
+        }
+        fail("The enemy never came next to the mole");
+    }
+
+    @Test
+    void testRockFallsOnceTheEnemyUnderItMovesOn() {
+        Level level = openLevel(20);
+        WorldGrid world = level.getWorld();
+        // A rock over a tunnel leading to below the mole, held up by the enemy in it
+        world.set(3, SKY + 3, CellType.OBSTACLE);
+        world.fill(3, SKY + 4, 8, 1, CellType.TUNNEL);
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withEnemiesPerLevel(1).withFallingDebris(true),
+                GameListener.NONE);
+        engine.startLevel(level);
+        EnemySwarm enemies = engine.getEnemies();
+        enemies.clear(world);
+        enemies.add(world, world.index(3, SKY + 4), CellType.TUNNEL, 1);
+
+        while (enemies.getCell(0) == world.index(3, SKY + 4)) {
+            assertEquals(GameEngine.RUNNING, engine.tick());
+        }
+        engine.tick();
+
+        assertEquals(CellType.OBSTACLE, world.get(3, SKY + 4));
+        assertEquals(CellType.TUNNEL, world.get(3, SKY + 3));
+    }
+
+    @Test
+    void testResumedChaseMatchesUninterruptedOne() {
+        Difficulty difficulty = Difficulty.STANDARD.withEnemiesPerLevel(3);
+        GameEngine engine = new GameEngine(difficulty, GameListener.NONE);
+        engine.startLevel(openLevel(40));
+        engine.move('s');
+        engine.move('s');
+        engine.move('d');
+        for (int i = 0; i < 20; i++) {
+            assertEquals(GameEngine.RUNNING, engine.tick());
+        }
+
+        Level level = engine.getLevel();
+        WorldGrid copy = new WorldGrid(40, 40);
+        copy.copyFrom(engine.getWorld());
+        GameEngine resumed = new GameEngine(difficulty, GameListener.NONE);
+        resumed.resumeLevel(new Level(level.getNumber(), level.getSeed(), copy, level.getStartX(),
+                level.getStartY(), level.getGoalX(), level.getGoalY(), level.getOptimalMoves()), engine.saveState());
+
+        FlowField expected = engine.getChaseField();
+        FlowField actual = resumed.getChaseField();
+        for (int i = 0; i < copy.size(); i++) {
+            assertEquals(expected.distance(i), actual.distance(i), "cell " + copy.xOf(i) + "," + copy.yOf(i));
+        }
+        // And the enemies go on to hunt the same way
+        for (int t = 0; t < 200 && engine.getStatus() == GameEngine.RUNNING; t++) {
+            assertEquals(engine.tick(), resumed.tick());
+        }
+        for (int i = 0; i < copy.size(); i++) {
+            assertEquals(engine.getWorld().get(i), copy.get(i), "cell " + i);
+        }
+    }
+
+    @Test
+    void testRockFallsIntoTunnelDugBelowIt() {
+        Level level = openLevel(20);
+        WorldGrid world = level.getWorld();
+        world.set(11, SKY, CellType.OBSTACLE);
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withFallingDebris(true), GameListener.NONE);
+        engine.startLevel(level);
+
+        engine.move('s');
+        engine.move('d');
+        // The mole holds the rock up while it is underneath
+        engine.tick();
+        assertEquals(CellType.OBSTACLE, world.get(11, SKY));
+        engine.move('d');
+        engine.tick();
+
+        assertEquals(CellType.TUNNEL, world.get(11, SKY));
+        assertEquals(CellType.OBSTACLE, world.get(11, SKY + 1));
+        assertEquals(GameEngine.RUNNING, engine.getStatus());
+        // The rock rests on soil and nothing else moves
+        engine.tick();
+        assertEquals(CellType.OBSTACLE, world.get(11, SKY + 1));
+        assertEquals(0, engine.getPhysics().getActiveCount());
+    }
+}
@@ -0,0 +1,68 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridRendererTest {
+    private static final int BLOCK = 20;
+    private static final int SKY = Level.SKY_HEIGHT;
+
+    private BufferedImage render(WorldGrid world, Rectangle clip) {
+        BufferedImage image = new BufferedImage(world.getWidth() * BLOCK + 1, world.getHeight() * BLOCK + 1,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setClip(clip);
+        new GridRenderer(BLOCK, SKY).paint(g, world, clip);
+        g.dispose();
+        return image;
+    }
+
+    private WorldGrid world() {
+        WorldGrid world = TestWorlds.soil(12, 12);
+        world.set(6, 6, CellType.MOLE);
+        return world;
+    }
+
+    @Test
+    void testPaintsCellsGridlinesAndSky() {
+        BufferedImage image = render(world(), new Rectangle(0, 0, 12 * BLOCK + 1, 12 * BLOCK + 1));
+
+        assertEquals(ColorConstants.MOLE.getRGB(), image.getRGB(6 * BLOCK + 5, 6 * BLOCK + 5));
+        assertEquals(ColorConstants.SOIL.getRGB(), image.getRGB(3 * BLOCK + 5, 8 * BLOCK + 5));
+        assertEquals(ColorConstants.GRIDLINE.getRGB(), image.getRGB(3 * BLOCK, 8 * BLOCK + 5));
+        assertEquals(ColorConstants.GRIDLINE.getRGB(), image.getRGB(12 * BLOCK, 12 * BLOCK));
+        assertEquals(ColorConstants.SKY.getRGB(), image.getRGB(11 * BLOCK + 5, 3 * BLOCK + 15));
+    }
+
+    @Test
+    void testPaintRespectsClip() {
+        Rectangle clip = new Rectangle(6 * BLOCK, 6 * BLOCK, BLOCK + 1, BLOCK + 1);
+        BufferedImage image = render(world(), clip);
+
+        assertEquals(ColorConstants.MOLE.getRGB(), image.getRGB(6 * BLOCK + 5, 6 * BLOCK + 5));
+        assertEquals(Color.WHITE.getRGB(), image.getRGB(3 * BLOCK + 5, 8 * BLOCK + 5));
+    }
+
+    @Test
+    void testScrolledWindowPaintsTopRowsAsCells() {
+        WorldGrid world = TestWorlds.soil(12, 12, 0);
+        world.set(2, 1, CellType.MOLE);
+        GridRenderer renderer = new GridRenderer(BLOCK, SKY);
+        renderer.scroll(16);
+        BufferedImage image = new BufferedImage(12 * BLOCK + 1, 12 * BLOCK + 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        renderer.paint(g, world, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        g.dispose();
+
+        assertEquals(ColorConstants.MOLE.getRGB(), image.getRGB(2 * BLOCK + 5, BLOCK + 5));
+        assertEquals(ColorConstants.SOIL.getRGB(), image.getRGB(11 * BLOCK + 5, 3 * BLOCK + 15));
+    }
+}
@@ -0,0 +1,151 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+    @TempDir
+    Path dir;
+
+    private static List<Integer> scores(List<Leaderboard.Entry> entries) {
+        List<Integer> scores = new ArrayList<>();
+        for (Leaderboard.Entry entry : entries) {
+            scores.add(entry.getScore());
+        }
+        return scores;
+    }
+
+    @Test
+    void testKeepsBestScoresPerModeAndSeed() throws IOException {
+        Path file = dir.resolve("scores.bin");
+        try (Leaderboard board = new Leaderboard(file, 3)) {
+            int[] scores = { 40, 10, 90, 70, 20, 90, 50 };
+            for (int i = 0; i < scores.length; i++) {
+                board.record(Leaderboard.LEVELS, i % 2, scores[i], i);
+            }
+            board.record(Leaderboard.ENDLESS, 0, 500, 500);
+
+            assertEquals(List.of(90, 90, 70), scores(board.top(Leaderboard.LEVELS)));
+            // Ties go to the earlier game
+            assertEquals(2, board.top(Leaderboard.LEVELS).get(0).getLevels());
+            assertEquals(List.of(90, 50, 40), scores(board.top(Leaderboard.LEVELS, 0)));
+            assertEquals(List.of(90, 70, 10), scores(board.top(Leaderboard.LEVELS, 1)));
+            assertEquals(List.of(500), scores(board.top(Leaderboard.ENDLESS)));
+            assertTrue(board.top(Leaderboard.LEVELS, 7).isEmpty());
+        }
+
+        // Another instance, such as the next game, loads the same tables from the file
+        try (Leaderboard board = new Leaderboard(file, 3)) {
+            assertEquals(8, board.size());
+            assertEquals(List.of(90, 90, 70), scores(board.top(Leaderboard.LEVELS)));
+            assertEquals(List.of(90, 50, 40), scores(board.top(Leaderboard.LEVELS, 0)));
+        }
+    }
+
+    @Test
+    void testSeesGamesAppendedByOthers() throws IOException {
+        Path file = dir.resolve("scores.bin");
+        try (Leaderboard mine = new Leaderboard(file, 5); Leaderboard theirs = new Leaderboard(file, 5)) {
+            mine.record(Leaderboard.LEVELS, 1, 10, 1);
+            theirs.record(Leaderboard.LEVELS, 2, 30, 3);
+
+            assertEquals(List.of(10), scores(mine.top(Leaderboard.LEVELS)));
+            mine.refresh();
+            assertEquals(List.of(30, 10), scores(mine.top(Leaderboard.LEVELS)));
+        }
+    }
+
+    @Test
+    void testSkipsDamagedRecordsAndRepairsTornTail() throws IOException {
+        Path file = dir.resolve("scores.bin");
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            board.record(Leaderboard.LEVELS, 1, 10, 1);
+            board.record(Leaderboard.LEVELS, 1, 20, 2);
+            board.record(Leaderboard.LEVELS, 1, 30, 3);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Flip a byte of the second record's score, then leave half a record at the end
+            channel.write(ByteBuffer.wrap(new byte[] { 0x55 }), 8 + 32 + 19);
+            channel.write(ByteBuffer.wrap(new byte[13]), channel.size());
+        }
+
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            assertEquals(List.of(30, 10), scores(board.top(Leaderboard.LEVELS)));
+            assertEquals(1, board.getCorrupt());
+
+            board.record(Leaderboard.LEVELS, 1, 15, 4);
+            assertEquals(List.of(30, 15, 10), scores(board.top(Leaderboard.LEVELS)));
+        }
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            assertEquals(3, board.size());
+        }
+    }
+
+    @Test
+    void testIgnoresIndexOfAnotherFile() throws IOException {
+        Path file = dir.resolve("scores.bin");
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            board.record(Leaderboard.LEVELS, 1, 10, 1);
+            board.record(Leaderboard.LEVELS, 1, 20, 2);
+        }
+        // The saved index stays behind when the scores are deleted
+        Files.delete(file);
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            board.record(Leaderboard.LEVELS, 1, 5, 1);
+            board.record(Leaderboard.LEVELS, 1, 7, 1);
+        }
+
+        try (Leaderboard board = new Leaderboard(file, 5)) {
+            assertEquals(List.of(7, 5), scores(board.top(Leaderboard.LEVELS)));
+            assertEquals(2, board.size());
+        }
+    }
+
+    @Test
+    void testConcurrentWritersLoseNothing() throws Exception {
+        Path file = dir.resolve("scores.bin");
+        int writers = 4;
+        int games = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                done.add(pool.submit(() -> {
+                    try (Leaderboard board = new Leaderboard(file, 1)) {
+                        for (int i = 0; i < games; i++) {
+                            board.record(Leaderboard.LEVELS, writer, writer * games + i, i);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Leaderboard board = new Leaderboard(file, 1)) {
+            assertEquals(writers * games, board.size());
+            assertEquals(0, board.getCorrupt());
+            assertEquals(List.of(writers * games - 1), scores(board.top(Leaderboard.LEVELS)));
+            assertEquals(List.of(games - 1), scores(board.top(Leaderboard.LEVELS, 0)));
+        }
+    }
+}
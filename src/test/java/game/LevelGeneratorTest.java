@@ -0,0 +1,63 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelGeneratorTest {
+    private static final int SKY = 5;
+
+    @Test
+    void testPlacesExactCounts() {
+        Level level = new LevelGenerator(SKY).generate(1, 42L, 35, 55, 60, 6);
+        WorldGrid world = level.getWorld();
+
+        assertEquals(60, world.count(CellType.OBSTACLE));
+        assertEquals(6, world.count(CellType.POWER_UP));
+        assertEquals(1, world.count(CellType.GOAL));
+        assertEquals(1, world.count(CellType.MOLE));
+        assertEquals(35 * SKY, world.count(CellType.SKY));
+        assertEquals(CellType.MOLE, world.get(level.getStartX(), level.getStartY()));
+        assertEquals(CellType.GOAL, world.get(level.getGoalX(), level.getGoalY()));
+        assertEquals(0, world.count(0, 0, 35, SKY, CellType.OBSTACLE));
+    }
+
+    @Test
+    void testSameSeedReproducesLevel() {
+        LevelGenerator generator = new LevelGenerator(SKY);
+        WorldGrid first = generator.generate(3, 1234L, 45, 65, 80, 8).getWorld();
+        WorldGrid second = new LevelGenerator(SKY).generate(3, 1234L, 45, 65, 80, 8).getWorld();
+        WorldGrid other = generator.generate(3, 1235L, 45, 65, 80, 8).getWorld();
+
+        assertTrue(sameCells(first, second));
+        assertFalse(sameCells(first, other));
+    }
+
+    @Test
+    void testCrowdedGridCutsObstaclesFirst() {
+        // 4x8 grid with a sky of 5 leaves 12 soil cells, one of them the start
+        Level level = new LevelGenerator(SKY).generate(1, 7L, 4, 8, 100, 3);
+        WorldGrid world = level.getWorld();
+
+        assertEquals(1, world.count(CellType.GOAL));
+        assertEquals(3, world.count(CellType.POWER_UP));
+        assertEquals(7, world.count(CellType.OBSTACLE));
+        assertEquals(0, world.count(CellType.SOIL));
+    }
+
+    @Test
+    void testLevelSeedDependsOnGameSeedAndLevel() {
+        assertEquals(LevelGenerator.levelSeed(9L, 2), LevelGenerator.levelSeed(9L, 2));
+        assertNotEquals(LevelGenerator.levelSeed(9L, 2), LevelGenerator.levelSeed(9L, 3));
+        assertNotEquals(LevelGenerator.levelSeed(9L, 2), LevelGenerator.levelSeed(10L, 2));
+    }
+
+    private static boolean sameCells(WorldGrid a, WorldGrid b) {
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelPreloaderTest {
+
+    @Test
+    void testLevelsMatchDirectGenerationAndAreGeneratedAhead() throws Exception {
+        Set<Integer> generated = ConcurrentHashMap.newKeySet();
+        LevelPreloader.LevelFactory factory = (generator, level) -> {
+            generated.add(level);
+            return generator.generate(level, level * 31L, 30 + level, 40 + level, 20, 3);
+        };
+        try (LevelPreloader preloader = new LevelPreloader(factory, 5, 2)) {
+            preloader.preload(1);
+            Level first = preloader.take(1);
+            Level expected = new LevelGenerator(5).generate(1, 31L, 31, 41, 20, 3);
+
+            assertEquals(1, first.getNumber());
+            for (int i = 0; i < expected.getWorld().size(); i++) {
+                assertEquals(expected.getWorld().get(i), first.getWorld().get(i));
+            }
+
+            // Levels 2 and 3 are being prepared while level 1 is played
+            Level second = preloader.take(2);
+            assertEquals(2, second.getNumber());
+            assertEquals(32, second.getWorld().getWidth());
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!generated.contains(4) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(generated.contains(4));
+            assertFalse(generated.contains(5));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        long[] values = new long[10_000];
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextLong(50_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double p : new double[] { 50, 90, 99 }) {
+            long exact = values[(int) Math.ceil(values.length * p / 100) - 1];
+            long reported = histogram.percentile(p);
+            assertTrue(reported >= exact && reported <= exact * 1.25, p + ": " + reported + " vs " + exact);
+        }
+    }
+
+    @Test
+    void testSmallAndEmptyHistograms() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        assertEquals(0, histogram.percentile(50));
+
+        histogram.record(3);
+        histogram.record(-7);
+        assertEquals(3, histogram.percentile(100));
+        assertEquals(0, histogram.percentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void testInputLatencyIsTakenFromOldestPublishedKey() {
+        Metrics.resetInput();
+        Metrics.inputApplied(100);
+        Metrics.inputApplied(200);
+        // Not published yet, so no frame can show it
+        assertEquals(0, Metrics.takePublishedInput());
+
+        Metrics.framePublished();
+        Metrics.inputApplied(300);
+        Metrics.framePublished();
+        assertEquals(100, Metrics.takePublishedInput());
+        assertEquals(0, Metrics.takePublishedInput());
+    }
+}
@@ -0,0 +1,83 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MoveResolverTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+
+    @Test
+    void testLongMoveDigsWholePath() {
+        WorldGrid world = TestWorlds.soil(10, 12);
+        world.set(2, 6, CellType.MOLE);
+        world.set(5, 6, CellType.POWER_UP);
+        MoveResolver mover = new MoveResolver(SKY);
+
+        assertEquals(MoveResolver.MOVED, mover.resolve(world, 2, 6, 'd', 3));
+        assertEquals(5, mover.getX());
+        assertEquals(6, mover.getY());
+        assertEquals(CellType.POWER_UP, mover.getTarget());
+        assertEquals(CellType.TUNNEL, world.get(2, 6));
+        assertEquals(CellType.TUNNEL, world.get(3, 6));
+        assertEquals(CellType.TUNNEL, world.get(4, 6));
+        assertEquals(CellType.MOLE, world.get(5, 6));
+    }
+
+    @Test
+    void testRefusedMovesLeaveWorldUntouched() {
+        WorldGrid world = TestWorlds.soil(10, 12);
+        world.set(2, 6, CellType.MOLE);
+        world.set(2, 8, CellType.OBSTACLE);
+        MoveResolver mover = new MoveResolver(SKY);
+
+        assertEquals(MoveResolver.BLOCKED, mover.resolve(world, 2, 6, 's', 3));
+        assertEquals(MoveResolver.INTO_SKY, mover.resolve(world, 2, 6, 'w', 2));
+        assertEquals(MoveResolver.OUT_OF_BOUNDS, mover.resolve(world, 2, 6, 'a', 3));
+        assertEquals(MoveResolver.NOT_A_MOVE, mover.resolve(world, 2, 6, 'q', 1));
+        assertEquals(MoveResolver.NOT_A_MOVE, mover.resolve(world, 2, 6, '\u00e9', 1));
+        assertEquals(CellType.MOLE, world.get(2, 6));
+        assertEquals(CellType.SOIL, world.get(2, 7));
+    }
+
+    @Test
+    void testMovesDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        int size = 40;
+        WorldGrid world = TestWorlds.soil(size, size);
+        world.set(0, 20, CellType.MOLE);
+        world.set(1, 20, CellType.POWER_UP);
+        world.fill(0, 21, size, 1, CellType.OBSTACLE);
+        world.set(size - 1, size - 1, CellType.GOAL);
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, GameListener.NONE);
+        engine.startLevel(new Level(1, 0L, world, 0, 20, size - 1, size - 1, 0));
+        engine.move('d');
+        assertTrue(engine.isBoosted());
+
+        // Warm up so class loading and compilation are out of the way
+        walk(engine, size, 20_000);
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        walk(engine, size, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Allow for the measurement itself, but not a single object per move
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    /** Walks back and forth along the row, bumping into the obstacles below on every other move. */
+    private static void walk(GameEngine engine, int size, int moves) {
+        for (int i = 0; i < moves; i++) {
+            int x = engine.getMoleX();
+            engine.move(i % 2 == 0 ? 's' : x + 2 < size && (i / 2 / size) % 2 == 0 ? 'd' : 'a');
+        }
+    }
+}
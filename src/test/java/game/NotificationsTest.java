@@ -0,0 +1,83 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationsTest {
+
+    @Test
+    void testMessagesExpireAfterTtl() {
+        Notifications notifications = new Notifications();
+        notifications.post("Starting Level 1", 0, 1_000);
+        notifications.post("You hit an obstacle!", 500, 1_000);
+
+        assertEquals(2, notifications.activeCount(900));
+        assertEquals(1, notifications.activeCount(1_000));
+        assertEquals(0, notifications.activeCount(1_500));
+    }
+
+    @Test
+    void testRepeatedMessageRefreshesInsteadOfStacking() {
+        Notifications notifications = new Notifications();
+        notifications.post("You hit an obstacle!", 0, 1_000);
+        notifications.post("You hit an obstacle!", 800, 1_000);
+
+        assertEquals(1, notifications.activeCount(1_200));
+        assertEquals(0, notifications.activeCount(1_800));
+    }
+
+    @Test
+    void testOldestMessageIsDroppedWhenFull() {
+        Notifications notifications = new Notifications();
+        for (int i = 0; i <= Notifications.MAX_VISIBLE; i++) {
+            notifications.post("Message " + i, i, 1_000);
+        }
+        assertEquals(Notifications.MAX_VISIBLE, notifications.activeCount(100));
+    }
+
+    @Test
+    void testMessagesWithDifferentLifetimesExpireIndependently() {
+        Notifications notifications = new Notifications();
+        notifications.post("Game saved", 0, 2_000);
+        notifications.post("You hit an obstacle!", 100, 500);
+        notifications.post("Level 1 completed!", 200, 2_000);
+
+        assertEquals(2, notifications.activeCount(1_000));
+        assertEquals(0, notifications.activeCount(2_200));
+    }
+
+    @Test
+    void testPaintWhileFading() {
+        Notifications notifications = new Notifications();
+        notifications.post("Level 1 completed!", 0);
+        BufferedImage solid = paint(notifications, 0);
+        BufferedImage fading = paint(notifications, Notifications.DEFAULT_TTL_NANOS - Notifications.FADE_NANOS / 2);
+        BufferedImage expired = paint(notifications, Notifications.DEFAULT_TTL_NANOS);
+
+        // A point inside the toast box, just right of its rounded left edge
+        int y = 10 + 8;
+        int x = 0;
+        while ((solid.getRGB(x, y) >>> 24) == 0) {
+            x++;
+        }
+        x += 4;
+        int solidAlpha = solid.getRGB(x, y) >>> 24;
+        int fadingAlpha = fading.getRGB(x, y) >>> 24;
+        assertTrue(solidAlpha > 0);
+        assertEquals(solidAlpha / 2.0, fadingAlpha, 3);
+        assertEquals(0, expired.getRGB(x, y) >>> 24);
+        assertEquals(0, notifications.activeCount(Notifications.DEFAULT_TTL_NANOS));
+    }
+
+    private static BufferedImage paint(Notifications notifications, long now) {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        notifications.paint(g, 400, 10, now);
+        g.dispose();
+        return image;
+    }
+}
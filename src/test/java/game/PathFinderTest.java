@@ -0,0 +1,75 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathFinderTest {
+    @Test
+    void testBfsGoesAroundAWall() {
+        WorldGrid world = TestWorlds.soil(10, 10, 1);
+        // Vertical wall at x = 5 from y = 1 to y = 8, open at the bottom row
+        world.fill(5, 1, 1, 8, CellType.OBSTACLE);
+        PathFinder finder = new PathFinder();
+        finder.load(world);
+
+        int from = world.index(2, 2);
+        int to = world.index(8, 2);
+        int expected = 7 + 6 + 7; // down to row 9, across, back up
+        assertEquals(expected, finder.bfs(from, to));
+    }
+
+    @Test
+    void testSkyIsNotPassable() {
+        WorldGrid world = TestWorlds.soil(5, 5, 1);
+        PathFinder finder = new PathFinder();
+        finder.load(world);
+        assertEquals(PathFinder.UNREACHABLE, finder.bfs(world.index(1, 1), world.index(1, 0)));
+    }
+
+    @Test
+    void testRepairOpensTheCheapestPath() {
+        WorldGrid world = TestWorlds.soil(9, 9, 1);
+        int goal = world.index(4, 4);
+        world.set(goal, CellType.GOAL);
+        // Box the goal in with obstacles two cells thick except one thin side
+        world.fill(2, 2, 5, 5, CellType.OBSTACLE);
+        world.set(goal, CellType.GOAL);
+        world.set(4, 5, CellType.SOIL);
+        PathFinder finder = new PathFinder();
+        finder.load(world);
+        int start = world.index(4, 8);
+        assertEquals(PathFinder.UNREACHABLE, finder.bfs(start, goal));
+
+        assertEquals(1, finder.repair(world, start, goal));
+        assertEquals(4, finder.bfs(start, goal));
+        assertEquals(CellType.SOIL, world.get(4, 6));
+    }
+
+    @Test
+    void testFullBfsLabelsDistances() {
+        WorldGrid world = TestWorlds.soil(6, 6, 1);
+        PathFinder finder = new PathFinder();
+        finder.load(world);
+        finder.bfs(world.index(0, 1), -1);
+        assertEquals(0, finder.distance(world.index(0, 1)));
+        assertEquals(5 + 4, finder.distance(world.index(5, 5)));
+        assertEquals(PathFinder.UNREACHABLE, finder.distance(world.index(3, 0)));
+    }
+
+    @Test
+    void testGeneratedLevelsAreAlwaysSolvable() {
+        LevelGenerator generator = new LevelGenerator(5);
+        PathFinder finder = new PathFinder();
+        for (long seed = 0; seed < 50; seed++) {
+            // Dense enough that unrepaired layouts are regularly walled off
+            Level level = generator.generate(1, seed, 20, 20, 150, 3);
+            WorldGrid world = level.getWorld();
+            finder.load(world);
+            int moves = finder.bfs(world.index(level.getStartX(), level.getStartY()),
+                    world.index(level.getGoalX(), level.getGoalY()));
+            assertNotEquals(PathFinder.UNREACHABLE, moves, "seed " + seed);
+            assertEquals(moves, level.getOptimalMoves());
+        }
+    }
+}
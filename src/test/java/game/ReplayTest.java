@@ -0,0 +1,120 @@
+package game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayTest {
+    private static final long SEED = 77L;
+
+    /** Plays like Mole does, with an agent at the keyboard, recording as it goes. */
+    private static int record(ReplayRecorder recorder, int maxLevel) {
+        return record(recorder, Difficulty.STANDARD, maxLevel);
+    }
+
+    private static int record(ReplayRecorder recorder, Difficulty difficulty, int maxLevel) {
+        LevelGenerator generator = new LevelGenerator(Level.SKY_HEIGHT);
+        GameEngine engine = new GameEngine(difficulty, GameListener.NONE);
+        Agent agent = new PathAgent(8, 0.2, SEED);
+        for (int level = 1; level <= maxLevel; level++) {
+            engine.startLevel(difficulty.generate(generator, SEED, level));
+            agent.startLevel(engine);
+            recorder.startLevel(level);
+            int status = GameEngine.RUNNING;
+            while (status == GameEngine.RUNNING) {
+                char key = agent.nextKey(engine);
+                if (key != 0) {
+                    recorder.key(engine.getTick(), key);
+                    status = engine.move(key);
+                }
+                if (status == GameEngine.RUNNING) {
+                    status = engine.tick();
+                }
+            }
+            recorder.endLevel(engine.getTick());
+            if (status != GameEngine.WON) {
+                break;
+            }
+        }
+        return engine.getScore();
+    }
+
+    @Test
+    void testPlaybackReproducesGame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int score;
+        try (ReplayRecorder recorder = new ReplayRecorder(out, SEED, Difficulty.STANDARD)) {
+            score = record(recorder, 4);
+        }
+
+        Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+        ReplayPlayer.Result result = ReplayPlayer.play(replay, Difficulty.STANDARD);
+
+        assertEquals(SEED, replay.getGameSeed());
+        assertEquals(score, result.getScore());
+        assertEquals(-1, result.getDesyncedLevel());
+        assertTrue(result.getLevelsWon() > 0);
+        // Two bytes or so per key
+        int keys = replay.getTracks().stream().mapToInt(Replay.Track::getKeyCount).sum();
+        assertTrue(out.size() < 16 + 3 * keys + 8 * replay.getTracks().size(), out.size() + " bytes");
+        assertTrue(out.size() / replay.getTracks().size() < 2048);
+    }
+
+    @Test
+    void testReplayPlaysBackWithRecordedSettings() throws IOException {
+        Difficulty chased = Difficulty.STANDARD.withEnemiesPerLevel(2).withFallingDebris(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int score;
+        try (ReplayRecorder recorder = new ReplayRecorder(out, SEED, chased)) {
+            score = record(recorder, chased, 3);
+        }
+
+        Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, replay.getEnemiesPerLevel());
+        assertTrue(replay.hasFallingDebris());
+        // The player is not told about the enemies or the debris; the header is
+        ReplayPlayer.Result result = ReplayPlayer.play(replay, Difficulty.STANDARD);
+        assertEquals(score, result.getScore());
+        assertEquals(-1, result.getDesyncedLevel());
+    }
+
+    @Test
+    void testTamperedReplayIsDetected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReplayRecorder recorder = new ReplayRecorder(out, SEED, Difficulty.STANDARD)) {
+            recorder.startLevel(1);
+            recorder.key(3, 's');
+            recorder.key(10, 's');
+            recorder.endLevel(11);
+        }
+
+        Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, replay.getTracks().get(0).getKeyCount());
+        assertEquals(10, replay.getTracks().get(0).getTick(1));
+        // Two steps down cannot have won the level on tick 11
+        assertEquals(1, ReplayPlayer.play(replay, Difficulty.STANDARD).getDesyncedLevel());
+    }
+
+    @Test
+    void testTruncatedRecordingKeepsFinishedKeys() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReplayRecorder recorder = new ReplayRecorder(out, SEED, Difficulty.STANDARD);
+        recorder.startLevel(1);
+        recorder.key(200, 'd');
+        recorder.close();
+
+        Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, replay.getTracks().size());
+        assertEquals(-1, replay.getTracks().get(0).getEndTick());
+        assertEquals('d', replay.getTracks().get(0).getKey(0));
+
+        byte[] bytes = out.toByteArray();
+        assertThrows(IOException.class,
+                () -> Replay.read(new ByteArrayInputStream(Arrays.copyOf(bytes, 6))));
+    }
+}
@@ -0,0 +1,171 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveGameTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    @TempDir
+    Path dir;
+
+    /** Mole at (20, 5) with a power-up to its left and the goal far below. */
+    private static Level level() {
+        WorldGrid world = TestWorlds.soil(WIDTH, HEIGHT);
+        world.set(20, SKY, CellType.MOLE);
+        world.set(19, SKY, CellType.POWER_UP);
+        world.set(20, HEIGHT - 1, CellType.GOAL);
+        return new Level(2, 42L, world, 20, SKY, 20, HEIGHT - 1, 24);
+    }
+
+    private static void assertSameCells(WorldGrid expected, WorldGrid actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "cell " + i);
+        }
+    }
+
+    @Test
+    void testResumesFromLastCheckpoint() throws IOException {
+        Path file = dir.resolve("save.bin");
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, new GameListener() { });
+        Level level = level();
+        engine.startLevel(level);
+        try (SaveGame saver = new SaveGame(file, 7L)) {
+            saver.startLevel(level, engine.saveState());
+            engine.move('a');
+            engine.move('s');
+            engine.move('s');
+            for (int i = 0; i < 30; i++) {
+                engine.tick();
+            }
+            saver.checkpoint(engine.saveState());
+            engine.move('d');
+            saver.checkpoint(engine.saveState());
+        }
+
+        SaveGame.Resume resume = SaveGame.load(file);
+        assertEquals(7L, resume.getGameSeed());
+        assertEquals(2, resume.getLevel().getNumber());
+        assertEquals(42L, resume.getLevel().getSeed());
+        assertSameCells(engine.getWorld(), resume.getLevel().getWorld());
+
+        GameEngine resumed = new GameEngine(Difficulty.STANDARD, new GameListener() { });
+        resumed.resumeLevel(resume.getLevel(), resume.getState());
+        assertEquals(engine.getMoleX(), resumed.getMoleX());
+        assertEquals(engine.getMoleY(), resumed.getMoleY());
+        assertEquals(4, resumed.getMoves());
+        assertEquals(30, resumed.getTick());
+        assertEquals(engine.getRemainingTicks(), resumed.getRemainingTicks());
+        // The power-up picked up before saving still has the rest of its time
+        assertTrue(resumed.isBoosted());
+        long left = Difficulty.STANDARD.getPowerUpDuration() * (long) GameEngine.TICKS_PER_SECOND - 30;
+        for (long i = 1; i < left; i++) {
+            resumed.tick();
+        }
+        assertTrue(resumed.isBoosted());
+        resumed.tick();
+        assertFalse(resumed.isBoosted());
+    }
+
+    @Test
+    void testResumesFallingDebrisAndSettings() throws IOException {
+        Path file = dir.resolve("save.bin");
+        Difficulty difficulty = Difficulty.STANDARD.withEnemiesPerLevel(1).withFallingDebris(true);
+        GameEngine engine = new GameEngine(difficulty, new GameListener() { });
+        Level level = level();
+        WorldGrid world = level.getWorld();
+        world.set(30, SKY, CellType.OBSTACLE);
+        engine.startLevel(level);
+        try (SaveGame saver = new SaveGame(file, 7L)) {
+            saver.startLevel(level, engine.saveState());
+            // A shaft under the rock, which has fallen partway when the game is saved
+            for (int y = SKY + 1; y < SKY + 12; y++) {
+                world.set(30, y, CellType.TUNNEL);
+                engine.getPhysics().disturb(world.index(30, y));
+            }
+            engine.tick();
+            engine.tick();
+            saver.checkpoint(engine.saveState());
+        }
+        assertEquals(CellType.OBSTACLE, world.get(30, SKY + 2));
+
+        SaveGame.Resume resume = SaveGame.load(file);
+        Difficulty configured = resume.getState().configure(Difficulty.STANDARD);
+        assertEquals(1, configured.getEnemiesPerLevel());
+        assertTrue(configured.hasFallingDebris());
+        GameEngine resumed = new GameEngine(configured, new GameListener() { });
+        resumed.resumeLevel(resume.getLevel(), resume.getState());
+        assertEquals(engine.getPhysics().getActiveCount(), resumed.getPhysics().getActiveCount());
+        assertEquals(2, resumed.getEnemies().size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(engine.tick(), resumed.tick());
+        }
+        assertSameCells(world, resumed.getWorld());
+        assertEquals(CellType.OBSTACLE, resumed.getWorld().get(30, SKY + 11));
+    }
+
+    @Test
+    void testCompactsCheckpointsAndIgnoresTornTail() throws IOException {
+        Path file = dir.resolve("save.bin");
+        GameEngine engine = new GameEngine(Difficulty.STANDARD.withoutTimeLimit(), new GameListener() { });
+        Level level = level();
+        engine.startLevel(level);
+        WorldGrid world = level.getWorld();
+        long maxSize = 0;
+        try (SaveGame saver = new SaveGame(file, 7L)) {
+            saver.startLevel(level, engine.saveState());
+            // Thousands of checkpoints flipping cells back and forth
+            for (int i = 0; i < 4000; i++) {
+                world.set(i % WIDTH, SKY + 1 + i % 20, (i & 1) == 0 ? CellType.TUNNEL : CellType.OBSTACLE);
+                engine.tick();
+                saver.checkpoint(engine.saveState());
+                if (i % 100 == 0 && Files.exists(file)) {
+                    maxSize = Math.max(maxSize, Files.size(file));
+                }
+            }
+        }
+        assertTrue(maxSize < 256 * 1024, "save grew to " + maxSize + " bytes");
+        SaveGame.Resume resume = SaveGame.load(file);
+        assertSameCells(world, resume.getLevel().getWorld());
+        assertEquals(4000, resume.getState().getTick());
+
+        // A crash halfway through appending another checkpoint
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 50, 1, 2, 3, 4, 2, 0, 0 }));
+        }
+        SaveGame.Resume torn = SaveGame.load(file);
+        assertSameCells(world, torn.getLevel().getWorld());
+        assertEquals(4000, torn.getState().getTick());
+    }
+
+    @Test
+    void testDiscardDeletesSave() throws IOException {
+        Path file = dir.resolve("save.bin");
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, new GameListener() { });
+        Level level = level();
+        engine.startLevel(level);
+        try (SaveGame saver = new SaveGame(file, 7L)) {
+            saver.startLevel(level, engine.saveState());
+            saver.discard();
+        }
+        assertNull(SaveGame.load(file));
+        level.getWorld().set(0, SKY, CellType.TUNNEL);
+        assertThrows(IOException.class, () -> {
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+            SaveGame.load(file);
+        });
+    }
+}
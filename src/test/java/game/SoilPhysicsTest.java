@@ -0,0 +1,93 @@
+package game;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoilPhysicsTest {
+    private static void dig(WorldGrid world, SoilPhysics physics, int x, int y) {
+        world.set(x, y, CellType.TUNNEL);
+        physics.disturb(world.index(x, y));
+    }
+
+    @Test
+    void testRockFallsOneCellPerTickToTheBottomOfAShaft() {
+        WorldGrid world = TestWorlds.soil(5, 10, 1);
+        world.set(2, 1, CellType.OBSTACLE);
+        SoilPhysics physics = new SoilPhysics();
+        physics.reset(world);
+        for (int y = 2; y < 6; y++) {
+            dig(world, physics, 2, y);
+        }
+
+        for (int y = 2; y < 6; y++) {
+            assertEquals(1, physics.step());
+            assertEquals(CellType.OBSTACLE, world.get(2, y));
+            assertEquals(CellType.TUNNEL, world.get(2, y - 1));
+        }
+        assertEquals(0, physics.step());
+        assertEquals(CellType.OBSTACLE, world.get(2, 5));
+        assertEquals(1, world.count(CellType.OBSTACLE));
+        assertEquals(0, physics.getActiveCount());
+    }
+
+    @Test
+    void testSoilFallsOnlyWithoutSideSupport() {
+        WorldGrid world = TestWorlds.soil(7, 10, 1);
+        SoilPhysics physics = new SoilPhysics();
+        physics.reset(world);
+        // A tunnel under soil that is still held on both sides
+        dig(world, physics, 3, 5);
+        assertEquals(0, physics.step());
+        assertEquals(CellType.SOIL, world.get(3, 4));
+
+        // Digging out both sides leaves the cell above loose
+        dig(world, physics, 2, 4);
+        dig(world, physics, 4, 4);
+        assertEquals(1, physics.step());
+        assertEquals(CellType.TUNNEL, world.get(3, 4));
+        assertEquals(CellType.SOIL, world.get(3, 5));
+        // The cell above the gap is held by the soil beside it
+        assertEquals(0, physics.step());
+        assertEquals(CellType.SOIL, world.get(3, 3));
+    }
+
+    @Test
+    void testBandsGiveTheSameResultInParallel() {
+        WorldGrid sequential = TestWorlds.soil(300, 400, 1);
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 20000; i++) {
+            sequential.set(random.nextInt(300), 1 + random.nextInt(399), CellType.OBSTACLE);
+        }
+        WorldGrid parallel = new WorldGrid(300, 400);
+        parallel.copyFrom(sequential);
+        SoilPhysics one = new SoilPhysics();
+        one.setParallel(false);
+        one.reset(sequential);
+        SoilPhysics many = new SoilPhysics();
+        many.reset(parallel);
+        // Hollow out most of the world at once so collapses cross every band boundary
+        for (int i = 0; i < 120000; i++) {
+            int cell = sequential.index(random.nextInt(300), 1 + random.nextInt(399));
+            if (sequential.get(cell) == CellType.SOIL) {
+                dig(sequential, one, sequential.xOf(cell), sequential.yOf(cell));
+                dig(parallel, many, parallel.xOf(cell), parallel.yOf(cell));
+            }
+        }
+
+        int ticks = 0;
+        int falls;
+        do {
+            falls = one.step();
+            assertEquals(falls, many.step());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i), parallel.get(i), "cell " + i + " on tick " + ticks);
+            }
+            ticks++;
+        } while (falls > 0);
+        assertTrue(ticks > 10);
+        assertEquals(0, many.getActiveCount());
+    }
+}
@@ -0,0 +1,84 @@
+package game;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import utils.InputHandler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerminalRendererTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+
+    /** Soil with the mole in the middle of the surface. */
+    private static WorldGrid world(int width, int height) {
+        WorldGrid world = TestWorlds.soil(width, height);
+        world.set(width / 2, SKY, CellType.MOLE);
+        return world;
+    }
+
+    @Test
+    void testMoveSendsOnlyTheChangedCells() {
+        WorldGrid world = world(30, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalDisplay display = new TerminalDisplay(world, new InputHandler(), out, 80, 24);
+        display.followMole(15, SKY);
+        display.repaintDirty();
+        // The first frame draws every cell
+        assertTrue(out.size() > 30 * 20 * 2, "first frame " + out.size() + " bytes");
+
+        out.reset();
+        display.repaintDirty();
+        assertEquals(0, out.size());
+
+        world.set(15, SKY, CellType.TUNNEL);
+        world.set(15, SKY + 1, CellType.MOLE);
+        display.followMole(15, SKY + 1);
+        display.repaintDirty();
+        String frame = out.toString(StandardCharsets.US_ASCII);
+        assertTrue(out.size() < 60, "move frame " + out.size() + " bytes: " + frame.replace("\033", "ESC"));
+        // Two cells, each a cursor move, a color and two spaces
+        assertEquals(2, frame.split("\033\\[48;5;", -1).length - 1);
+        assertTrue(frame.contains("\033[" + (SKY + 1) + ";31H"));
+    }
+
+    @Test
+    void testScrollingRedrawsOnlyCellsThatLookDifferent() throws IOException {
+        WorldGrid world = world(20, 100);
+        TerminalRenderer renderer = new TerminalRenderer(20, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.follow(world, 10, SKY);
+        renderer.draw(world, null, DirtyRegion.ALL);
+        renderer.flush(out);
+        int firstFrame = out.size();
+        out.reset();
+
+        // Deep in uniform soil the screen looks the same after scrolling, apart from the mole
+        world.set(10, SKY, CellType.TUNNEL);
+        world.set(10, 60, CellType.MOLE);
+        assertTrue(renderer.follow(world, 10, 60));
+        int drawn = renderer.draw(world, null, DirtyRegion.ALL);
+
+        // The sky rows and the old mole scroll away, the mole comes in
+        assertEquals(SKY * 20 + 2, drawn);
+        assertTrue(renderer.flush(out) < firstFrame / 2);
+    }
+
+    @Test
+    void testDecodesArrowKeysAsMoves() {
+        TerminalDisplay.KeyDecoder decoder = new TerminalDisplay.KeyDecoder();
+        StringBuilder keys = new StringBuilder();
+        for (byte b : "a\033[A\033[1;5Dp\033x".getBytes(StandardCharsets.US_ASCII)) {
+            char key = decoder.decode(b);
+            if (key != 0) {
+                keys.append(key);
+            }
+        }
+        assertEquals("awapx", keys.toString());
+        assertEquals(46, TerminalRenderer.xtermColor(Color.GREEN));
+    }
+}
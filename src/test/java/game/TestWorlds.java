@@ -0,0 +1,22 @@
+package game;
+
+/**
+ * Hand-built worlds shared by the tests.
+ */
+public final class TestWorlds {
+    private TestWorlds() {
+    }
+
+    /** Sky in the top {@link Level#SKY_HEIGHT} rows and soil below, like a level before it is furnished. */
+    public static WorldGrid soil(int width, int height) {
+        return soil(width, height, Level.SKY_HEIGHT);
+    }
+
+    /** Sky in the top {@code skyRows} rows and soil below. */
+    public static WorldGrid soil(int width, int height, int skyRows) {
+        WorldGrid world = new WorldGrid(width, height);
+        world.fill(0, 0, width, skyRows, CellType.SKY);
+        world.fill(0, skyRows, width, height - skyRows, CellType.SOIL);
+        return world;
+    }
+}
@@ -0,0 +1,59 @@
+package game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldGridTest {
+
+    @Test
+    void testSetAndGet() {
+        WorldGrid grid = new WorldGrid(10, 8);
+        grid.set(3, 4, CellType.OBSTACLE);
+        assertEquals(CellType.OBSTACLE, grid.get(3, 4));
+        assertEquals(CellType.OBSTACLE, grid.get(grid.index(3, 4)));
+        assertEquals(4 * 10 + 3, grid.index(3, 4));
+    }
+
+    @Test
+    void testOutOfBoundsIsIgnored() {
+        WorldGrid grid = new WorldGrid(5, 5);
+        grid.set(-1, 2, CellType.MOLE);
+        grid.set(5, 0, CellType.MOLE);
+        assertEquals(CellType.EMPTY, grid.get(-1, 2));
+        assertEquals(CellType.EMPTY, grid.get(100, 100));
+        assertEquals(0, grid.count(CellType.MOLE));
+    }
+
+    @Test
+    void testFillIsClippedToGrid() {
+        WorldGrid grid = new WorldGrid(6, 6);
+        grid.fill(4, 4, 10, 10, CellType.SOIL);
+        assertEquals(4, grid.count(CellType.SOIL));
+        assertEquals(CellType.SOIL, grid.get(5, 5));
+        assertEquals(CellType.EMPTY, grid.get(3, 3));
+    }
+
+    @Test
+    void testFullWidthFill() {
+        WorldGrid grid = new WorldGrid(7, 9);
+        grid.fill(0, 0, 7, 2, CellType.SKY);
+        grid.fill(0, 2, 7, 7, CellType.SOIL);
+        assertEquals(14, grid.count(CellType.SKY));
+        assertEquals(49, grid.count(CellType.SOIL));
+        assertEquals(14, grid.count(0, 0, 7, 3, CellType.SKY));
+    }
+
+    @Test
+    void testCopyFromAndIndexOf() {
+        WorldGrid source = new WorldGrid(4, 4);
+        source.set(2, 3, CellType.GOAL);
+        WorldGrid copy = new WorldGrid(4, 4);
+        copy.copyFrom(source);
+        int index = copy.indexOf(CellType.GOAL, 0);
+        assertEquals(2, copy.xOf(index));
+        assertEquals(3, copy.yOf(index));
+        assertEquals(-1, copy.indexOf(CellType.GOAL, index + 1));
+        assertThrows(IllegalArgumentException.class, () -> copy.copyFrom(new WorldGrid(5, 4)));
+    }
+}
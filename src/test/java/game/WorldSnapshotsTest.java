@@ -0,0 +1,108 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldSnapshotsTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+
+    @Test
+    void testReaderSeesLatestPublish() {
+        WorldSnapshots frames = new WorldSnapshots();
+        assertNull(frames.acquire());
+
+        WorldGrid world = new WorldGrid(4, 4);
+        world.set(1, 1, CellType.MOLE);
+        frames.publish(world);
+        world.set(1, 1, CellType.TUNNEL);
+        world.set(2, 1, CellType.MOLE);
+
+        WorldGrid first = frames.acquire();
+        assertEquals(CellType.MOLE, first.get(1, 1));
+        assertSame(first, frames.acquire());
+
+        frames.publish(world);
+        frames.publish(new WorldGrid(6, 3));
+        WorldGrid resized = frames.acquire();
+        assertEquals(6, resized.getWidth());
+        assertEquals(CellType.EMPTY, resized.get(2, 1));
+    }
+
+    @Test
+    void testPublishingChangesKeepsEveryBufferCurrent() {
+        WorldGrid world = TestWorlds.soil(20, 20, 0);
+        WorldSnapshots frames = new WorldSnapshots();
+        frames.publish(world);
+        int[] changed = new int[DirtyRegion.CAPACITY];
+        world.getDirtyRegion().drain(changed);
+
+        for (int i = 0; i < 50; i++) {
+            world.set(i % 20, i / 20, CellType.TUNNEL);
+            world.set((i * 7) % 400, CellType.OBSTACLE);
+            frames.publish(world, changed, world.getDirtyRegion().drain(changed));
+            // The reader sometimes skips frames, so buffers come back after different numbers of publishes
+            if (i % 3 != 0) {
+                WorldGrid frame = frames.acquire();
+                for (int cell = 0; cell < world.size(); cell++) {
+                    assertEquals(world.get(cell), frame.get(cell), "cell " + cell + " after publish " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNoTornFramesWhilePainting() throws InterruptedException {
+        int size = 30;
+        WorldGrid world = TestWorlds.soil(size, size);
+        world.set(0, 15, CellType.MOLE);
+        world.set(size - 1, size - 1, CellType.GOAL);
+        GameEngine engine = new GameEngine(Difficulty.STANDARD, GameListener.NONE);
+        engine.startLevel(new Level(1, 0L, world, 0, 15, size - 1, size - 1, 0));
+        WorldSnapshots frames = new WorldSnapshots();
+        frames.publish(world);
+        world.getDirtyRegion().drain(new int[DirtyRegion.CAPACITY]);
+
+        // Game thread: move the mole around a loop and publish the changes after every move
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            char[] loop = { 'd', 's', 'a', 'w' };
+            int[] changed = new int[DirtyRegion.CAPACITY];
+            for (int i = 0; i < 20_000; i++) {
+                char key = loop[(i / (size - 2)) % loop.length];
+                engine.move(key);
+                frames.publish(world, changed, world.getDirtyRegion().drain(changed));
+            }
+            done.set(true);
+        });
+
+        GridRenderer renderer = new GridRenderer(4, SKY);
+        BufferedImage image = new BufferedImage(size * 4 + 1, size * 4 + 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Rectangle clip = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        renderer.prepare(world, null);
+        writer.start();
+        int frameCount = 0;
+        try {
+            while (!done.get() || frameCount == 0) {
+                WorldGrid frame = frames.acquire();
+                int moles = frame.count(CellType.MOLE);
+                renderer.paint(g, frame, clip);
+                // Neither torn when taken nor changed underneath the paint
+                assertEquals(1, moles);
+                assertEquals(1, frame.count(CellType.MOLE));
+                frameCount++;
+                Thread.yield();
+            }
+        } finally {
+            writer.join();
+            g.dispose();
+        }
+        assertTrue(frameCount > 0);
+    }
+}
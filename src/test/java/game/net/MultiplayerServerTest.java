@@ -0,0 +1,252 @@
+package game.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import game.CellType;
+import game.Level;
+import game.TestWorlds;
+import game.WorldGrid;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiplayerServerTest {
+    private static final int SKY = Level.SKY_HEIGHT;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private MultiplayerServer server;
+    private Thread serverThread;
+    private final List<MultiplayerClient> clients = new ArrayList<>();
+
+    private void serve(WorldGrid world) throws IOException {
+        server = new MultiplayerServer(world, 200, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverThread = new Thread(server, "test-server");
+        serverThread.start();
+    }
+
+    private MultiplayerClient connect() throws IOException {
+        MultiplayerClient client = MultiplayerClient.connect(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()), TIMEOUT_MILLIS);
+        clients.add(client);
+        return client;
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        for (MultiplayerClient client : clients) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+            serverThread.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    private static boolean sameCells(WorldGrid a, WorldGrid b) {
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void testClientsSeeEachOthersMoves() throws IOException {
+        serve(TestWorlds.soil(40, 30));
+        MultiplayerClient first = connect();
+        MultiplayerClient second = connect();
+        MultiplayerClient third = connect();
+        int id = first.getPlayerId();
+        WorldGrid world = first.getWorld();
+        assertTrue(first.await(() -> first.getPlayerCount() == 3, TIMEOUT_MILLIS));
+        int start = first.getPlayerCell(id);
+        assertEquals(SKY, world.yOf(start));
+
+        first.send("ssd");
+        int expected = start + 2 * world.getWidth() + 1;
+        for (MultiplayerClient client : clients) {
+            assertTrue(client.await(() -> client.getPlayerCell(id) == expected, TIMEOUT_MILLIS));
+            WorldGrid copy = client.getWorld();
+            assertEquals(CellType.MOLE, copy.get(expected));
+            assertEquals(CellType.TUNNEL, copy.get(start));
+            assertEquals(CellType.TUNNEL, copy.get(start + world.getWidth()));
+            assertEquals(CellType.TUNNEL, copy.get(start + 2 * world.getWidth()));
+        }
+        assertTrue(sameCells(first.getWorld(), second.getWorld()));
+        assertTrue(sameCells(first.getWorld(), third.getWorld()));
+
+        // A player that leaves leaves its tunnel behind
+        int thirdId = third.getPlayerId();
+        int thirdCell = third.getPlayerCell(thirdId);
+        third.close();
+        clients.remove(third);
+        assertTrue(second.await(() -> second.getPlayerCell(thirdId) < 0, TIMEOUT_MILLIS));
+        assertEquals(CellType.TUNNEL, second.getWorld().get(thirdCell));
+    }
+
+    @Test
+    void testOneThreadServesHundredsOfClientsWithSmallUpdates() throws IOException {
+        int players = 150;
+        serve(TestWorlds.soil(256, 64));
+        for (int i = 0; i < players; i++) {
+            connect();
+        }
+        for (MultiplayerClient client : clients) {
+            assertTrue(client.await(() -> client.getPlayerCount() == players, TIMEOUT_MILLIS));
+        }
+        long[] before = new long[players];
+        for (int i = 0; i < players; i++) {
+            before[i] = clients.get(i).getBytesReceived();
+            clients.get(i).send("s");
+        }
+
+        for (MultiplayerClient client : clients) {
+            assertTrue(client.await(() -> {
+                WorldGrid world = client.getWorld();
+                for (MultiplayerClient other : clients) {
+                    int cell = client.getPlayerCell(other.getPlayerId());
+                    if (cell < 0 || world.yOf(cell) != SKY + 1) {
+                        return false;
+                    }
+                }
+                return true;
+            }, TIMEOUT_MILLIS));
+        }
+        for (int i = 0; i < players; i++) {
+            MultiplayerClient client = clients.get(i);
+            assertTrue(sameCells(clients.get(0).getWorld(), client.getWorld()));
+            // Two cells and a player per move, a few bytes each, instead of the 16 KB world
+            long received = client.getBytesReceived() - before[i];
+            assertTrue(received < players * 16, "client " + i + " received " + received + " bytes");
+        }
+    }
+
+    @Test
+    void testLongInputIsSplitIntoFramesTheServerAccepts() throws IOException {
+        serve(TestWorlds.soil(20, 60));
+        MultiplayerClient client = connect();
+        int id = client.getPlayerId();
+
+        // Far more than one frame holds; as one frame the server would drop the client instead
+        client.send("s".repeat(3 * Protocol.MAX_CLIENT_FRAME));
+        assertTrue(client.await(() -> client.getWorld().yOf(client.getPlayerCell(id)) >= SKY + 16, TIMEOUT_MILLIS));
+    }
+
+    @Test
+    void testJoiningGetsAWorldLargerThanThePendingLimit() throws IOException {
+        WorldGrid world = TestWorlds.soil(2048, 1100);
+        // Alternating cells make a run of every cell, two bytes each
+        for (int i = world.index(0, SKY + 1); i < world.size(); i += 2) {
+            world.set(i, CellType.TUNNEL);
+        }
+        serve(world);
+
+        MultiplayerClient client = connect();
+        assertTrue(client.getBytesReceived() > MultiplayerServer.MAX_PENDING_BYTES);
+        assertTrue(sameCells(world, client.getWorld()));
+    }
+
+    private static ByteBuffer copy(Protocol.Writer writer) {
+        writer.end();
+        ByteBuffer frame = writer.frame();
+        return ByteBuffer.allocate(frame.remaining()).put(frame).flip();
+    }
+
+    /** A world of soil and no players. */
+    private static ByteBuffer welcome(long playerId, long width, long height) {
+        Protocol.Writer writer = new Protocol.Writer();
+        writer.begin(Protocol.WELCOME).putVarint(playerId).putVarint(width).putVarint(height).putVarint(0)
+                .putVarint(1).putVarint(width * height).putByte(CellType.SOIL).putVarint(0);
+        return copy(writer);
+    }
+
+    /** One changed cell {@code gap} cells in, and one player gone. */
+    private static ByteBuffer delta(long gap, long departedId) {
+        Protocol.Writer writer = new Protocol.Writer();
+        writer.begin(Protocol.DELTA).putVarint(1).putVarint(1).putVarint(gap).putByte(CellType.TUNNEL)
+                .putVarint(0).putVarint(1).putVarint(departedId);
+        return copy(writer);
+    }
+
+    /** Serves {@code frames} to a client and returns why the client gave up on them. */
+    private static Throwable rejectionOf(ByteBuffer... frames) throws Exception {
+        try (ServerSocketChannel fake = ServerSocketChannel.open()) {
+            fake.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            Thread sender = new Thread(() -> {
+                try (SocketChannel channel = fake.accept()) {
+                    for (ByteBuffer frame : frames) {
+                        while (frame.hasRemaining()) {
+                            channel.write(frame);
+                        }
+                    }
+                    // Open until the client hangs up
+                    channel.read(ByteBuffer.allocate(1));
+                } catch (IOException e) {
+                    // The client hung up
+                }
+            }, "fake-server");
+            sender.start();
+
+            IOException e = assertThrows(IOException.class, () -> {
+                try (MultiplayerClient client = MultiplayerClient.connect(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), fake.socket().getLocalPort()),
+                        TIMEOUT_MILLIS)) {
+                    client.await(() -> false, TIMEOUT_MILLIS);
+                }
+            });
+            sender.join(TIMEOUT_MILLIS);
+            return e.getCause();
+        }
+    }
+
+    @Test
+    void testClientRejectsAnImpossibleWorldSize() throws Exception {
+        assertInstanceOf(IllegalArgumentException.class, rejectionOf(welcome(1, 100_000, 100_000)));
+    }
+
+    @Test
+    void testClientRejectsBadPlayerIdsAndCells() throws Exception {
+        assertInstanceOf(IllegalArgumentException.class, rejectionOf(welcome(1L << 40, 4, 4)));
+        // A gap that wraps the cell index negative when cut to an int
+        assertInstanceOf(IllegalArgumentException.class, rejectionOf(welcome(1, 4, 4), delta((1L << 32) - 5, 2)));
+        assertInstanceOf(IllegalArgumentException.class, rejectionOf(welcome(1, 4, 4), delta(16, 2)));
+        assertInstanceOf(IllegalArgumentException.class, rejectionOf(welcome(1, 4, 4), delta(0, 1L << 31)));
+    }
+
+    @Test
+    void testMolesCannotDigThroughEachOther() {
+        WorldGrid world = TestWorlds.soil(10, 10);
+        // Only two free cells on the surface, side by side
+        world.fill(0, SKY, 10, 1, CellType.OBSTACLE);
+        world.set(4, SKY, CellType.SOIL);
+        world.set(5, SKY, CellType.SOIL);
+        SharedWorld shared = new SharedWorld(world, SKY, 100);
+        SharedWorld.Player a = shared.join();
+        SharedWorld.Player b = shared.join();
+        assertEquals(9, a.getX() + b.getX());
+        SharedWorld.Player left = a.getX() == 4 ? a : b;
+
+        shared.offer(left, 'd');
+        shared.tick();
+        assertEquals(4, left.getX());
+        assertEquals(2, world.count(CellType.MOLE));
+
+        // Out of the way, then past underneath
+        shared.offer(left, 's');
+        shared.offer(left, 'd');
+        shared.tick();
+        assertEquals(5, left.getX());
+        assertEquals(SKY + 1, left.getY());
+        assertEquals(2, world.count(CellType.MOLE));
+    }
+}
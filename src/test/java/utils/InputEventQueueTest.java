@@ -0,0 +1,76 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputEventQueueTest {
+
+    @Test
+    void testDrainReturnsEventsInOrder() {
+        InputEventQueue queue = new InputEventQueue(8);
+        queue.offer('w', true, 10);
+        queue.offer('w', false, 20);
+        queue.offer('d', true, 30);
+
+        List<String> events = new ArrayList<>();
+        int drained = queue.drain((key, pressed, nanos) -> events.add(key + ":" + pressed + ":" + nanos));
+
+        assertEquals(3, drained);
+        assertEquals(List.of("w:true:10", "w:false:20", "d:true:30"), events);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testFullQueueDropsNewEvents() {
+        InputEventQueue queue = new InputEventQueue(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer('a', true, i));
+        }
+        assertFalse(queue.offer('b', true, 5));
+        assertEquals(1, queue.getDropped());
+        assertEquals(4, queue.size());
+
+        StringBuilder keys = new StringBuilder();
+        queue.drain((key, pressed, nanos) -> keys.append(key), 2);
+        assertEquals("aa", keys.toString());
+        assertTrue(queue.offer('c', true, 6));
+    }
+
+    @Test
+    void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new InputEventQueue(5).capacity());
+        assertEquals(256, new InputEventQueue(256).capacity());
+    }
+
+    @Test
+    void testConcurrentProducerLosesNothing() throws InterruptedException {
+        InputEventQueue queue = new InputEventQueue(64);
+        int total = 50_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!queue.offer((char) (i & 0xFFFF), true, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        long[] expected = { 0 };
+        InputEventQueue.Consumer check = (key, pressed, nanos) -> {
+            assertEquals(expected[0], nanos);
+            assertEquals((char) (expected[0] & 0xFFFF), key);
+            expected[0]++;
+        };
+        while (expected[0] < total) {
+            if (queue.drain(check) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}